@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the (vector API) bulk path of BaseXStream.Decoder on large inputs.
+ * Note that it lives in the same package to be able to switch off the bulk decoder.
+ * <p>
+ * Run with: mvn -Pjmh,vector compile exec:exec
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class BaseXStreamDecodeBenchmark
+{
+    //-----CONSTANTS-----
+
+    //-----VARIABLES-----
+    @Param({ "65536", "524288" })
+    private int numBytes;
+
+    @Param({ "default", "dense" })
+    private String config;
+
+    private BaseXStream.Config baseXConfig;
+    private String encoded;
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    @Setup
+    public void setup()
+    {
+        this.baseXConfig = this.config.equals("dense") ? BaseXStream.DENSE_CONFIG : BaseXStream.DEFAULT_CONFIG;
+
+        byte[] data = new byte[this.numBytes];
+        new Random(42).nextBytes(data);
+
+        StringBuilder sb = new StringBuilder();
+        BaseXStream.Encoder encoder = new BaseXStream.Encoder(sb::append, this.baseXConfig);
+        for (byte b : data) {
+            encoder.write(b & 0xFF, BaseXStream.BITS_PER_BYTE);
+        }
+        encoder.flush();
+        this.encoded = sb.toString();
+
+        if (BaseXStream.createBulkDecoder(this.baseXConfig) == null) {
+            throw new IllegalStateException("The bulk decoder is not available, did you add the jdk.incubator.vector module?");
+        }
+    }
+
+    @Benchmark
+    public long scalar()
+    {
+        return this.decode(false);
+    }
+
+    @Benchmark
+    public long vector()
+    {
+        return this.decode(true);
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    private long decode(boolean enableBulk)
+    {
+        BaseXStream.Decoder decoder = new BaseXStream.Decoder(this.encoded, this.baseXConfig, enableBulk);
+
+        long retVal = 0;
+        while (decoder.hasNext(BaseXStream.BITS_PER_BYTE)) {
+            retVal += decoder.read(BaseXStream.BITS_PER_BYTE);
+        }
+
+        return retVal;
+    }
+}
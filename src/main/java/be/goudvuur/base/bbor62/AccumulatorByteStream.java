@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import be.goudvuur.base.bbor62.ifaces.BitReader;
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+
+import java.util.Objects;
+
+/**
+ * Same as ByteStream (and bit-for-bit compatible with it), but instead of handling every write() and read() byte by byte,
+ * the bits are shifted in and out of a 64-bit accumulator, so up to MAX_BITS bits are handled in one shift/mask step
+ * and we only touch the byte buffer to move complete bytes in and out of the accumulators.
+ * <p>
+ * ByteStream is kept as the (simpler) reference implementation, see ByteStreamDiffTest.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class AccumulatorByteStream implements BitReader, BitWriter
+{
+    //-----CONSTANTS-----
+    /**
+     * The maximum number of bits we can handle in one step: the accumulators hold at most 7 bits
+     * that didn't form a complete byte yet, so 64 - 7 bits are left.
+     */
+    public static final int MAX_BITS = Long.SIZE - 7;
+
+    //-----VARIABLES-----
+    // the complete bytes between the accumulators (see ByteRingBuffer)
+    private final ByteRingBuffer buffer;
+
+    // the bits that were written, but don't form a complete byte yet (right-aligned)
+    private long writeAcc;
+    private int writeAccBits;
+
+    // the bits that were taken from the buffer, but not read yet (right-aligned)
+    private long readAcc;
+    private int readAccBits;
+
+    //-----CONSTRUCTORS-----
+    public AccumulatorByteStream()
+    {
+        this.buffer = new ByteRingBuffer(8);
+        this.writeAcc = 0;
+        this.writeAccBits = 0;
+        this.readAcc = 0;
+        this.readAccBits = 0;
+    }
+
+    //-----PUBLIC METHODS-----
+    @Override
+    public int read(int numBits)
+    {
+        // we're returning an int
+        if (numBits <= 0 || numBits > Integer.SIZE) {
+            throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+        }
+
+        return (int) this.readBits(numBits);
+    }
+    @Override
+    public long readLong(int numBits)
+    {
+        if (numBits <= 0 || numBits > Long.SIZE) {
+            throw new IllegalArgumentException("Number of bits must be between 1 and " + Long.SIZE);
+        }
+
+        // note that this can only happen for 58 to 64 bits, so we need two steps
+        long retVal = 0;
+        if (numBits > MAX_BITS) {
+            retVal = this.readBits(numBits - Integer.SIZE) << Integer.SIZE;
+            numBits = Integer.SIZE;
+        }
+
+        return retVal | this.readBits(numBits);
+    }
+    @Override
+    public void readBytes(byte[] bytes, int off, int len)
+    {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+
+        // the read accumulator never holds a complete byte after a read, so if it's empty, we're byte aligned
+        if (this.readAccBits == 0) {
+            this.buffer.take(bytes, off, len);
+        }
+        else {
+            BitReader.super.readBytes(bytes, off, len);
+        }
+    }
+    @Override
+    public boolean hasNext(int numBits)
+    {
+        // same as ByteStream: only complete bytes can be read back
+        return this.readAccBits + this.buffer.size() * 8L >= numBits;
+    }
+    @Override
+    public void write(int value, int numBits)
+    {
+        if (numBits <= 0 || numBits > Integer.SIZE) {
+            throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+        }
+        // note that the L is needed or the value overflows
+        if (value >= (1L << numBits)) {
+            throw new IllegalArgumentException("Value is too large for the specified number of bits");
+        }
+
+        // note that negative values are masked, same as in ByteStream
+        this.writeBits(value & ((1L << numBits) - 1), numBits);
+    }
+    @Override
+    public void writeLong(long value, int numBits)
+    {
+        if (numBits <= 0 || numBits > Long.SIZE) {
+            throw new IllegalArgumentException("Number of bits must be between 1 and " + Long.SIZE);
+        }
+        if (numBits < Long.SIZE && (value >>> numBits) != 0) {
+            throw new IllegalArgumentException("Value is too large for the specified number of bits");
+        }
+
+        // see readLong()
+        if (numBits > MAX_BITS) {
+            this.writeBits(value >>> Integer.SIZE, numBits - Integer.SIZE);
+            value &= 0xFFFFFFFFL;
+            numBits = Integer.SIZE;
+        }
+        this.writeBits(value, numBits);
+    }
+    @Override
+    public void writeBytes(byte[] bytes, int off, int len)
+    {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+
+        // if we're byte aligned, we can just copy the bytes
+        if (this.writeAccBits == 0) {
+            this.buffer.put(bytes, off, len);
+        }
+        else {
+            BitWriter.super.writeBytes(bytes, off, len);
+        }
+    }
+    @Override
+    public void flush()
+    {
+        // Handle partial chunk if any
+        if (this.writeAccBits > 0) {
+            throw new IllegalStateException("Remaining bits left in the byte stream, this shouldn't happen; " + this.writeAccBits);
+        }
+    }
+    /**
+     * Moves everything that was written, but not read yet (including the bits of an incomplete last byte) to the writer.
+     * This stream is empty afterwards, so it can be reused as a temp buffer (see BborGenerator.SizingMode.BUFFER).
+     */
+    public void transferTo(BitWriter writer)
+    {
+        if (this.readAccBits > 0) {
+            writer.write((int) this.readAcc, this.readAccBits);
+            this.readAcc = 0;
+            this.readAccBits = 0;
+        }
+        this.buffer.transferTo(writer);
+        if (this.writeAccBits > 0) {
+            writer.write((int) this.writeAcc, this.writeAccBits);
+            this.writeAcc = 0;
+            this.writeAccBits = 0;
+        }
+    }
+    public long length()
+    {
+        // all complete bytes that were ever written (note that this doesn't change when they're read back)
+        return this.buffer.written();
+    }
+    public long bitLength()
+    {
+        // same as length(), but including the bits of the byte we're currently building
+        return this.buffer.written() * 8L + this.writeAccBits;
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    private void writeBits(long value, int numBits)
+    {
+        // the accumulator holds less than 8 bits, so this never overflows for numBits <= MAX_BITS
+        this.writeAcc = (this.writeAcc << numBits) | value;
+        this.writeAccBits += numBits;
+
+        // move the complete bytes out of the accumulator
+        while (this.writeAccBits >= 8) {
+            this.writeAccBits -= 8;
+            this.buffer.put((byte) (this.writeAcc >>> this.writeAccBits));
+        }
+        this.writeAcc &= (1L << this.writeAccBits) - 1;
+    }
+
+    private long readBits(int numBits)
+    {
+        // pull in complete bytes until we have enough bits (note that the accumulator holds less than 8 unread bits
+        // after every read, so this never overflows for numBits <= MAX_BITS)
+        while (this.readAccBits < numBits) {
+            if (this.buffer.size() == 0) {
+                throw new IllegalStateException("Not enough bits left in the stream; requested " + numBits + ", available " + this.readAccBits);
+            }
+            this.readAcc = (this.readAcc << 8) | (this.buffer.take() & 0xFF);
+            this.readAccBits += 8;
+        }
+
+        this.readAccBits -= numBits;
+        long retVal = (this.readAcc >>> this.readAccBits) & ((1L << numBits) - 1);
+        this.readAcc &= (1L << this.readAccBits) - 1;
+
+        return retVal;
+    }
+}
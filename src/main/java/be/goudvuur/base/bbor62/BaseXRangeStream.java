@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import be.goudvuur.base.bbor62.ifaces.BitReader;
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+
+import java.util.function.Consumer;
+
+/**
+ * An alternative for BaseXStream: instead of packing 23 bits into blocks of 4 chars (wasting about 0.2 bits per char,
+ * even with bit squeezing), this is a range coder that renormalizes in base 62 and emits the alphabet chars directly,
+ * so we get really close to log2(62) ~= 5.95 bits per char.
+ * <p>
+ * It's basically the LZMA range coder, but with base 62 digits instead of bytes:
+ * - low and range live in a window of WINDOW_DIGITS digits (62^5 for base62, so it fits in 30 bits)
+ * - as soon as the range gets smaller than one digit of the window, we shift out the top digit of low
+ * - a carry can ripple into the digits we already shifted out, that's why we hold back the last digit (cache) and all
+ *   the (radix-1) digits after it (cacheSize), exactly like LZMA does with 0xFF bytes
+ * - the first digit is always zero (the carry can never reach it), so we don't write it out
+ * - at the end, we pick the value in the final range with the most trailing zero digits, and the decoder pads the input
+ *   with zeros, so we don't need to write out any trailing zeros
+ * <p>
+ * Regular bits (see write()) are coded with a probability of 1/2, but the layers above can also pass their own
+ * probabilities (see writeBit()), so a good model will make the output even shorter than the plain bits.
+ * <p>
+ * Note that this is not wire compatible with BaseXStream (and we only use the alphabet of its config).
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class BaseXRangeStream
+{
+    //-----CONSTANTS-----
+    /**
+     * The precision of the probabilities that can be passed to writeBit() and readBit():
+     * the probability that the bit is zero is prob / PROB_ONE
+     */
+    public static final int PROB_BITS = 11;
+    public static final int PROB_ONE = 1 << PROB_BITS;
+
+    // We need enough precision in the range to split it according to the probabilities,
+    // so the range after renormalization (radix^(WINDOW_DIGITS - 1)) should be at least this number of bits
+    private static final int MIN_RANGE_BITS = 23;
+
+    //-----VARIABLES-----
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static class Encoder implements BitWriter
+    {
+        // the number of chars we collect before handing them to the consumer
+        private static final int BATCH_SIZE = 1 << 12;
+
+        private final Consumer<String> consumer;
+        private final Config config;
+
+        private long low;
+        private long range;
+        // the last digit we shifted out of low, but couldn't write yet because a carry can still change it
+        private int cache;
+        // the number of held back digits: the cache plus the (radix-1) digits after it
+        private long cacheSize;
+        // the very first digit is always zero, so we skip it
+        private boolean firstDigit;
+        // the number of zero digits we didn't write out yet, because we don't need them when they're trailing
+        private long pendingZeros;
+        private final StringBuilder batch;
+
+        public Encoder(Consumer<String> consumer, BaseXStream.Config config)
+        {
+            this.consumer = consumer;
+            this.config = new Config(config);
+            this.batch = new StringBuilder();
+            this.reset();
+        }
+
+        @Override
+        public void write(int value, int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+            // note that the L is needed or the value overflows
+            if (value >= (1L << numBits)) {
+                throw new IllegalArgumentException("Value is too large for the specified number of bits");
+            }
+
+            for (int i = numBits - 1; i >= 0; i--) {
+                // a bit without a model is just half of the range (see the direct bits in LZMA)
+                this.range >>>= 1;
+                if (((value >>> i) & 1) != 0) {
+                    this.low += this.range;
+                }
+                this.normalize();
+            }
+        }
+
+        /**
+         * Writes a single bit where the probability that it's zero is prob / PROB_ONE
+         */
+        public void writeBit(int bit, int prob)
+        {
+            if (prob <= 0 || prob >= PROB_ONE) {
+                throw new IllegalArgumentException("Probability must be between 1 and " + (PROB_ONE - 1));
+            }
+
+            long bound = (this.range >>> PROB_BITS) * prob;
+            if (bit == 0) {
+                this.range = bound;
+            }
+            else {
+                this.low += bound;
+                this.range -= bound;
+            }
+            this.normalize();
+        }
+
+        @Override
+        public void flush()
+        {
+            // Pick the value in [low, low + range) with the most trailing zero digits,
+            // the decoder pads the input with zeros, so we can drop those (see emitDigit())
+            for (long unit = this.config.unit; unit > 0; unit /= this.config.radix) {
+                long value = Math.floorDiv(this.low + unit - 1, unit) * unit;
+                if (value < this.low + this.range) {
+                    this.low = value;
+                    break;
+                }
+            }
+
+            // shift out all digits of low, plus the cache
+            for (int i = 0; i <= this.config.windowDigits; i++) {
+                this.shiftLow();
+            }
+
+            // note that we drop the pending zeros here, they're trailing
+            if (this.batch.length() > 0) {
+                this.consumer.accept(this.batch.toString());
+                this.batch.setLength(0);
+            }
+
+            // this makes sure we don't write anything when we're flushed again without new bits
+            this.reset();
+        }
+
+        private void reset()
+        {
+            this.low = 0;
+            this.range = this.config.window;
+            this.cache = 0;
+            this.cacheSize = 1;
+            this.firstDigit = true;
+            this.pendingZeros = 0;
+        }
+
+        private void normalize()
+        {
+            while (this.range < this.config.unit) {
+                this.range *= this.config.radix;
+                this.shiftLow();
+            }
+        }
+
+        private void shiftLow()
+        {
+            // low + range never exceeds 2 windows, so the carry is at most 1
+            int carry = this.low >= this.config.window ? 1 : 0;
+            long lowInWindow = this.low - carry * this.config.window;
+            int topDigit = (int) (lowInWindow / this.config.unit);
+
+            // if the top digit is radix-1, a later carry might still ripple through it, so hold it back too
+            if (topDigit < this.config.radix - 1 || carry == 1) {
+                this.emitDigit(this.cache + carry);
+                for (long i = 1; i < this.cacheSize; i++) {
+                    this.emitDigit(carry == 1 ? 0 : this.config.radix - 1);
+                }
+                this.cache = topDigit;
+                this.cacheSize = 0;
+            }
+            this.cacheSize++;
+
+            this.low = (lowInWindow % this.config.unit) * this.config.radix;
+        }
+
+        private void emitDigit(int digit)
+        {
+            if (this.firstDigit) {
+                this.firstDigit = false;
+            }
+            else if (digit == 0) {
+                this.pendingZeros++;
+            }
+            else {
+                for (; this.pendingZeros > 0; this.pendingZeros--) {
+                    this.batch.append(this.config.dict.charAt(0));
+                }
+                this.batch.append(this.config.dict.charAt(digit));
+
+                if (this.batch.length() >= BATCH_SIZE) {
+                    this.consumer.accept(this.batch.toString());
+                    this.batch.setLength(0);
+                }
+            }
+        }
+    }
+
+    public static class Decoder implements BitReader
+    {
+        private final CharSequence input;
+        private final Config config;
+        private int inputPos;
+
+        private long code;
+        private long range;
+        private boolean initialized;
+
+        public Decoder(CharSequence input, BaseXStream.Config config)
+        {
+            this.input = input;
+            this.config = new Config(config);
+            this.inputPos = 0;
+            this.initialized = false;
+        }
+
+        @Override
+        public int read(int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+
+            this.init();
+
+            int retVal = 0;
+            for (int i = 0; i < numBits; i++) {
+                // see Encoder.write()
+                this.range >>>= 1;
+                int bit = 0;
+                if (this.code >= this.range) {
+                    this.code -= this.range;
+                    bit = 1;
+                }
+                this.normalize();
+
+                retVal = (retVal << 1) | bit;
+            }
+
+            return retVal;
+        }
+
+        /**
+         * Reads a single bit where the probability that it's zero is prob / PROB_ONE (make sure it's the same as in the encoder)
+         */
+        public int readBit(int prob)
+        {
+            if (prob <= 0 || prob >= PROB_ONE) {
+                throw new IllegalArgumentException("Probability must be between 1 and " + (PROB_ONE - 1));
+            }
+
+            this.init();
+
+            int retVal;
+            long bound = (this.range >>> PROB_BITS) * prob;
+            if (this.code < bound) {
+                this.range = bound;
+                retVal = 0;
+            }
+            else {
+                this.code -= bound;
+                this.range -= bound;
+                retVal = 1;
+            }
+            this.normalize();
+
+            return retVal;
+        }
+
+        @Override
+        public boolean hasNext(int numBits)
+        {
+            // Watch out: a range coder doesn't know where the data ends (eg. the trailing zeros are dropped),
+            // so this only tells us if there are input chars we didn't touch yet and a while (hasNext(8)) loop will miss
+            // the last bits. The layers above should know their own length (like Bbor does, it never calls this).
+            return this.inputPos < this.input.length();
+        }
+
+        private void init()
+        {
+            if (!this.initialized) {
+                // note that the encoder skips the first (zero) digit, so the first digits fill up the window right away
+                this.code = 0;
+                this.range = this.config.window;
+                for (int i = 0; i < this.config.windowDigits; i++) {
+                    this.code = this.code * this.config.radix + this.nextDigit();
+                }
+                this.initialized = true;
+            }
+        }
+
+        private void normalize()
+        {
+            while (this.range < this.config.unit) {
+                this.range *= this.config.radix;
+                this.code = this.code * this.config.radix + this.nextDigit();
+            }
+        }
+
+        private int nextDigit()
+        {
+            int retVal = 0;
+
+            // past the end of the input, we read the zeros the encoder dropped
+            if (this.inputPos < this.input.length()) {
+                char c = this.input.charAt(this.inputPos++);
+                int index = this.config.baseXConfig.digit(c);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Invalid base62 character: " + c);
+                }
+                retVal = index;
+            }
+            else {
+                this.inputPos++;
+            }
+
+            return retVal;
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    /**
+     * The values we derive from the BaseXStream config
+     */
+    private static class Config
+    {
+        private final BaseXStream.Config baseXConfig;
+        private final String dict;
+        private final int radix;
+        // the number of digits in the window of low (and range)
+        private final int windowDigits;
+        // radix^windowDigits
+        private final long window;
+        // radix^(windowDigits - 1): the value of the top digit in the window
+        private final long unit;
+
+        private Config(BaseXStream.Config config)
+        {
+            this.baseXConfig = config;
+            this.dict = config.dict();
+            this.radix = config.radix();
+
+            long unit = 1;
+            int windowDigits = 1;
+            while (unit < (1L << MIN_RANGE_BITS)) {
+                unit *= this.radix;
+                windowDigits++;
+            }
+            this.unit = unit;
+            this.window = unit * this.radix;
+            this.windowDigits = windowDigits;
+        }
+    }
+}
@@ -9,14 +9,28 @@ package be.goudvuur.base.bbor62;
 import be.goudvuur.base.bbor62.ifaces.BitReader;
 import be.goudvuur.base.bbor62.ifaces.BitWriter;
 
-import java.util.AbstractMap;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * My implementation of a streaming base62 encoder/decoder.
- * This actually works with any alphabet/charset (only tested with base62 and base64).
+ * This actually works with any alphabet/charset (only tested with base62 and base64), see ConfigBuilder.
  * It works by encoding as much data as possible into blocks of 4 chars (even trying to squeeze in more bits if the remaining space allows it).
  * The last block is decoded using statistical analysis on the possible final states of the encoder (see ref spreadsheet).
  *
@@ -41,6 +55,18 @@ public class BaseXStream
          */
         boolean enableBitSqueezing();
 
+        /**
+         * When enabled, the stream doesn't need to be byte aligned: the final block always holds the remaining bits
+         * plus a leading 1-bit marker, so the decoder knows the exact number of bits in it.
+         * This costs an extra char when the remaining bits happen to fill up the last block exactly,
+         * but saves the bits the layers above need to waste to byte-align their data (see LZW.Config.bitExactMode()).
+         * Note that this is not wire compatible with the byte aligned mode.
+         */
+        default boolean enableBitExactMode()
+        {
+            return false;
+        }
+
         // ---------- BELOW CAN BE CALCULATED FROM ABOVE ----------
 
         /**
@@ -68,116 +94,490 @@ public class BaseXStream
          * The difference between "max block capacity" and "max block value" is the "free space" in a block where we can try to squeeze in more data.
          */
         int maxBlockCapacity();
+
+        /**
+         * Same as dictRev(), but without the boxing: the index of the char in the alphabet or -1 if it's not part of it.
+         * Note that the default implementation just looks it up in dictRev(), the ConfigBuilder uses a lookup table.
+         */
+        default int digit(char c)
+        {
+            Integer retVal = this.dictRev().get(c);
+            return retVal == null ? -1 : retVal;
+        }
+
+        /**
+         * The minimum number of chars the encoder needs to write out a final block holding numBits bits,
+         * so the decoder can tell how many bits were in it (see Encoder.encode()).
+         * Note that the default implementation calculates it on every call, the ConfigBuilder uses a lookup table.
+         */
+        default int finalBlockChars(int numBits)
+        {
+            return ConfigBuilder.calcFinalBlockChars(this.radix(), numBits);
+        }
+
+        /**
+         * The number of bits in a (byte aligned) final block of numChars chars that started at the supplied byte modulo
+         * or -1 if that's not a valid end state (see ConfigBuilder.buildFinalBlockLut()).
+         * Note that the default implementation calculates it on every call, the ConfigBuilder uses a lookup table.
+         */
+        default int finalBlockBitLength(int byteModulo, int numChars)
+        {
+            return numChars >= 1 && numChars <= this.charsPerBlock() ? ConfigBuilder.calcFinalBlockBitLength(this.radix(), this.bitsPerBlock(), byteModulo, numChars) : -1;
+        }
     }
 
-    public static final Config DEFAULT_CONFIG = new Config()
+    /**
+     * The base62 alphabet
+     */
+    public static final String BASE62_DICT = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * From block analysis:
+     * 23 bits: 2^23 = 8,388,608
+     * needs 4 chars (62^4 = 14,776,336)
+     * efficiency: 23/4 = 5.75 bits/char
+     * The pattern is: the best efficiency comes just before we need an additional character.
+     * These points are where:
+     * 2^n is just under 62^m
+     * For m=2: n=11 (2048 vs 3844)
+     * For m=3: n=17 (131,072 vs 238,328)
+     * For m=4: n=23 (8,388,608 vs 14,776,336)
+     * Best efficiency points:
+     * 29 bits → 5 chars = 5.8 bits/char  (916,132,832 values)
+     * 23 bits → 4 chars = 5.75 bits/char (14,776,336 values)
+     * 17 bits → 3 chars = 5.67 bits/char (238,328 values)
+     * 11 bits → 2 chars = 5.5 bits/char  (3,844 values)
+     * -> Let's use blocksize of 4 as a good tradeoff between size and efficiency (see DEFAULT_CONFIG)
+     * Also, it still fits in a 4-byte java integer we use as buffer.
+     * The blocksize of 5 (see DENSE_CONFIG) needs 30 bits when squeezing, so the buffers are longs now,
+     * but that's not so easy in Javascript where the bitwise operators work on 32-bit signed integers.
+     */
+    public static final int BASE62_CHARS_PER_BLOCK = 4;
+
+    /**
+     * The default base62 implementation, with 23 bits in 4 chars
+     */
+    public static final Config DEFAULT_CONFIG = new ConfigBuilder(BASE62_DICT, BASE62_CHARS_PER_BLOCK).build();
+
+    /**
+     * A denser (but less JS-friendly, see below) base62 implementation, with 29 bits in 5 chars.
+     * This is about 0.9% shorter than the default for larger payloads, but note that it's not wire compatible with it.
+     */
+    public static final Config DENSE_CONFIG = new ConfigBuilder(BASE62_DICT, 5).build();
+
+    /**
+     * The default base62 implementation, but in bit exact mode (see Config.enableBitExactMode())
+     */
+    public static final Config BIT_EXACT_CONFIG = new ConfigBuilder(BASE62_DICT, BASE62_CHARS_PER_BLOCK).enableBitExactMode(true).build();
+
+    /**
+     * Builds an immutable Config for any alphabet and block size, eg. for base64url:
+     * <pre>
+     * BaseXStream.Config config = new BaseXStream.ConfigBuilder("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_", 4).build();
+     * </pre>
+     * All the lookup tables (the reversed alphabet, the final block LUT, ...) are calculated once in build() and stored
+     * as primitive arrays, so the encoders and decoders don't need to (re)calculate anything per instance.
+     * The result never changes, so build it once (eg. per channel) and share it between threads.
+     * <p>
+     * Note that build() throws when the combination of alphabet and block size can't be decoded unambiguously,
+     * so it's best to build your configs in a static initializer to find out early.
+     */
+    public static class ConfigBuilder
     {
-        private static final String DICT = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
-        private static final Map<Character, Integer> DICT_REV = new HashMap<>();
-        static {
-            for (int i = 0; i < DICT.length(); i++) {
-                DICT_REV.put(DICT.charAt(i), i);
+        private final String dict;
+        private final int charsPerBlock;
+        private boolean enableBitSqueezing;
+        private boolean enableBitExactMode;
+
+        public ConfigBuilder(String dict, int charsPerBlock)
+        {
+            this.dict = dict;
+            this.charsPerBlock = charsPerBlock;
+            this.enableBitSqueezing = true;
+            this.enableBitExactMode = false;
+        }
+
+        /**
+         * See Config.enableBitSqueezing(), defaults to true
+         */
+        public ConfigBuilder enableBitSqueezing(boolean enableBitSqueezing)
+        {
+            this.enableBitSqueezing = enableBitSqueezing;
+            return this;
+        }
+
+        /**
+         * See Config.enableBitExactMode(), defaults to false
+         */
+        public ConfigBuilder enableBitExactMode(boolean enableBitExactMode)
+        {
+            this.enableBitExactMode = enableBitExactMode;
+            return this;
+        }
+
+        public Config build()
+        {
+            if (this.dict == null || this.dict.length() < 2) {
+                throw new IllegalArgumentException("The alphabet needs at least 2 chars");
+            }
+            if (this.charsPerBlock < 1) {
+                throw new IllegalArgumentException("A block needs at least 1 char");
+            }
+
+            // the block values (including the squeezed bits) must fit into an int, see Config.maxBlockCapacity()
+            long capacity = 1;
+            for (int i = 0; i < this.charsPerBlock; i++) {
+                capacity *= this.dict.length();
+                if (capacity > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("A block of " + this.charsPerBlock + " chars in base" + this.dict.length() + " doesn't fit into an int, use smaller blocks");
+                }
             }
+
+            return new ImmutableConfig(this.dict, this.charsPerBlock, this.enableBitSqueezing, this.enableBitExactMode, (int) capacity);
         }
 
-        // the "base" in our baseXX implementation
-        private final int RADIX = this.dict().length();
+        /**
+         * Let's start by analyzing the last block handling in the encoder:
+         * - when closing the stream, the encoder detects there are bits left that don't form a full block, so lastBlockBits < BITS_PER_BLOCK
+         * - the encoder encodes those final bits without left-padding to generate the shortest last block possible
+         * - the problem is that the decoder needs to know the number of bits used to encode that last block
+         *   For instance 1 char (62 values) could represent anything from 1 to 5 bits
+         *   e.g., "A" could be "1" (1 bit) or "00001" (5 bits)
+         *   The decoder only knows N is in range of the bits required for a single char [1-6 bits]
+         * - but we require that the entire stream is byte aligned, so totalBitLength % 8 == 0
+         * - but the next-to-last full 23-bit block might have ended in the middle of a byte:
+         *
+         * [23 bits][23 bits][23 bits][remaining bits + final bits...]
+         *                             ^
+         *                             |
+         *                             These bits are all part of our final block that must close the stream with modulo 8 == 0
+         *
+         * For any N bits < 23:
+         * If these N bits generate M base-62 chars when encoded,
+         * then N must have been large enough to require M chars.
+         * And N couldn't have been large enough to need M+1 chars
+         * (or encoder would have output M+1 chars).
+         *
+         * So when decoder sees the final block, it knows N must be in range:
+         *   - Large enough to need M chars
+         *   - Small enough to not need M+1 chars
+         *
+         * Code below generates a LUT for valid end states that translate (byteModulo, numChars) to a single bitLength.
+         * The LUT is indexed by byteModulo * (charsPerBlock + 1) + numChars and holds -1 for the invalid end states.
+         * Note that because we use byteModulo, this transparently supports bit squeezing
+         *
+         * This was validated in a LUT for base62,
+         * see https://docs.google.com/spreadsheets/d/1j1v2bHS79YVRj7kF7NR6UnMgjAxyD9-OhPnYV-1oFKs/edit?gid=0#gid=0
+         */
+        private static int[] buildFinalBlockLut(int radix, int charsPerBlock, int bitsPerBlock)
+        {
+            int[] retVal = new int[BaseXStream.BITS_PER_BYTE * (charsPerBlock + 1)];
+            Arrays.fill(retVal, -1);
+
+            // For each possible number of base62 chars
+            // and each starting modulo position (0-7) and actual number of chars seen (1-4)
+            for (int numChars = 1; numChars <= charsPerBlock; numChars++) {
+                for (int modulo = 0; modulo < BaseXStream.BITS_PER_BYTE; modulo++) {
+                    retVal[modulo * (charsPerBlock + 1) + numChars] = ConfigBuilder.calcFinalBlockBitLength(radix, bitsPerBlock, modulo, numChars);
+                }
+            }
+
+            return retVal;
+        }
+
+        /**
+         * A single entry of the LUT above: the valid bit length of a final block of numChars chars that reaches
+         * byte alignment when it starts at the supplied modulo or -1 if there's none.
+         * Note that this is also used by the default implementation of Config.finalBlockBitLength()
+         */
+        private static int calcFinalBlockBitLength(int radix, int bitsPerBlock, int modulo, int numChars)
+        {
+            int retVal = -1;
+
+            long minValue = ConfigBuilder.pow(radix, numChars - 1);
+            // the minimum number of bits needed to encode minValue (note min 1 since 62^0 == 1)
+            int minBits = Math.max(BaseXStream.log2ceil(minValue), 1);
+
+            long maxValue = ConfigBuilder.pow(radix, numChars) - 1;
+            // note that we can never exceed BITS_PER_BLOCK, even when the maxValue allows it (eg. for 62^4, cap to 23, not 24)
+            int maxBits = Math.min(BaseXStream.log2ceil(maxValue), bitsPerBlock);
+
+            for (int bitLength = minBits; bitLength <= maxBits; bitLength++) {
+                if ((modulo + bitLength) % BaseXStream.BITS_PER_BYTE == 0) {
+                    if (retVal < 0) {
+                        retVal = bitLength;
+                    }
+                    else {
+                        throw new IllegalStateException("This configuration of block size + charset cannot guarantee a unique final block bit length!!!");
+                    }
+                }
+            }
+
+            return retVal;
+        }
+
+        /**
+         * For every number of bits in a final block (0 to bitsPerBlock), the minimum number of chars we need to encode it.
+         * Note that this is the combination of this (same code as in buildFinalBlockLut()):
+         * maxValue = radix^numChars - 1
+         * maxBits = log2ceil(maxValue)
+         * and we take the smallest numChars where maxBits >= numBits.
+         */
+        private static int[] buildFinalBlockChars(int radix, int bitsPerBlock)
+        {
+            int[] retVal = new int[bitsPerBlock + 1];
+
+            for (int numBits = 0; numBits <= bitsPerBlock; numBits++) {
+                retVal[numBits] = ConfigBuilder.calcFinalBlockChars(radix, numBits);
+            }
+
+            return retVal;
+        }
+
+        /**
+         * A single entry of the table above, also used by the default implementation of Config.finalBlockChars()
+         */
+        private static int calcFinalBlockChars(int radix, int numBits)
+        {
+            int retVal = 1;
+            while (BaseXStream.log2ceil(ConfigBuilder.pow(radix, retVal) - 1) < numBits) {
+                retVal++;
+            }
+
+            return retVal;
+        }
+
+        private static long pow(int radix, int exponent)
+        {
+            long retVal = 1;
+            for (int i = 0; i < exponent; i++) {
+                retVal *= radix;
+            }
+
+            return retVal;
+        }
+    }
+
+    /**
+     * The Config that's built by the ConfigBuilder, everything is calculated up front and never changes
+     */
+    private static final class ImmutableConfig implements Config
+    {
+        private final String dict;
+        private final int charsPerBlock;
+        private final boolean enableBitSqueezing;
+        private final boolean enableBitExactMode;
+        private final Map<Character, Integer> dictRev;
 
-        // How many bits can we encode with 1 char? -> log2(RADIX)
-        // To know the practical bits, this should be ceiled (since log2(62) ≈ 5.95, we need 6 bits)
-        private final double BITS_PER_CHAR = Math.log(this.RADIX) / Math.log(2);
+        // the "base" in our baseXX implementation
+        private final int radix;
 
         // We need to floor so that the bits in a block never overflow (the remainder here is actually the "unused space" we'll try to squeeze bits in)
         // always make sure this value, plus the possible squeezed bits
         // can't overflow the available bits in the type of the buffer (eg. int = 32 bits, so this+squeezed must be <= 32)
-        private final int BITS_PER_BLOCK = (int) Math.floor(this.BITS_PER_CHAR * this.charsPerBlock());
+        private final int bitsPerBlock;
 
         // Maximum value in 23 bits
-        private final int MAX_BLOCK_VALUE = (int) (Math.pow(2, this.BITS_PER_BLOCK) - 1);
+        private final int maxBlockValue;
 
         // 62^4 = 14,776,336
-        private final int MAX_BLOCK_CAPACITY = (int) Math.pow(this.RADIX, this.charsPerBlock());
+        private final int maxBlockCapacity;
+
+        // digit value of every char, indexed by the char itself (-1 if it's not in the alphabet)
+        private final int[] digits;
+        // see ConfigBuilder.buildFinalBlockChars()
+        private final int[] finalBlockChars;
+        // see ConfigBuilder.buildFinalBlockLut()
+        private final int[] finalBlockLut;
+
+        private ImmutableConfig(String dict, int charsPerBlock, boolean enableBitSqueezing, boolean enableBitExactMode, int maxBlockCapacity)
+        {
+            this.dict = dict;
+            this.charsPerBlock = charsPerBlock;
+            this.enableBitSqueezing = enableBitSqueezing;
+            this.enableBitExactMode = enableBitExactMode;
+            this.radix = dict.length();
+            this.maxBlockCapacity = maxBlockCapacity;
+            // this is floor(log2(radix^charsPerBlock)), but without the rounding errors of Math.log() (eg. for base64)
+            this.bitsPerBlock = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(maxBlockCapacity);
+            this.maxBlockValue = (int) ((1L << this.bitsPerBlock) - 1);
+
+            int maxChar = 0;
+            for (int i = 0; i < dict.length(); i++) {
+                maxChar = Math.max(maxChar, dict.charAt(i));
+            }
+            Map<Character, Integer> dictRev = new HashMap<>();
+            this.digits = new int[maxChar + 1];
+            Arrays.fill(this.digits, -1);
+            for (int i = 0; i < dict.length(); i++) {
+                char c = dict.charAt(i);
+                if (this.digits[c] >= 0) {
+                    throw new IllegalArgumentException("The alphabet contains the char '" + c + "' more than once");
+                }
+                this.digits[c] = i;
+                dictRev.put(c, i);
+            }
+            this.dictRev = Collections.unmodifiableMap(dictRev);
+
+            this.finalBlockChars = ConfigBuilder.buildFinalBlockChars(this.radix, this.bitsPerBlock);
+            this.finalBlockLut = ConfigBuilder.buildFinalBlockLut(this.radix, charsPerBlock, this.bitsPerBlock);
+        }
 
         @Override
         public String dict()
         {
-            return DICT;
+            return this.dict;
         }
-        /**
-         * From block analysis:
-         * 23 bits: 2^23 = 8,388,608
-         * needs 4 chars (62^4 = 14,776,336)
-         * efficiency: 23/4 = 5.75 bits/char
-         * The pattern is: the best efficiency comes just before we need an additional character.
-         * These points are where:
-         * 2^n is just under 62^m
-         * For m=2: n=11 (2048 vs 3844)
-         * For m=3: n=17 (131,072 vs 238,328)
-         * For m=4: n=23 (8,388,608 vs 14,776,336)
-         * Best efficiency points:
-         * 29 bits → 5 chars = 5.8 bits/char  (916,132,832 values)
-         * 23 bits → 4 chars = 5.75 bits/char (14,776,336 values)
-         * 17 bits → 3 chars = 5.67 bits/char (238,328 values)
-         * 11 bits → 2 chars = 5.5 bits/char  (3,844 values)
-         * -> Let's use blocksize of 4 as a good tradeoff between size and efficiency
-         * Also, it still fits in a 4-byte java integer we use as buffer
-         */
         @Override
         public int charsPerBlock()
         {
-            return 4;
+            return this.charsPerBlock;
         }
         @Override
         public boolean enableBitSqueezing()
         {
-            return true;
+            return this.enableBitSqueezing;
+        }
+        @Override
+        public boolean enableBitExactMode()
+        {
+            return this.enableBitExactMode;
         }
         @Override
         public Map<Character, Integer> dictRev()
         {
-            return DICT_REV;
+            return this.dictRev;
         }
         @Override
         public int radix()
         {
-            return RADIX;
+            return this.radix;
         }
         @Override
         public int bitsPerBlock()
         {
-            return BITS_PER_BLOCK;
+            return this.bitsPerBlock;
         }
         @Override
         public int maxBlockValue()
         {
-            return MAX_BLOCK_VALUE;
+            return this.maxBlockValue;
         }
         @Override
         public int maxBlockCapacity()
         {
-            return MAX_BLOCK_CAPACITY;
+            return this.maxBlockCapacity;
         }
-    };
+        @Override
+        public int digit(char c)
+        {
+            return c < this.digits.length ? this.digits[c] : -1;
+        }
+        @Override
+        public int finalBlockChars(int numBits)
+        {
+            return this.finalBlockChars[numBits];
+        }
+        @Override
+        public int finalBlockBitLength(int byteModulo, int numChars)
+        {
+            return this.finalBlockLut[byteModulo * (this.charsPerBlock + 1) + numChars];
+        }
+    }
 
     // let's make it clear when we're calculating with bytes throughout the code
     public static final int BITS_PER_BYTE = 8;
 
+    // below this input length (in chars), we don't bother with the bulk decoder (see Decoder.fillBulkBuffer())
+    private static final int BULK_DECODE_MIN_CHARS = 1 << 12;
+    // the number of blocks we decode in one bulk run
+    private static final int BULK_DECODE_BLOCKS = 1 << 10;
+
+    // The bulk decoder is optional: it's only used when it's compiled in (see pom.xml) and the (incubating) vector module
+    // was added to the JVM (eg. with --add-modules jdk.incubator.vector), otherwise we just decode char by char.
+    // We look up its factory method only once (null if it's not there), see createBulkDecoder()
+    private static final MethodHandle BULK_DECODER_FACTORY = findBulkDecoderFactory();
+
+    /**
+     * Decodes many full blocks at once into their block values (what Decoder.readChar() calculates in blockVal).
+     * See VectorBlockDecoder
+     */
+    interface BulkDecoder
+    {
+        /**
+         * Decodes (at most) numBlocks full blocks from chars into blockVals and returns the number of decoded blocks.
+         * This can return less blocks than requested (eg. when an invalid char is encountered), in which case the caller
+         * should continue with the scalar code.
+         */
+        int decodeBlocks(char[] chars, int numBlocks, int[] blockVals);
+    }
+
     public static class Encoder implements BitWriter
     {
-        private final Consumer<String> consumer;
+        // the number of chars we collect before handing them to the sink
+        private static final int BATCH_SIZE = 1 << 12;
+
+        /**
+         * Where the encoded chars end up, in batches of at most BATCH_SIZE chars
+         */
+        private interface Sink
+        {
+            void write(char[] chars, int length) throws IOException;
+        }
+
+        private final Sink sink;
+        // if the sink is flushable itself, this will be flushed when the encoder is flushed
+        private final Flushable flushable;
         private final Config config;
         // sync this type with the bits check in write()
-        private int buffer;
+        // Note that this needs to be a long, because with bit squeezing, a block can hold more than 31 bits
+        private long buffer;
         private int bitsInBuffer;
         private int byteModulo;
+        // did we write anything since the last flush? (only used in bit exact mode)
+        private boolean dirty;
+
+        // the encoded chars that weren't handed to the sink yet
+        private final char[] batch;
+        private int batchLength;
+        // scratch space to encode a single block, see encode()
+        private final char[] block;
 
         public Encoder(Consumer<String> consumer, Config config)
         {
-            this.consumer = consumer;
+            this((chars, length) -> consumer.accept(new String(chars, 0, length)), null, config);
+        }
+        public Encoder(Writer writer, Config config)
+        {
+            this((chars, length) -> writer.write(chars, 0, length), writer, config);
+        }
+        /**
+         * Writes the encoded chars as (single byte) ASCII to the stream
+         */
+        public Encoder(OutputStream outputStream, Config config)
+        {
+            this(Encoder.asciiSink(outputStream::write, config), outputStream, config);
+        }
+        /**
+         * Writes the encoded chars as (single byte) ASCII to the (heap or direct) buffer.
+         * Note that this throws a BufferOverflowException when the buffer is full.
+         */
+        public Encoder(ByteBuffer byteBuffer, Config config)
+        {
+            this(Encoder.asciiSink(byteBuffer::put, config), null, config);
+        }
+        private Encoder(Sink sink, Flushable flushable, Config config)
+        {
+            this.sink = sink;
+            this.flushable = flushable;
             this.config = config;
             this.buffer = 0;
             this.bitsInBuffer = 0;
             this.byteModulo = 0;
+            this.dirty = false;
+            this.batch = new char[BATCH_SIZE];
+            this.batchLength = 0;
+            this.block = new char[config.charsPerBlock()];
         }
 
         @Override
@@ -191,6 +591,8 @@ public class BaseXStream
                 throw new IllegalArgumentException("Value is too large for the specified number of bits");
             }
 
+            this.dirty = true;
+
             // this is basically the same loop as in ByteStream,
             // except for the bit squeezing and result.append()
             while (numBits > 0) {
@@ -199,8 +601,9 @@ public class BaseXStream
                 int bitsToWrite = Math.min(numBits, bitsAvailable);
                 int remainingBits = numBits - bitsToWrite;
 
-                int mask = (1 << bitsToWrite) - 1;
-                int val = (value >>> remainingBits) & mask;
+                // note the L, bitsToWrite can be 32
+                long mask = (1L << bitsToWrite) - 1;
+                long val = (value >>> remainingBits) & mask;
 
                 this.buffer = (this.buffer << bitsToWrite) | val;
                 this.bitsInBuffer += bitsToWrite;
@@ -218,7 +621,7 @@ public class BaseXStream
                         while (remainingBits > 0) {
                             // what value do we get if we add one extra bit?
                             int extraBitVal = (value >>> (remainingBits - 1)) & 1;
-                            int tryBuffer = (this.buffer << 1) | extraBitVal;
+                            long tryBuffer = (this.buffer << 1) | extraBitVal;
                             // this means the try value is in the "unused" range (the range we can't reach with 2^23, but can with 62^4)
                             if (tryBuffer > this.config.maxBlockValue() && tryBuffer < this.config.maxBlockCapacity()) {
                                 this.buffer = tryBuffer;
@@ -233,7 +636,7 @@ public class BaseXStream
                         }
                     }
 
-                    this.consumer.accept(this.encode(this.buffer, false));
+                    this.encode(this.buffer, false);
 
                     this.buffer = 0;
                     this.bitsInBuffer = 0;
@@ -243,11 +646,39 @@ public class BaseXStream
             }
         }
         @Override
+        public void writeBytes(byte[] bytes, int off, int len)
+        {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+
+            // There's nothing to copy here (the bytes need to be converted to blocks anyway),
+            // but we can save 3 out of 4 calls to write() by writing the bytes 32 bits at a time
+            int i = off;
+            int end = off + len;
+            for (; i + 4 <= end; i += 4) {
+                this.write((bytes[i] & 0xFF) << 24 | (bytes[i + 1] & 0xFF) << 16 | (bytes[i + 2] & 0xFF) << 8 | (bytes[i + 3] & 0xFF), Integer.SIZE);
+            }
+            for (; i < end; i++) {
+                this.write(bytes[i] & 0xFF, BaseXStream.BITS_PER_BYTE);
+            }
+        }
+        @Override
         public void flush()
         {
+            // In bit exact mode, we always write a final block (even if it's empty) because the decoder needs to be able
+            // to tell it apart from a regular block. We prepend the remaining bits with a 1-bit marker,
+            // so the decoder can find the exact bit count by looking for the highest 1-bit.
+            // Note that this fits because we have less than BITS_PER_BLOCK remaining bits (see write()) and that this can never
+            // be confused with a squeezed block because the value is never larger than maxBlockValue().
+            // Also note that we only do this once if we're flushed multiple times without writing anything in between.
+            if (this.config.enableBitExactMode()) {
+                if (this.dirty) {
+                    long mask = (1L << this.bitsInBuffer) - 1;
+                    this.encode((1L << this.bitsInBuffer) | (this.buffer & mask), true);
+                }
+            }
             // Handle remaining bits
             // Note that this can't grow larger than BITS_PER_BLOCK, see write()
-            if (this.bitsInBuffer > 0) {
+            else if (this.bitsInBuffer > 0) {
                 // option 1: right-pad the last chunk with zeros if not a complete char
                 //this.buffer = this.buffer << (BITS_PER_BLOCK - this.bitsInBuffer);
                 //this.bitsInBuffer = BITS_PER_BLOCK;
@@ -263,13 +694,12 @@ public class BaseXStream
                 // note that we can check the modulo here, because all write() calls have been made
                 if (this.byteModulo == 0) {
                     // the buffer can still contain bits from a previous run, make sure to mask them out
-                    int mask = (1 << this.bitsInBuffer) - 1;
-                    int valueToEncode = this.buffer & mask;
+                    long mask = (1L << this.bitsInBuffer) - 1;
+                    long valueToEncode = this.buffer & mask;
 
                     // Note that we don't need to squeeze in more bits because there's no next block
 
-                    String lastCode = this.encode(valueToEncode, true);
-                    this.consumer.accept(lastCode);
+                    this.encode(valueToEncode, true);
                 }
                 else {
                     throw new IllegalStateException("We can't unambiguously decode this stream because it's not byte aligned");
@@ -278,280 +708,794 @@ public class BaseXStream
 
             this.buffer = 0;
             this.bitsInBuffer = 0;
+            this.byteModulo = 0;
+            this.dirty = false;
+
+            this.flushBatch();
+            if (this.flushable != null) {
+                try {
+                    this.flushable.flush();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
         }
 
-        private String encode(int valueToEncode, boolean finalBlock)
+        private void encode(long valueToEncode, boolean finalBlock)
         {
-            StringBuilder retVal = new StringBuilder();
+            // we fill the block from the right
+            int pos = this.block.length;
 
             // make sure to always write it out once, otherwise we can't encode zero
             do {
-                int remainder = valueToEncode % this.config.radix();
+                int remainder = (int) (valueToEncode % this.config.radix());
                 valueToEncode = Math.floorDiv(valueToEncode, this.config.radix());
-                retVal.insert(0, this.config.dict().charAt(remainder));
+                this.block[--pos] = this.config.dict().charAt(remainder);
             } while (valueToEncode != 0);
 
+            int numChars = this.block.length - pos;
+
             // left-pad with zero if we don't have a full block,
             // except for the final block
             if (!finalBlock) {
-                while (retVal.length() < this.config.charsPerBlock()) {
-                    retVal.insert(0, this.config.dict().charAt(0));
-                }
+                numChars = this.block.length;
             }
             // if we reach the final block and its value got compressed so much that we can't unambiguously tell the decoder
             // how many bits were left in the last block, we need to prepend with zeros until we can
             // Eg. bitsInBuffer = 13, buffer = 0000000000001, value = 1 will otherwise get encoded as "1"
             //     but the decoder can never know there were actually 13 bits encoded because it looks at the charLength of the block
             else {
-                // calculate the maximum number of bits we can encode with the number of chars in the last block
+                // the config knows the minimum number of chars we need to encode the bits in the last block
                 // (also see spreadsheet at https://docs.google.com/spreadsheets/d/1j1v2bHS79YVRj7kF7NR6UnMgjAxyD9-OhPnYV-1oFKs/edit?gid=0#gid=0)
-                // Note that the while loop statement is the combination of this (same code as in decoder):
-                //int maxValue = (int) (Math.pow(Base62Encoder.RADIX, retVal.length()) - 1);
-                //int maxBits = BaseXStream.log2ceil(maxValue);
-                while (BaseXStream.log2ceil((int) (Math.pow(this.config.radix(), retVal.length()) - 1)) < this.bitsInBuffer) {
-                    retVal.insert(0, this.config.dict().charAt(0));
+                // Note that this never grows beyond a full block because the final block holds less than bitsPerBlock bits
+                numChars = Math.max(numChars, this.config.finalBlockChars(this.bitsInBuffer));
+            }
+
+            for (int i = this.block.length - numChars; i < pos; i++) {
+                this.block[i] = this.config.dict().charAt(0);
+            }
+
+            if (this.batchLength + numChars > this.batch.length) {
+                this.flushBatch();
+            }
+            System.arraycopy(this.block, this.block.length - numChars, this.batch, this.batchLength, numChars);
+            this.batchLength += numChars;
+        }
+
+        private void flushBatch()
+        {
+            if (this.batchLength > 0) {
+                try {
+                    this.sink.write(this.batch, this.batchLength);
                 }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                this.batchLength = 0;
             }
+        }
 
-            return retVal.toString();
+        /**
+         * Converts the chars of the batches to single byte ASCII chars before handing them to the byte consumer
+         */
+        private static Sink asciiSink(ByteSink byteSink, Config config)
+        {
+            for (int i = 0; i < config.dict().length(); i++) {
+                if (config.dict().charAt(i) > 0x7F) {
+                    throw new IllegalArgumentException("Can't write the alphabet of this config as ASCII bytes; " + config.dict().charAt(i));
+                }
+            }
+
+            byte[] bytes = new byte[BATCH_SIZE];
+            return (chars, length) -> {
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = (byte) chars[i];
+                }
+                byteSink.write(bytes, 0, length);
+            };
+        }
+
+        private interface ByteSink
+        {
+            void write(byte[] bytes, int offset, int length) throws IOException;
         }
     }
 
     public static class Decoder implements BitReader
     {
         private final Config config;
-        private int buffer;
+        // the decoded bits of the blocks, right-aligned and read back from the most significant side
+        // Note that we only decode a new block when there are less than 32 bits available and a single block
+        // never holds more than 32 bits (including the squeezed ones), so a long accumulator can never overflow
+        private long buffer;
         private int bitsInBuffer;
         private int byteModulo;
-        private StringBuilder currentBlock;
-        private int blockVal;
-        private int blockPos;
-        private Map<Map.Entry<Integer, Integer>, Integer> finalBlockLut;
+        // the number of chars we've added to blockVal
+        private int blockChars;
+        // note that this needs to be a long, see Encoder.buffer
+        private long blockVal;
 
         // these are to make this stream bit-read compatible (instead of reading it char by char)
+        // Note that we only decode the chars between inputPos and inputEnd, so we can decode a part of a larger input without copying it
         private CharSequence input;
         private int inputPos;
-        private ByteStream readBuffer;
+        private int inputEnd;
+
+        // the optional bulk decoder (null if not available or not worth it) and its decoded, but unconsumed block values
+        private BulkDecoder bulkDecoder;
+        private char[] bulkChars;
+        private int[] bulkBlockVals;
+        private int bulkPos;
+        private int bulkLen;
 
         public Decoder(CharSequence input, Config config)
         {
+            this(input, 0, input.length(), config);
+        }
+        /**
+         * Decodes the chars between start (inclusive) and end (exclusive) of the input
+         */
+        public Decoder(CharSequence input, int start, int end, Config config)
+        {
+            this(input, start, end, config, true);
+        }
+        /**
+         * Decodes the (ASCII) bytes between offset and offset + length of the input, without converting them to a String first
+         */
+        public Decoder(byte[] input, int offset, int length, Config config)
+        {
+            this(new AsciiChars(ByteBuffer.wrap(input)), offset, offset + length, config);
+        }
+        /**
+         * Decodes the (ASCII) bytes between the position and the limit of the (heap or direct) buffer.
+         * Note that the position of the buffer is left untouched.
+         */
+        public Decoder(ByteBuffer input, Config config)
+        {
+            this(new AsciiChars(input), input.position(), input.limit(), config);
+        }
+        /**
+         * Package private so we can compare the bulk and scalar decoders (see BaseXStreamDecodeBenchmark)
+         */
+        Decoder(CharSequence input, Config config, boolean enableBulk)
+        {
+            this(input, 0, input.length(), config, enableBulk);
+        }
+        private Decoder(CharSequence input, int start, int end, Config config, boolean enableBulk)
+        {
+            Objects.checkFromToIndex(start, end, input.length());
+
             this.config = config;
             this.buffer = 0;
             this.bitsInBuffer = 0;
             this.byteModulo = 0;
-            this.currentBlock = new StringBuilder();
+            this.blockChars = 0;
             this.blockVal = 0;
-            this.blockPos = this.config.charsPerBlock() - 1;
-            this.finalBlockLut = buildFinalBlockLut();
 
-            this.inputPos = 0;
-            this.readBuffer = new ByteStream();
+            this.inputPos = start;
+            this.inputEnd = end;
             this.input = input;
+
+            if (enableBulk && end - start >= BULK_DECODE_MIN_CHARS) {
+                this.bulkDecoder = BaseXStream.createBulkDecoder(config);
+                if (this.bulkDecoder != null) {
+                    this.bulkChars = new char[BULK_DECODE_BLOCKS * config.charsPerBlock()];
+                    this.bulkBlockVals = new int[BULK_DECODE_BLOCKS];
+                }
+            }
+            this.bulkPos = 0;
+            this.bulkLen = 0;
         }
 
         @Override
         public int read(int numBits)
         {
-            return this.assertBits(numBits).read(numBits);
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+
+            this.assertBits(numBits);
+
+            if (this.bitsInBuffer < numBits) {
+                throw new IllegalStateException("Not enough bits left in the stream; requested " + numBits + ", available " + this.bitsInBuffer);
+            }
+
+            this.bitsInBuffer -= numBits;
+
+            // the bits above bitsInBuffer were already read, so make sure to mask them out
+            // (note the L, numBits can be 32)
+            return (int) ((this.buffer >>> this.bitsInBuffer) & ((1L << numBits) - 1));
+        }
+        @Override
+        public void readBytes(byte[] bytes, int off, int len)
+        {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+
+            // same as Encoder.writeBytes(): read 32 bits at a time, the accumulator has room for that (see buffer)
+            int i = off;
+            int end = off + len;
+            for (; i + 4 <= end; i += 4) {
+                int value = this.read(Integer.SIZE);
+                bytes[i] = (byte) (value >>> 24);
+                bytes[i + 1] = (byte) (value >>> 16);
+                bytes[i + 2] = (byte) (value >>> 8);
+                bytes[i + 3] = (byte) value;
+            }
+            for (; i < end; i++) {
+                bytes[i] = (byte) this.read(BaseXStream.BITS_PER_BYTE);
+            }
         }
         @Override
         public boolean hasNext(int numBits)
         {
-            // watch out: this is the inverse of the while loop check in assertBits(), but I guess it's not 100% correct
-            // because we don't know how many bits are left in the next base62 chars.
-            // Leaving it like this for now, because it's valid when used like this:
-            // while (decoder.hasNext(8)) {
-            //     outputStream.write((byte) decoder.read(8));
-            // }
-            return this.readBuffer.hasNext(numBits) || this.inputPos < this.input.length();
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+
+            // we can't know how many bits are left in the next base62 chars without decoding them:
+            // in bit exact mode, a payload that fills its blocks exactly is followed by a final block that only holds the end marker,
+            // so just checking for remaining chars would return true after the last real bit.
+            // So we decode (the same way read() does) until we have enough bits or run out of input, like the IncrementalDecoder.
+            this.assertBits(numBits);
+
+            return this.bitsInBuffer >= numBits;
+        }
+
+        private void assertBits(int numBits)
+        {
+            while (this.bitsInBuffer < numBits && this.inputPos < this.inputEnd) {
+                // if we're at a block boundary, try to use the bulk decoded blocks first
+                if (this.blockChars == 0 && this.bulkDecoder != null && (this.bulkPos < this.bulkLen || this.fillBulkBuffer())) {
+                    this.blockVal = this.bulkBlockVals[this.bulkPos++];
+                    this.inputPos += this.config.charsPerBlock();
+                    this.decodeBlock(this.config.bitsPerBlock());
+                    this.blockVal = 0;
+                }
+                else {
+                    boolean lastChar = this.inputPos == this.inputEnd - 1;
+                    this.readChar(this.input.charAt(this.inputPos++), lastChar);
+                }
+            }
         }
 
-        private ByteStream assertBits(int numBits)
+        private boolean fillBulkBuffer()
         {
-            while (!this.readBuffer.hasNext(numBits) && this.inputPos < this.input.length()) {
-                boolean lastChar = this.inputPos == this.input.length() - 1;
-                this.readChar(this.input.charAt(this.inputPos++), lastChar);
+            // never bulk decode the block with the last char in it, it needs the special last block treatment in readChar()
+            int numBlocks = Math.min((this.inputEnd - 1 - this.inputPos) / this.config.charsPerBlock(), this.bulkBlockVals.length);
+
+            int decoded = 0;
+            if (numBlocks > 0) {
+                BaseXStream.getChars(this.input, this.inputPos, this.inputPos + numBlocks * this.config.charsPerBlock(), this.bulkChars);
+                decoded = this.bulkDecoder.decodeBlocks(this.bulkChars, numBlocks, this.bulkBlockVals);
+            }
+
+            // if the bulk decoder can't help us anymore (end of input or an invalid char), let the scalar code take over for good
+            if (decoded == 0) {
+                this.bulkDecoder = null;
+                this.bulkChars = null;
+                this.bulkBlockVals = null;
             }
 
-            return this.readBuffer;
+            this.bulkPos = 0;
+            this.bulkLen = decoded;
+
+            return decoded > 0;
         }
 
         private void readChar(char c, boolean lastChar)
         {
-            Integer index = this.config.dictRev().get(c);
-            if (index == null) {
+            int index = this.config.digit(c);
+            if (index < 0) {
                 throw new IllegalArgumentException("Invalid base62 character: " + c);
             }
 
-            // decode the character and increment with the current block number value
-            this.blockVal = (int) (this.blockVal + (index * Math.pow(this.config.radix(), this.blockPos--)));
-            // keep track of the current non-complete block for the remainder tracking
-            this.currentBlock.append(c);
+            // decode the character and add it to the current block number value
+            // Note that this is the Horner form of summing index * radix^pos, so we don't need to know the length
+            // of the block up front and an incomplete last block is decoded correctly without recomputing it
+            this.blockVal = this.blockVal * this.config.radix() + index;
+            this.blockChars++;
 
-            // we have a full block decoded in blockVal
-            if (this.blockPos < 0) {
+            // we have a full block decoded in blockVal, or we reached the last (possibly incomplete) block
+            if (this.blockChars == this.config.charsPerBlock() || lastChar) {
 
                 // note that it's possible we encounter the last block here (if it's perfectly byte aligned)
-                int bitsInBlock = lastChar ? this.getLastBlockBitLength() : this.config.bitsPerBlock();
+                int bitsInBlock = lastChar ? Decoder.getLastBlockBitLength(this.config, this.byteModulo, this.blockChars, this.blockVal)
+                                            : this.config.bitsPerBlock();
                 this.decodeBlock(bitsInBlock);
 
-                this.currentBlock.setLength(0);
+                this.blockChars = 0;
                 this.blockVal = 0;
-                this.blockPos = this.config.charsPerBlock() - 1;
             }
 
-            // if this is the last char, handle the last block and close the stream
-            if (lastChar) {
-
-                if (this.currentBlock.length() > 0) {
-
-                    // Note: here, we know that this.bitsInBuffer < 8 (see decodeBlock())
-
-                    // recompute the final blockval without assuming it should be complete
-                    this.blockVal = 0;
-                    this.blockPos = this.currentBlock.length() - 1;
-                    for (int i = 0; i < currentBlock.length(); i++) {
-                        this.blockVal = (int) (this.blockVal + (this.config.dictRev().get(currentBlock.charAt(i)) * Math.pow(this.config.radix(), this.blockPos--)));
-                    }
-
-                    int lastBlockBits = this.getLastBlockBitLength();
-                    this.decodeBlock(lastBlockBits);
-                }
-
-                // note that this can be solved by building a bitstream instead of a bytestream,
-                // but in reality we won't need it much I think
-                if (this.bitsInBuffer > 0) {
-                    throw new IllegalStateException("Bitstream is not byte aligned, can't return byte buffer from this value");
-                }
-
-                this.buffer = 0;
-                this.bitsInBuffer = 0;
-                this.byteModulo = 0;
+            // note that this can be solved by building a bitstream instead of a bytestream,
+            // but in reality we won't need it much I think
+            if (lastChar && this.byteModulo != 0 && !this.config.enableBitExactMode()) {
+                throw new IllegalStateException("Bitstream is not byte aligned, can't return byte buffer from this value");
             }
         }
 
         private void decodeBlock(int numBits)
+        {
+            numBits = Decoder.getBlockBitLength(this.config, this.blockVal, numBits);
+
+            // append the block bits straight to the accumulator, read() will take them out again
+            long mask = (1L << numBits) - 1;
+            this.buffer = (this.buffer << numBits) | (this.blockVal & mask);
+            this.bitsInBuffer += numBits;
+            this.byteModulo = (this.byteModulo + numBits) % BaseXStream.BITS_PER_BYTE;
+        }
+
+        private static int getBlockBitLength(Config config, long blockVal, int numBits)
         {
             // Check if the encoder pushed extra bits into the unused space of this block
             // Note that this is detected transparently so it's only up to the encoder to activate/deactivate it
             int extraBits = 0;
             // we don't need to test < Base62Encoder.MAX_BLOCK_CAPACITY because it needs to fit into 1 block
-            while (this.blockVal >>> extraBits > this.config.maxBlockValue()) {
+            while (blockVal >>> extraBits > config.maxBlockValue()) {
                 numBits++;
                 extraBits++;
             }
 
-            int mask = (1 << numBits) - 1;
-            this.buffer = (this.buffer << numBits) | (this.blockVal & mask);
-            this.bitsInBuffer += numBits;
-            this.byteModulo = (this.byteModulo + numBits) % BaseXStream.BITS_PER_BYTE;
-
-            // write out the buffer byte per byte
-            while (this.bitsInBuffer >= BaseXStream.BITS_PER_BYTE) {
-                int bitsNotToDecode = this.bitsInBuffer - BaseXStream.BITS_PER_BYTE;
-                int valueToDecode = this.buffer >>> bitsNotToDecode;
-
-                this.readBuffer.write((byte) valueToDecode, BaseXStream.BITS_PER_BYTE);
-
-                int m = (1 << bitsNotToDecode) - 1;
-                this.buffer &= m;
-                this.bitsInBuffer = bitsNotToDecode;
-            }
+            return numBits;
         }
 
-        private int getLastBlockBitLength()
+        private static int getLastBlockBitLength(Config config, int byteModulo, int blockChars, long blockVal)
         {
             // this is an edge case: when the last block if full, and we have modulo zero,
             // we actually don't have a last (incomplete) block because the bits aligned perfectly
-            if (this.byteModulo == 0 && this.currentBlock.length() == this.config.charsPerBlock()) {
-                return this.config.bitsPerBlock();
+            // This generalizes to all full last blocks: if the bits of the (possibly squeezed) full block
+            // align perfectly, it's a regular block, not a flushed one.
+            // Note that a flushed block always holds less than bitsPerBlock bits, so it can never be squeezed
+            // and we can't confuse the two: for 5-char blocks, eg. 29 + 1 squeezed bits starting from modulo 2
+            // don't have a LUT entry at all.
+            // In bit exact mode, the last block is always a flushed one and the highest 1-bit marks the number of bits in it
+            // (note that returning this bit length will mask out the marker, see decodeBlock())
+            if (config.enableBitExactMode()) {
+                if (blockVal == 0) {
+                    throw new IllegalArgumentException("Invalid last block, the end marker is missing");
+                }
+                return Long.SIZE - 1 - Long.numberOfLeadingZeros(blockVal);
+            }
+            else if (blockChars == config.charsPerBlock() && (byteModulo + Decoder.getBlockBitLength(config, blockVal, config.bitsPerBlock())) % BaseXStream.BITS_PER_BYTE == 0) {
+                return config.bitsPerBlock();
             }
             else {
-                Map.Entry<Integer, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(this.byteModulo, this.currentBlock.length());
-                if (this.finalBlockLut.containsKey(entry)) {
-                    return this.finalBlockLut.get(entry);
+                // see ConfigBuilder.buildFinalBlockLut()
+                int bitLength = config.finalBlockBitLength(byteModulo, blockChars);
+                if (bitLength >= 0) {
+                    return bitLength;
                 }
                 else {
-                    throw new IllegalArgumentException("Invalid last block combination: startPos=" + this.byteModulo + ", numChars=" + this.currentBlock.length());
+                    throw new IllegalArgumentException("Invalid last block combination: startPos=" + byteModulo + ", numChars=" + blockChars);
                 }
             }
         }
+    }
+
+    /**
+     * Push-fed version of the Decoder for chunked input (eg. a body that's still arriving over a slow connection).
+     * The regular Decoder needs the complete input up front, because it needs to know which char is the last one
+     * to decode the last block. Here, the caller feeds the chunks as they arrive and explicitly signals the end of the input.
+     * <p>
+     * The blocks are decoded as soon as possible, except for the last complete block: we only know it's a regular
+     * block (and not the last one) when the next char arrives, so we keep (at most) that one pending.
+     * The decoded bits are readable as soon as they form complete bytes, hasNext() returns what's available right now.
+     */
+    public static class IncrementalDecoder implements BitReader
+    {
+        private final Config config;
+        // the decoded bits, ready to be read back
+        private final AccumulatorByteStream decoded;
+        // the modulo of all bits decoded so far, see Decoder
+        private int byteModulo;
+        // the (incomplete) block we're adding chars to
+        private int blockChars;
+        private long blockVal;
+        // the last complete block that was read, but not decoded yet
+        private boolean hasPendingBlock;
+        private long pendingBlockVal;
+        private boolean endOfInput;
+        // we need to count the bits because in bit exact mode, the last byte can hold padding bits we shouldn't read
+        private long bitsDecoded;
+        private long bitsRead;
+
+        public IncrementalDecoder(Config config)
+        {
+            this.config = config;
+            this.decoded = new AccumulatorByteStream();
+            this.byteModulo = 0;
+            this.blockChars = 0;
+            this.blockVal = 0;
+            this.hasPendingBlock = false;
+            this.pendingBlockVal = 0;
+            this.endOfInput = false;
+            this.bitsDecoded = 0;
+            this.bitsRead = 0;
+        }
 
         /**
-         * Let's start by analyzing the last block handling in the encoder:
-         * - when closing the stream, the encoder detects there are bits left that don't form a full block, so lastBlockBits < BITS_PER_BLOCK
-         * - the encoder encodes those final bits without left-padding to generate the shortest last block possible
-         * - the problem is that the decoder needs to know the number of bits used to encode that last block
-         *   For instance 1 char (62 values) could represent anything from 1 to 5 bits
-         *   e.g., "A" could be "1" (1 bit) or "00001" (5 bits)
-         *   The decoder only knows N is in range of the bits required for a single char [1-6 bits]
-         * - but we require that the entire stream is byte aligned, so totalBitLength % 8 == 0
-         * - but the next-to-last full 23-bit block might have ended in the middle of a byte:
-         *
-         * [23 bits][23 bits][23 bits][remaining bits + final bits...]
-         *                             ^
-         *                             |
-         *                             These bits are all part of our final block that must close the stream with modulo 8 == 0
-         *
-         * For any N bits < 23:
-         * If these N bits generate M base-62 chars when encoded,
-         * then N must have been large enough to require M chars.
-         * And N couldn't have been large enough to need M+1 chars
-         * (or encoder would have output M+1 chars).
-         *
-         * So when decoder sees the final block, it knows N must be in range:
-         *   - Large enough to need M chars
-         *   - Small enough to not need M+1 chars
-         *
-         * Code below generates a LUT for valid end states that translate (byteModulo, numChars) to a single bitLength.
-         * Note that because we use byteModulo, this transparently supports bit squeezing
-         *
-         * This was validated in a LUT for base62,
-         * see https://docs.google.com/spreadsheets/d/1j1v2bHS79YVRj7kF7NR6UnMgjAxyD9-OhPnYV-1oFKs/edit?gid=0#gid=0
+         * Adds the next chunk of encoded chars
          */
-        private Map<Map.Entry<Integer, Integer>, Integer> buildFinalBlockLut()
+        public void feed(CharSequence chunk)
         {
-            Map<Map.Entry<Integer, Integer>, Integer> retVal = new HashMap<>();
+            if (this.endOfInput) {
+                throw new IllegalStateException("Can't feed more input after the end of the input was signalled");
+            }
 
-            // For each possible number of base62 chars
-            for (int numChars = 1; numChars <= this.config.charsPerBlock(); numChars++) {
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                int index = this.config.digit(c);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Invalid base62 character: " + c);
+                }
 
-                int minValue = (int) (Math.pow(this.config.radix(), numChars - 1));
-                // the minimum number of bits needed to encode minValue (note min 1 since 62^0 == 1)
-                int minBits = Math.max(BaseXStream.log2ceil(minValue), 1);
+                // a new char arrived, so the pending block wasn't the last one
+                if (this.hasPendingBlock) {
+                    this.decodeBlock(this.pendingBlockVal, this.config.bitsPerBlock());
+                    this.hasPendingBlock = false;
+                }
 
-                int maxValue = (int) (Math.pow(this.config.radix(), numChars) - 1);
-                // note that we can never exceed BITS_PER_BLOCK, even when the maxValue allows it (eg. for 62^4, cap to 23, not 24)
-                int maxBits = Math.min(BaseXStream.log2ceil(maxValue), this.config.bitsPerBlock());
+                // see Decoder.readChar()
+                this.blockVal = this.blockVal * this.config.radix() + index;
+                this.blockChars++;
 
-                // For each starting modulo position (0-7) and actual number of chars seen (1-4)
-                // find the valid bit length that reaches byte alignment
-                for (int modulo = 0; modulo < BaseXStream.BITS_PER_BYTE; modulo++) {
-                    for (int bitLength = minBits; bitLength <= maxBits; bitLength++) {
-                        if ((modulo + bitLength) % BaseXStream.BITS_PER_BYTE == 0) {
-                            Map.Entry<Integer, Integer> startState = new AbstractMap.SimpleImmutableEntry<>(modulo, numChars);
-                            if (!retVal.containsKey(startState)) {
-                                retVal.put(startState, bitLength);
-                            }
-                            else {
-                                throw new IllegalStateException("This configuration of block size + charset cannot guarantee a unique final block bit length!!!");
-                            }
-                        }
+                if (this.blockChars == this.config.charsPerBlock()) {
+                    this.pendingBlockVal = this.blockVal;
+                    this.hasPendingBlock = true;
+                    this.blockChars = 0;
+                    this.blockVal = 0;
+                }
+            }
+        }
+
+        /**
+         * Signals there's no more input, so we can decode the last block
+         */
+        public void endOfInput()
+        {
+            if (!this.endOfInput) {
+                this.endOfInput = true;
+
+                // if there's an incomplete block, that's the last one and the pending block is a regular one
+                if (this.blockChars > 0) {
+                    if (this.hasPendingBlock) {
+                        this.decodeBlock(this.pendingBlockVal, this.config.bitsPerBlock());
+                        this.hasPendingBlock = false;
                     }
+                    this.decodeBlock(this.blockVal, Decoder.getLastBlockBitLength(this.config, this.byteModulo, this.blockChars, this.blockVal));
+                }
+                else if (this.hasPendingBlock) {
+                    this.decodeBlock(this.pendingBlockVal, Decoder.getLastBlockBitLength(this.config, this.byteModulo, this.config.charsPerBlock(), this.pendingBlockVal));
+                    this.hasPendingBlock = false;
+                }
+
+                if (this.config.enableBitExactMode()) {
+                    // pad the last byte so the remaining bits can be read back (see hasNext())
+                    if (this.byteModulo != 0) {
+                        this.decoded.write(0, BaseXStream.BITS_PER_BYTE - this.byteModulo);
+                    }
+                }
+                else if (this.byteModulo != 0) {
+                    throw new IllegalStateException("Bitstream is not byte aligned, can't return byte buffer from this value");
                 }
             }
+        }
+
+        @Override
+        public int read(int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+            if (!this.hasNext(numBits)) {
+                throw new IllegalStateException("Not enough bits decoded (yet); requested " + numBits + (this.endOfInput ? " after the end of the input" : ", feed more input first"));
+            }
+
+            this.bitsRead += numBits;
+
+            return this.decoded.read(numBits);
+        }
+        @Override
+        public boolean hasNext(int numBits)
+        {
+            // note that, unlike the Decoder, this only looks at the bits that are available right now
+            return this.bitsRead + numBits <= this.bitsDecoded && this.decoded.hasNext(numBits);
+        }
+
+        private void decodeBlock(long blockVal, int numBits)
+        {
+            numBits = Decoder.getBlockBitLength(this.config, blockVal, numBits);
+
+            // note that the last block can be empty in bit exact mode
+            if (numBits > 0) {
+                this.decoded.write((int) (blockVal & ((1L << numBits) - 1)), numBits);
+                this.byteModulo = (this.byteModulo + numBits) % BaseXStream.BITS_PER_BYTE;
+                this.bitsDecoded += numBits;
+            }
+        }
+    }
+
+    /**
+     * Decodes a complete (byte aligned) stream into a byte array, using multiple cores for large inputs.
+     * <p>
+     * Because of bit squeezing, the number of bits in a block depends on its value, so we can't know where
+     * block N starts in the bitstream without decoding all blocks before it. That's why this works in two passes over
+     * chunks of blocks:
+     * - first pass: decode the blocks of every chunk (in parallel) to count the number of bits in that chunk
+     * - prefix-sum the chunk bit counts to know the bit offset of every chunk (and the modulo of the last block)
+     * - second pass: decode the blocks again (in parallel) and write their bits into the output array
+     * Note that we don't keep the block values between both passes, decoding them again is cheap and this way,
+     * we only need a couple of ints per chunk instead of a long per block.
+     * <p>
+     * Two chunks can share a byte in the output array, so to avoid races, a chunk never writes its first byte directly
+     * when it doesn't start on a byte boundary, we merge those afterwards.
+     */
+    public static class ParallelDecoder
+    {
+        // the number of blocks in a chunk (the unit of work for a single thread)
+        private static final int BLOCKS_PER_CHUNK = 1 << 13;
+
+        private final Config config;
+        private final ForkJoinPool pool;
+
+        public ParallelDecoder(Config config)
+        {
+            this(config, ForkJoinPool.commonPool());
+        }
+        public ParallelDecoder(Config config, ForkJoinPool pool)
+        {
+            this.config = config;
+            this.pool = pool;
+        }
+
+        public byte[] decode(CharSequence input)
+        {
+            int charsPerBlock = this.config.charsPerBlock();
+            int numBlocks = (input.length() + charsPerBlock - 1) / charsPerBlock;
+            if (numBlocks == 0) {
+                return new byte[0];
+            }
+            int numChunks = (numBlocks + BLOCKS_PER_CHUNK - 1) / BLOCKS_PER_CHUNK;
+
+            // first pass: count the bits of all chunks, except for the very last block (we need to know its modulo first)
+            long[] chunkOffsets = new long[numChunks + 1];
+            this.forEachChunk(numChunks, chunk -> {
+                long bits = 0;
+                int end = Math.min((chunk + 1) * BLOCKS_PER_CHUNK, numBlocks - 1);
+                for (int block = chunk * BLOCKS_PER_CHUNK; block < end; block++) {
+                    bits += Decoder.getBlockBitLength(this.config, this.decodeBlock(input, block), this.config.bitsPerBlock());
+                }
+                chunkOffsets[chunk + 1] = bits;
+            });
+
+            // there aren't many chunks, so no need to do the prefix sum in parallel
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                chunkOffsets[chunk + 1] += chunkOffsets[chunk];
+            }
+
+            // all blocks before the last one are summed in chunkOffsets[numChunks] now, so we can calculate the length of the last block
+            int lastBlock = numBlocks - 1;
+            int lastBlockChars = input.length() - lastBlock * charsPerBlock;
+            int lastBlockModulo = (int) (chunkOffsets[numChunks] % BaseXStream.BITS_PER_BYTE);
+            long lastBlockVal = this.decodeBlock(input, lastBlock);
+            int lastBlockBits = Decoder.getBlockBitLength(this.config, lastBlockVal,
+                                                          Decoder.getLastBlockBitLength(this.config, lastBlockModulo, lastBlockChars, lastBlockVal));
+
+            long totalBits = chunkOffsets[numChunks] + lastBlockBits;
+            if (totalBits % BaseXStream.BITS_PER_BYTE != 0) {
+                throw new IllegalStateException("Bitstream is not byte aligned, can't return byte buffer from this value");
+            }
+            if (totalBits / BaseXStream.BITS_PER_BYTE > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Input is too large to decode into a single byte array");
+            }
+
+            // second pass: write out the bits of every chunk, starting at its offset
+            byte[] retVal = new byte[(int) (totalBits / BaseXStream.BITS_PER_BYTE)];
+            byte[] firstBytes = new byte[numChunks];
+            this.forEachChunk(numChunks, chunk -> {
+                long startBit = chunkOffsets[chunk];
+                int firstByte = (int) (startBit / BaseXStream.BITS_PER_BYTE);
+                // we start with the bits of the previous chunk (zeros here), see below
+                int bitsInBuffer = (int) (startBit % BaseXStream.BITS_PER_BYTE);
+                // note that this never holds more than 7 + 32 bits, so a long is enough
+                long buffer = 0;
+                int bytePos = firstByte;
+
+                int end = Math.min((chunk + 1) * BLOCKS_PER_CHUNK, numBlocks);
+                for (int block = chunk * BLOCKS_PER_CHUNK; block < end; block++) {
+                    long blockVal = block == lastBlock ? lastBlockVal : this.decodeBlock(input, block);
+                    int numBits = block == lastBlock ? lastBlockBits : Decoder.getBlockBitLength(this.config, blockVal, this.config.bitsPerBlock());
+
+                    buffer = (buffer << numBits) | (blockVal & ((1L << numBits) - 1));
+                    bitsInBuffer += numBits;
+                    while (bitsInBuffer >= BaseXStream.BITS_PER_BYTE) {
+                        bitsInBuffer -= BaseXStream.BITS_PER_BYTE;
+                        this.writeByte(retVal, firstBytes, chunk, startBit, bytePos++, (byte) (buffer >>> bitsInBuffer));
+                    }
+                }
+
+                // left-align the remaining bits in their byte, the next chunk fills up the rest
+                if (bitsInBuffer > 0) {
+                    this.writeByte(retVal, firstBytes, chunk, startBit, bytePos, (byte) (buffer << (BaseXStream.BITS_PER_BYTE - bitsInBuffer)));
+                }
+            });
+
+            // merge the first bytes of the chunks that share a byte with their previous chunk
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                retVal[(int) (chunkOffsets[chunk] / BaseXStream.BITS_PER_BYTE)] |= firstBytes[chunk];
+            }
 
             return retVal;
         }
+
+        private long decodeBlock(CharSequence input, int block)
+        {
+            // same Horner form as in Decoder.readChar()
+            long retVal = 0;
+            int end = Math.min((block + 1) * this.config.charsPerBlock(), input.length());
+            for (int i = block * this.config.charsPerBlock(); i < end; i++) {
+                char c = input.charAt(i);
+                int digit = this.config.digit(c);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Invalid base62 character: " + c);
+                }
+                retVal = retVal * this.config.radix() + digit;
+            }
+
+            return retVal;
+        }
+
+        private void writeByte(byte[] output, byte[] firstBytes, int chunk, long startBit, int bytePos, byte value)
+        {
+            // the first byte of a chunk that doesn't start on a byte boundary is shared with the previous chunk
+            if (bytePos == startBit / BaseXStream.BITS_PER_BYTE && startBit % BaseXStream.BITS_PER_BYTE != 0) {
+                firstBytes[chunk] = value;
+            }
+            else {
+                output[bytePos] = value;
+            }
+        }
+
+        private void forEachChunk(int numChunks, IntConsumer action)
+        {
+            this.pool.invoke(new ChunkAction(0, numChunks, action));
+        }
+
+        private static class ChunkAction extends RecursiveAction
+        {
+            private static final long serialVersionUID = 1L;
+
+            private final int from;
+            private final int to;
+            private final IntConsumer action;
+
+            private ChunkAction(int from, int to, IntConsumer action)
+            {
+                this.from = from;
+                this.to = to;
+                this.action = action;
+            }
+
+            @Override
+            protected void compute()
+            {
+                if (this.to - this.from == 1) {
+                    this.action.accept(this.from);
+                }
+                else {
+                    int mid = (this.from + this.to) >>> 1;
+                    RecursiveAction.invokeAll(new ChunkAction(this.from, mid, this.action), new ChunkAction(mid, this.to, this.action));
+                }
+            }
+        }
+    }
+
+    static BulkDecoder createBulkDecoder(Config config)
+    {
+        BulkDecoder retVal = null;
+
+        if (BULK_DECODER_FACTORY != null) {
+            try {
+                retVal = (BulkDecoder) BULK_DECODER_FACTORY.invokeExact(config);
+            }
+            catch (LinkageError e) {
+                // something's off with the vector module, just fall back to the scalar code
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable e) {
+                throw new IllegalStateException("Error while creating the bulk decoder", e);
+            }
+        }
+
+        return retVal;
+    }
+    /**
+     * Returns the VectorBlockDecoder.create(Config) method (as a (Config)BulkDecoder handle) or null if it can't be used
+     */
+    private static MethodHandle findBulkDecoderFactory()
+    {
+        MethodHandle retVal = null;
+
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            // VectorBlockDecoder is only compiled in with the vector profile (see pom.xml), so we can't reference it directly
+            try {
+                Class<?> clazz = Class.forName(BaseXStream.class.getPackageName() + ".VectorBlockDecoder", false, BaseXStream.class.getClassLoader());
+                retVal = MethodHandles.lookup().findStatic(clazz, "create", MethodType.methodType(clazz, Config.class))
+                                      .asType(MethodType.methodType(BulkDecoder.class, Config.class));
+            }
+            catch (ReflectiveOperationException | LinkageError e) {
+                // not compiled in or something's off with the vector module, just fall back to the scalar code
+            }
+        }
+
+        return retVal;
+    }
+
+    private static void getChars(CharSequence input, int start, int end, char[] dst)
+    {
+        if (input instanceof String) {
+            ((String) input).getChars(start, end, dst, 0);
+        }
+        else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(start, end, dst, 0);
+        }
+        else {
+            for (int i = start; i < end; i++) {
+                dst[i - start] = input.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Zero-copy view on (ASCII) bytes as chars, so we can decode byte input without converting it to a String first.
+     * Note that we use the absolute indexes of the buffer, so the position of the buffer doesn't matter (or change).
+     */
+    private static class AsciiChars implements CharSequence
+    {
+        private final ByteBuffer bytes;
+
+        private AsciiChars(ByteBuffer bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length()
+        {
+            return this.bytes.limit();
+        }
+        @Override
+        public char charAt(int index)
+        {
+            // note that a non-ASCII byte just ends up as a char that's not in the alphabet
+            return (char) (this.bytes.get(index) & 0xFF);
+        }
+        @Override
+        public CharSequence subSequence(int start, int end)
+        {
+            return this.toString().substring(start, end);
+        }
+        @Override
+        public String toString()
+        {
+            StringBuilder retVal = new StringBuilder(this.length());
+            for (int i = 0; i < this.length(); i++) {
+                retVal.append(this.charAt(i));
+            }
+            return retVal.toString();
+        }
     }
 
     /**
      * See Guava's IntMath.log2() with rounding mode CEILING
      * or https://graphics.stanford.edu/%7Eseander/bithacks.html#IntegerLogObvious
      */
-    private static int log2ceil(int x)
+    private static int log2ceil(long x)
     {
-        return Integer.SIZE - Integer.numberOfLeadingZeros(x - 1);
+        return Long.SIZE - Long.numberOfLeadingZeros(x - 1);
     }
 
 }
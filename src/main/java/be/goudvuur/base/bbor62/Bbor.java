@@ -11,6 +11,9 @@ import be.goudvuur.base.bbor62.ifaces.BitWriter;
 import be.goudvuur.base.bbor62.ifaces.CborGenerator;
 import be.goudvuur.base.bbor62.ifaces.Compressor;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.*;
 
 /**
@@ -19,6 +22,9 @@ import java.util.*;
  * - string compression
  * - implemented better number encoding
  * - added field caching
+ * - optional references to repeated string values (see Config.maxValueRefs())
+ * - optional shapes for objects with the same fields (see Config.maxShapes())
+ * - optional columnar encoding of arrays of objects with the same fields (see Config.enableColumns())
  * <p>
  * All changed are non-standardized breaking changes (except for the improved number handling)
  * because:
@@ -59,6 +65,52 @@ public class Bbor
          * the reverse of staticFields(), indexed by field index
          */
         Map<Object, Object> staticFieldsRev();
+
+        /**
+         * the maximum number of string values we remember (see ValueDict), so exact repeats can be replaced by a reference
+         * (tag 6, unassigned by IANA) to the earlier value, 0 disables it.
+         * Note that the javascript decoder doesn't know about these references (yet), so it's off by default.
+         */
+        default int maxValueRefs()
+        {
+            return 0;
+        }
+
+        /**
+         * the maximum number of object shapes (ordered field names, see ShapeDict) we define, 0 disables them.
+         * The first object with a new set of fields defines its shape (tag 7), later objects with the same fields
+         * only write the shape index followed by their values (tag 8) and objects with a subset of the fields of the last
+         * shape we used write the index and a bitmap of the fields that are present (tag 9).
+         * Note that only the objects of which we know the fields upfront can use shapes (see Encoder.writeStartObject(BitWriter, List))
+         * and the javascript decoder doesn't know about them (yet), so they're off by default.
+         */
+        default int maxShapes()
+        {
+            return 0;
+        }
+
+        /**
+         * toggle the columnar encoding of arrays of (at least MIN_COLUMN_ROWS) objects with the same fields and only
+         * simple values (tag 10): instead of row by row, the values are written field by field, so every column holds values
+         * of the same kind (good for the LZW dictionary and for delta encoding the numbers).
+         * Note that only Encoder.write() can do this (the values of all rows need to be known upfront) and the javascript
+         * decoder doesn't know about columns (yet), so it's off by default.
+         * Also note that Decoder.read() returns a columnar array as a read-only list that assembles its rows on first access.
+         */
+        default boolean enableColumns()
+        {
+            return false;
+        }
+
+        /**
+         * toggle writing the integers outside of the javascript safe range (+/- 2^53 - 1, see Number.MAX_SAFE_INTEGER) as bignums
+         * instead of plain integers, so the javascript decoder gets them back without losing precision.
+         * Standard cbor decoders expect plain integers for the full 64-bit range, so it's disabled in RFC8949_CONFIG.
+         */
+        default boolean enableJsSafeIntegers()
+        {
+            return true;
+        }
     }
 
     public static final Config DEFAULT_CONFIG = new Config()
@@ -118,9 +170,87 @@ public class Bbor
         }
     };
 
+    /**
+     * Disables all the bbor additions (key mapping and string compression), so the Encoder writes and the Decoder reads
+     * plain RFC 8949 cbor (well, the subset we support, see CborTranscoder).
+     */
+    public static final Config RFC8949_CONFIG = new Config()
+    {
+        @Override
+        public boolean enableKeyMapping()
+        {
+            return false;
+        }
+        @Override
+        public boolean enableStringCompression()
+        {
+            return false;
+        }
+        @Override
+        public Map<Object, Object> staticFields()
+        {
+            return Collections.emptyMap();
+        }
+        @Override
+        public Map<Object, Object> staticFieldsRev()
+        {
+            return Collections.emptyMap();
+        }
+        @Override
+        public boolean enableJsSafeIntegers()
+        {
+            return false;
+        }
+    };
+
+    /**
+     * Pass this as the size to Encoder.writeStartArray()/writeStartObject() if it's not known upfront:
+     * the container gets a cbor indefinite length header and is closed with a break code by writeEndArray()/writeEndObject().
+     * The decoder also uses it as the size of the Decoder.Ctx of such a container.
+     */
+    public static final long INDEFINITE_LENGTH = -1;
+
+    /**
+     * The tag of a reference to an earlier string value (see Config.maxValueRefs()), followed by its index.
+     * Tags 6-15 are unassigned by IANA, so we take the first one.
+     */
+    public static final int VALUE_REF_TAG = 6;
+    /**
+     * The tag of a map that defines a new object shape (see Config.maxShapes())
+     */
+    public static final int SHAPE_DEFINITION_TAG = 7;
+    /**
+     * The tag of an object with a known shape, followed by the shape index and the values of all its fields
+     */
+    public static final int SHAPE_TAG = 8;
+    /**
+     * The tag of an object with some of the fields of a known shape, followed by the shape index,
+     * a bitmap of the fields that are present (bit i is field i) and their values
+     */
+    public static final int SPARSE_SHAPE_TAG = 9;
+    // the bitmap of a sparse shape needs to fit in a positive long
+    private static final int MAX_SPARSE_SHAPE_SIZE = 63;
+    /**
+     * The tag of an array of objects that's written column by column (see Config.enableColumns()), followed by
+     * an array with the number of rows and a map of every field to its column
+     */
+    public static final int COLUMNS_TAG = 10;
+    /**
+     * Shorter arrays are written row by row: the header of every column costs more than the fields we save
+     */
+    public static final int MIN_COLUMN_ROWS = 4;
+    // the codecs of a column (the first item of its array, the second one is the payload):
+    // an array of all values (written as usual)
+    private static final int COLUMN_VALUES = 0;
+    // an array of integers: the first value, followed by the difference with the previous one for all others
+    private static final int COLUMN_DELTAS = 1;
+    // a byte string with one bit per boolean (lsb first)
+    private static final int COLUMN_BOOLEANS = 2;
+
     private static final double POW_2_24 = Math.pow(2, 24);
     private static final long POW_2_16 = (long) Math.pow(2, 16);
-    private static final long POW_2_32 = (long) Math.pow(2, 32);
+    private static final double POW_2_63 = Math.pow(2, 63);
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
     // Number.MAX_SAFE_INTEGER in JavaScript
     private static final long JS_MAX_SAFE_INTEGER = (long) (Math.pow(2, 53) - 1);
 
@@ -129,11 +259,27 @@ public class Bbor
         private final Config config;
         // structure to compress the fields to long values
         private final FlexDict fields;
+        // structure to replace repeated string values with their index (null if disabled)
+        private final ValueDict values;
+        // structure to replace the fields of objects with their shape index (null if disabled)
+        private final ShapeDict shapes;
+        // the shaped objects we're in (innermost first) and the index of the shape we used last
+        private OpenShape shape;
+        private int lastShape;
+        // the containers we're in that need a break code at the end (indexed by depth)
+        private final BitSet indefinite;
+        private int depth;
 
         public Encoder(Config config)
         {
             this.config = config;
             this.fields = new FlexDict(this.config.staticFields());
+            this.values = this.config.maxValueRefs() > 0 ? new ValueDict(this.config.maxValueRefs()) : null;
+            this.shapes = this.config.maxShapes() > 0 ? new ShapeDict(this.config.maxShapes()) : null;
+            this.shape = null;
+            this.lastShape = -1;
+            this.indefinite = new BitSet();
+            this.depth = 0;
         }
 
         @Override
@@ -163,6 +309,9 @@ public class Bbor
 
             if (value instanceof List) {
                 List<?> array = (List<?>) value;
+                if (this.config.enableColumns() && this.writeColumns(outputStream, compressor, array)) {
+                    return this;
+                }
                 this.writeStartArray(outputStream, array.size());
                 for (Object item : array) {
                     write(outputStream, compressor, item);
@@ -173,7 +322,16 @@ public class Bbor
 
             if (value instanceof Map) {
                 Map<?, ?> map = (Map<?, ?>) value;
-                this.writeStartObject(outputStream, map.size());
+                if (this.shapes != null) {
+                    List<String> keys = new ArrayList<>(map.size());
+                    for (Object key : map.keySet()) {
+                        keys.add((String) key);
+                    }
+                    this.writeStartObject(outputStream, keys);
+                }
+                else {
+                    this.writeStartObject(outputStream, map.size());
+                }
                 for (Map.Entry<?, ?> entry : map.entrySet()) {
                     this.writeFieldName(outputStream, compressor, (String) entry.getKey());
                     this.write(outputStream, compressor, entry.getValue());
@@ -199,69 +357,151 @@ public class Bbor
         @Override
         public CborGenerator writeNumber(BitWriter outputStream, Number value)
         {
-            double doubleValue = value.doubleValue();
-
-            // future improvement: also support BigInteger
-            if (Math.floor(doubleValue) == doubleValue && Math.abs(doubleValue) <= Long.MAX_VALUE) {
-
-                long longValue = value.longValue();
-
-                if (longValue >= 0) {
-                    if (longValue <= JS_MAX_SAFE_INTEGER) {
-                        // 0: Unsigned integer
-                        writeTypeAndLength(outputStream, 0, longValue);
-                        return this;
-                    }
-                    // long larger than JS_MAX_SAFE_INTEGER
-                    else {
-                        // major type 6 (tag), Tag 2 (positive bignum) = 0xc2
-                        writeUint8(outputStream, 0xc2);
-                        byte[] bytes = this.toPositiveBigNum(longValue);
-                        // write out the long as a normal byte string
-                        writeTypeAndLength(outputStream, 2, bytes.length);
-                        for (byte b : bytes) {
-                            this.writeUint8(outputStream, b);
-                        }
-                        return this;
-                    }
+            // dispatch to the primitive versions below (note that unboxing the common types doesn't allocate anything)
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return this.writeInt(outputStream, value.intValue());
+            }
+            else if (value instanceof Long) {
+                return this.writeLong(outputStream, value.longValue());
+            }
+            else if (value instanceof Float) {
+                return this.writeFloat(outputStream, value.floatValue());
+            }
+            else if (value instanceof BigInteger) {
+                return this.writeBigInteger(outputStream, (BigInteger) value);
+            }
+            else if (value instanceof BigDecimal) {
+                return this.writeBigDecimal(outputStream, (BigDecimal) value);
+            }
+            else {
+                // Note that for integers (eg. an AtomicLong), the long value is exact, the double might not be
+                double doubleValue = value.doubleValue();
+                if (this.isInteger(doubleValue)) {
+                    return this.writeLong(outputStream, value.longValue());
+                }
+                else {
+                    return this.writeDouble(outputStream, doubleValue);
+                }
+            }
+        }
+        @Override
+        public CborGenerator writeInt(BitWriter outputStream, int value)
+        {
+            // every int fits in a JS safe integer, so we can skip all the checks of writeLong()
+            if (value >= 0) {
+                // 0: Unsigned integer
+                writeTypeAndLength(outputStream, 0, value);
+            }
+            else {
+                // 1: Negative integer (-1 minus the encoded unsigned number, see writeLong())
+                writeTypeAndLength(outputStream, 1, -1L - value);
+            }
+            return this;
+        }
+        @Override
+        public CborGenerator writeLong(BitWriter outputStream, long longValue)
+        {
+            if (longValue >= 0) {
+                if (longValue <= JS_MAX_SAFE_INTEGER || !this.config.enableJsSafeIntegers()) {
+                    // 0: Unsigned integer
+                    writeTypeAndLength(outputStream, 0, longValue);
+                    return this;
                 }
+                // long larger than JS_MAX_SAFE_INTEGER
                 else {
-                    if (-JS_MAX_SAFE_INTEGER <= longValue) {
-                        // 1: Negative integer
-                        // Note that negative int uses its additional information byte in a similar way to type unsigned int,
-                        // but the values are interpreted as -1 minus the encoded unsigned number:
-                        writeTypeAndLength(outputStream, 1, -1L - longValue);
-                        return this;
+                    // major type 6 (tag), Tag 2 (positive bignum) = 0xc2
+                    writeUint8(outputStream, 0xc2);
+                    byte[] bytes = this.toPositiveBigNum(longValue);
+                    // write out the long as a normal byte string
+                    writeTypeAndLength(outputStream, 2, bytes.length);
+                    for (byte b : bytes) {
+                        this.writeUint8(outputStream, b);
                     }
-                    // long larger than JS_MAX_SAFE_INTEGER
-                    else {
-                        // major type 6 (tag), Tag 3 (negative bignum) = 0xc3
-                        writeUint8(outputStream, 0xc3);
-                        // For negative bignums, we need to encode -1-n
-                        // Example: -257 becomes tag(3) + bytes([0x01, 0x00])
-                        byte[] bytes = this.toPositiveBigNum(-1L - longValue);
-                        // write out the long as a normal byte string
-                        writeTypeAndLength(outputStream, 2, bytes.length);
-                        for (byte b : bytes) {
-                            this.writeUint8(outputStream, b);
-                        }
-                        return this;
+                    return this;
+                }
+            }
+            else {
+                if (-JS_MAX_SAFE_INTEGER <= longValue || !this.config.enableJsSafeIntegers()) {
+                    // 1: Negative integer
+                    // Note that negative int uses its additional information byte in a similar way to type unsigned int,
+                    // but the values are interpreted as -1 minus the encoded unsigned number:
+                    writeTypeAndLength(outputStream, 1, -1L - longValue);
+                    return this;
+                }
+                // long larger than JS_MAX_SAFE_INTEGER
+                else {
+                    // major type 6 (tag), Tag 3 (negative bignum) = 0xc3
+                    writeUint8(outputStream, 0xc3);
+                    // For negative bignums, we need to encode -1-n
+                    // Example: -257 becomes tag(3) + bytes([0x01, 0x00])
+                    byte[] bytes = this.toPositiveBigNum(-1L - longValue);
+                    // write out the long as a normal byte string
+                    writeTypeAndLength(outputStream, 2, bytes.length);
+                    for (byte b : bytes) {
+                        this.writeUint8(outputStream, b);
                     }
+                    return this;
                 }
             }
+        }
+        @Override
+        public CborGenerator writeBigInteger(BitWriter outputStream, BigInteger value)
+        {
+            // if it fits in a long, let writeLong() take care of it (it only uses a bignum when it needs to)
+            // Note that the bit length doesn't include the sign bit
+            if (value.bitLength() < Long.SIZE) {
+                return this.writeLong(outputStream, value.longValue());
+            }
+            // without the javascript limits, the plain integers go up to 64 bits (unsigned), so up to 2^64 - 1 and down to -2^64
+            // Note that the negative ones encode -1-n, which is the same as not(n), see below
+            else if (!this.config.enableJsSafeIntegers() && (value.signum() >= 0 ? value : value.not()).bitLength() <= Long.SIZE) {
+                // the long value holds the lower 64 bits, so it's the unsigned value, see writeTypeAndLength()
+                writeTypeAndLength(outputStream, value.signum() >= 0 ? 0 : 1, (value.signum() >= 0 ? value : value.not()).longValue());
+                return this;
+            }
+            else {
+                // major type 6 (tag), Tag 2 (positive bignum) = 0xc2 or Tag 3 (negative bignum) = 0xc3
+                // For negative bignums, we need to encode -1-n, which is the same as not(n)
+                boolean positive = value.signum() >= 0;
+                writeUint8(outputStream, positive ? 0xc2 : 0xc3);
+                byte[] bytes = (positive ? value : value.not()).toByteArray();
+                // toByteArray() adds a sign bit, which can result in an extra leading zero byte we don't need
+                int offset = bytes[0] == 0 ? 1 : 0;
+                // write out the magnitude as a normal byte string
+                writeTypeAndLength(outputStream, 2, bytes.length - offset);
+                outputStream.writeBytes(bytes, offset, bytes.length - offset);
+                return this;
+            }
+        }
+        @Override
+        public CborGenerator writeBigDecimal(BitWriter outputStream, BigDecimal value)
+        {
+            // major type 6 (tag), Tag 4 (decimal fraction) = 0xc4, followed by an array of two integers:
+            // the base-10 exponent and the mantissa, so the value is mantissa * 10^exponent (eg. 1234.56 is [-2, 123456])
+            // Note that we keep the scale as it is (eg. 1.50 doesn't become 1.5), so the decoder gets back an equal BigDecimal
+            writeUint8(outputStream, 0xc4);
+            writeTypeAndLength(outputStream, 4, 2);
+            this.writeLong(outputStream, -(long) value.scale());
+            this.writeBigInteger(outputStream, value.unscaledValue());
+            return this;
+        }
+        @Override
+        public CborGenerator writeDouble(BitWriter outputStream, double doubleValue)
+        {
+            if (this.isInteger(doubleValue)) {
+                return this.writeLong(outputStream, (long) doubleValue);
+            }
 
             // Decimals are encoded with major type 7, with three possible formats:
-            // Half precision (16-bit IEEE 754) - additional info 25 (0xf9) <-- ignored, doesn't exist in Java (there's a ref implementation in the decoder)
+            // Half precision (16-bit IEEE 754) - additional info 25 (0xf9)
             // Single precision (32-bit IEEE 754) - additional info 26 (0xfa)
             // Double precision (64-bit IEEE 754) - additional info 27 (0xfb)
-            // future improvement: also support BigDecimal
-            float floatValue = value.floatValue();
-            // For normal values (we're ignoring NaN, Inf, +0, -0), check if the relative difference is within float's precision
-            // Float has ~6-7 decimal digits of precision, so we use 1e-7 as threshold
-            // Note that the significance of a difference depends on the scale of the numbers involved, hence the division
-            if (Math.abs((doubleValue - floatValue) / doubleValue) < 1e-7) {
-                writeUint8(outputStream, 0xfa);
-                writeFloat32(outputStream, floatValue);
+            // We pick the shortest one that holds the value exactly (so eg. 0.5 or 1.25 only take 3 bytes),
+            // the decoder always gets back the exact same value.
+            float floatValue = (float) doubleValue;
+            // note that NaN never equals itself, but it fits in every format (we don't keep NaN payloads)
+            if (floatValue == doubleValue || Double.isNaN(doubleValue)) {
+                this.writeFloat16Or32(outputStream, floatValue);
             }
             else {
                 writeUint8(outputStream, 0xfb);
@@ -271,91 +511,362 @@ public class Bbor
             return this;
         }
         @Override
-        public CborGenerator writeString(BitWriter outputStream, Compressor compressor, String value)
+        public CborGenerator writeFloat(BitWriter outputStream, float floatValue)
         {
-            if (this.config.enableStringCompression() && compressor != null && !value.isEmpty()) {
+            if (this.isInteger(floatValue)) {
+                return this.writeLong(outputStream, (long) floatValue);
+            }
 
-                // to be able to encode the length first, we can't write to this.encoder directly
-                // we must encode to a temp bytestream (cbor counts in bytes, so let's byte-align the LZW encoder and write to a ByteStream)
-                ByteStream byteStream = new ByteStream();
-                //lzw.encode(str, this.encoder);
-                // note that the LZW encoder is configured to be byte aligned (and will call byteStream.flush() to check it)
-                compressor.compress(value, byteStream);
-                // this will check if the stream is byte aligned
-                byteStream.flush();
-                // let's write a string out as a string type, not byte[], so we know we need to return a string, not byte[]
-                writeTypeAndLength(outputStream, 3, byteStream.length());
-                // read the stream back and copy to the encoder stream
-                while (byteStream.hasNext(8)) {
-                    this.writeUint8(outputStream, byteStream.read(8));
+            // a float always fits in a float, so we only need to check for a half, see writeDouble()
+            this.writeFloat16Or32(outputStream, floatValue);
+
+            return this;
+        }
+        @Override
+        public CborGenerator writeString(BitWriter outputStream, Compressor compressor, String value)
+        {
+            if (this.values != null) {
+                int index = this.values.indexOf(value);
+                if (index >= 0) {
+                    // we've written this exact string before, so just refer to it
+                    // (note that we skip the compressor, so it doesn't learn anything from this value; same for the decoder)
+                    writeTypeAndLength(outputStream, 6, VALUE_REF_TAG);
+                    writeTypeAndLength(outputStream, 0, index);
+                    return this;
                 }
-                return this;
-            }
-            else {
-                byte[] utf8Data = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-                writeTypeAndLength(outputStream, 3, utf8Data.length);
-                for (byte b : utf8Data) {
-                    this.writeUint8(outputStream, b);
+                else {
+                    this.values.add(value);
                 }
-                return this;
             }
+
+            return this.writeText(outputStream, compressor, value);
         }
         @Override
         public CborGenerator writeBytes(BitWriter outputStream, byte[] value)
         {
             writeTypeAndLength(outputStream, 2, value.length);
-            for (byte b : value) {
-                this.writeUint8(outputStream, b);
-            }
+            outputStream.writeBytes(value, 0, value.length);
             return this;
         }
         @Override
         public CborGenerator writeFieldName(BitWriter outputStream, Compressor compressor, String value)
         {
+            // the fields of a shaped object must follow its shape and they're not written at all if it's a known shape
+            if (this.shape != null && this.shape.depth == this.depth) {
+                String expected = this.shape.nextField();
+                if (!value.equals(expected)) {
+                    throw new IllegalStateException("Field doesn't match the shape of the object; expected " + expected + " but got " + value);
+                }
+                if (!this.shape.defining) {
+                    return this;
+                }
+            }
+
+            // note that field names never become value references (see writeString()), they have their own dictionary
             if (this.config.enableKeyMapping()) {
                 if (!this.fields.hasKey(value)) {
-                    this.writeString(outputStream, compressor, value);
+                    this.writeText(outputStream, compressor, value);
                     this.fields.add(value, this.fields.size());
                 }
                 else {
                     // since we encode fields using the map size, this needs to be an int
-                    this.writeNumber(outputStream, (int) this.fields.get(value));
+                    this.writeInt(outputStream, (int) this.fields.get(value));
                 }
             }
             else {
-                this.writeString(outputStream, compressor, value);
+                this.writeText(outputStream, compressor, value);
             }
 
             return this;
         }
+        private CborGenerator writeText(BitWriter outputStream, Compressor compressor, String value)
+        {
+            if (this.config.enableStringCompression() && compressor != null && !value.isEmpty()) {
+
+                // to be able to encode the length first, we can't write to this.encoder directly
+                // we must encode to a temp bytestream (cbor counts in bytes, so let's byte-align the LZW encoder and write to a ByteStream)
+                AccumulatorByteStream byteStream = new AccumulatorByteStream();
+                //lzw.encode(str, this.encoder);
+                // note that the LZW encoder is configured to be byte aligned (and will call byteStream.flush() to check it)
+                compressor.compress(value, byteStream);
+                // Note that in bit exact mode (see LZW.Config.bitExactMode()), the compressed string doesn't end on a full byte,
+                // but the decompressor knows where it ends, so we only copy the exact bits and let the next value start right after it.
+                // Cbor still counts in bytes, so the length is rounded up (the decompressor relies on this to detect the end).
+                long bitLength = byteStream.bitLength();
+                int lastBits = (int) (bitLength % 8);
+                if (lastBits > 0) {
+                    // pad the temp stream so we can read back the last bits (note that we don't copy the padding)
+                    byteStream.write(0, 8 - lastBits);
+                }
+                // this will check if the stream is byte aligned
+                byteStream.flush();
+                // let's write a string out as a string type, not byte[], so we know we need to return a string, not byte[]
+                writeTypeAndLength(outputStream, 3, byteStream.length());
+                // read the stream back and copy to the encoder stream
+                byte[] bytes = new byte[(int) (bitLength / 8)];
+                byteStream.readBytes(bytes, 0, bytes.length);
+                outputStream.writeBytes(bytes, 0, bytes.length);
+                if (lastBits > 0) {
+                    outputStream.write(byteStream.read(lastBits), lastBits);
+                }
+                return this;
+            }
+            else {
+                byte[] utf8Data = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                writeTypeAndLength(outputStream, 3, utf8Data.length);
+                outputStream.writeBytes(utf8Data, 0, utf8Data.length);
+                return this;
+            }
+        }
         @Override
         public CborGenerator writeStartArray(BitWriter outputStream, long size)
         {
-            writeTypeAndLength(outputStream, 4, size);
+            this.writeStartContainer(outputStream, 4, size);
             return this;
         }
         @Override
         public CborGenerator writeEndArray(BitWriter outputStream)
         {
-            // NOOP
+            this.writeEndContainer(outputStream);
             return this;
         }
         @Override
         public CborGenerator writeStartObject(BitWriter outputStream, long size)
         {
-            writeTypeAndLength(outputStream, 5, size);
+            this.writeStartContainer(outputStream, 5, size);
+            return this;
+        }
+        @Override
+        public CborGenerator writeStartObject(BitWriter outputStream, List<String> keys)
+        {
+            if (this.shapes == null || keys.size() < ShapeDict.MIN_SIZE) {
+                return this.writeStartObject(outputStream, keys.size());
+            }
+
+            int index = this.shapes.indexOf(keys);
+            if (index >= 0) {
+                writeTypeAndLength(outputStream, 6, SHAPE_TAG);
+                writeTypeAndLength(outputStream, 0, index);
+                this.startShape(this.shapes.get(index), -1L, false);
+                this.lastShape = index;
+            }
+            else {
+                // objects that leave out some fields (eg. nulls) usually have a subset of the fields of the previous one
+                List<?> last = this.shapes.get(this.lastShape);
+                long presence = last == null ? -1L : this.presenceOf(keys, last);
+                if (presence >= 0) {
+                    writeTypeAndLength(outputStream, 6, SPARSE_SHAPE_TAG);
+                    writeTypeAndLength(outputStream, 0, this.lastShape);
+                    writeTypeAndLength(outputStream, 0, presence);
+                    this.startShape(last, presence, false);
+                }
+                else if (!this.shapes.isFull()) {
+                    // this is a regular map with all its fields; its shape is added when it ends (see writeEndObject())
+                    writeTypeAndLength(outputStream, 6, SHAPE_DEFINITION_TAG);
+                    writeTypeAndLength(outputStream, 5, keys.size());
+                    this.startShape(List.copyOf(keys), -1L, true);
+                }
+                else {
+                    this.writeStartObject(outputStream, keys.size());
+                }
+            }
+
             return this;
         }
         @Override
         public CborGenerator writeEndObject(BitWriter outputStream)
         {
-            // NOOP
+            if (this.shape != null && this.shape.depth == this.depth) {
+                if (this.shape.nextField() != null) {
+                    throw new IllegalStateException("Object ended before all fields of its shape were written; " + this.shape.fields);
+                }
+                // note that the decoder also adds the shape when the object ends, so nested shapes get the same index on both sides
+                if (this.shape.defining) {
+                    this.shapes.add(this.shape.fields);
+                    int index = this.shapes.indexOf(this.shape.fields);
+                    if (index >= 0) {
+                        this.lastShape = index;
+                    }
+                }
+                this.shape = this.shape.prev;
+            }
+            this.writeEndContainer(outputStream);
             return this;
         }
+        /**
+         * Writes the array column by column (see Config.enableColumns()) if all its items are maps with the same fields
+         * and simple values, otherwise this does nothing and returns false
+         */
+        private boolean writeColumns(BitWriter outputStream, Compressor compressor, List<?> rows)
+        {
+            if (rows.size() < MIN_COLUMN_ROWS || !(rows.get(0) instanceof Map<?, ?> first) || first.isEmpty()) {
+                return false;
+            }
+            List<Object> keys = new ArrayList<>(first.keySet());
+            for (Object row : rows) {
+                if (!(row instanceof Map<?, ?> map) || map.size() != keys.size()) {
+                    return false;
+                }
+                // the fields need to be in the same order, that's what the decoder will return
+                int i = 0;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    Object v = entry.getValue();
+                    if (!keys.get(i++).equals(entry.getKey())
+                        || !(v == null || v instanceof Boolean || v instanceof Number || v instanceof String)) {
+                        return false;
+                    }
+                }
+            }
+
+            writeTypeAndLength(outputStream, 6, COLUMNS_TAG);
+            this.writeStartArray(outputStream, 2);
+            this.writeLong(outputStream, rows.size());
+            this.writeStartObject(outputStream, keys.size());
+            Object[] column = new Object[rows.size()];
+            for (Object key : keys) {
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = ((Map<?, ?>) rows.get(i)).get(key);
+                }
+                this.writeFieldName(outputStream, compressor, (String) key);
+                this.writeColumn(outputStream, compressor, column);
+            }
+            this.writeEndObject(outputStream);
+            this.writeEndArray(outputStream);
+
+            return true;
+        }
+
+        private void writeColumn(BitWriter outputStream, Compressor compressor, Object[] column)
+        {
+            boolean booleans = true;
+            boolean integers = true;
+            for (Object v : column) {
+                booleans &= v instanceof Boolean;
+                integers &= v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte;
+            }
+
+            this.writeStartArray(outputStream, 2);
+            if (booleans) {
+                this.writeInt(outputStream, COLUMN_BOOLEANS);
+                byte[] bits = new byte[(column.length + 7) / 8];
+                for (int i = 0; i < column.length; i++) {
+                    if ((Boolean) column[i]) {
+                        bits[i / 8] |= (byte) (1 << (i % 8));
+                    }
+                }
+                this.writeBytes(outputStream, bits);
+            }
+            else if (integers && this.deltasFit(column)) {
+                // think ids, counters, timestamps, ...: the differences are usually a lot smaller than the values themselves
+                this.writeInt(outputStream, COLUMN_DELTAS);
+                this.writeStartArray(outputStream, column.length);
+                long prev = 0;
+                for (Object v : column) {
+                    long l = ((Number) v).longValue();
+                    this.writeLong(outputStream, l - prev);
+                    prev = l;
+                }
+                this.writeEndArray(outputStream);
+            }
+            else {
+                this.writeInt(outputStream, COLUMN_VALUES);
+                this.writeStartArray(outputStream, column.length);
+                for (Object v : column) {
+                    this.write(outputStream, compressor, v);
+                }
+                this.writeEndArray(outputStream);
+            }
+            this.writeEndArray(outputStream);
+        }
+
+        private boolean deltasFit(Object[] column)
+        {
+            long prev = 0;
+            for (Object v : column) {
+                long l = ((Number) v).longValue();
+                // the difference of two very big longs can overflow
+                if (((l - prev) ^ l) < 0 && (l ^ prev) < 0) {
+                    return false;
+                }
+                prev = l;
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if objects started with writeStartObject(BitWriter, List) can be written as shapes (see Config.maxShapes())
+         */
+        public boolean enableShapes()
+        {
+            return this.shapes != null;
+        }
+
+        private void startShape(List<?> fields, long presence, boolean defining)
+        {
+            // shaped objects always have a definite length (we know the fields), so no break code at the end
+            this.depth++;
+            this.indefinite.clear(this.depth);
+            this.shape = new OpenShape(this.shape, this.depth, fields, presence, defining);
+        }
+
+        /**
+         * Returns the bitmap of the fields of the shape that are present in the keys or -1 if the keys aren't
+         * an ordered subset of the fields of the shape
+         */
+        private long presenceOf(List<String> keys, List<?> fields)
+        {
+            if (keys.size() >= fields.size() || fields.size() > MAX_SPARSE_SHAPE_SIZE) {
+                return -1L;
+            }
+
+            long retVal = 0;
+            int k = 0;
+            for (int i = 0; i < fields.size() && k < keys.size(); i++) {
+                if (fields.get(i).equals(keys.get(k))) {
+                    retVal |= 1L << i;
+                    k++;
+                }
+            }
+
+            return k == keys.size() ? retVal : -1L;
+        }
+
+        private void writeStartContainer(BitWriter outputStream, int type, long size)
+        {
+            this.depth++;
+            if (size == INDEFINITE_LENGTH) {
+                // 31: indefinite length, the items follow until we write a break code (see writeEndContainer())
+                writeUint8(outputStream, (type << 5) | 31);
+                this.indefinite.set(this.depth);
+            }
+            else if (size >= 0) {
+                writeTypeAndLength(outputStream, type, size);
+                this.indefinite.clear(this.depth);
+            }
+            else {
+                throw new IllegalArgumentException("Invalid container size; " + size);
+            }
+        }
+
+        private void writeEndContainer(BitWriter outputStream)
+        {
+            // definite length containers end by themselves (the decoder counts the items)
+            if (this.indefinite.get(this.depth)) {
+                // major type 7, additional info 31: break
+                writeUint8(outputStream, 0xff);
+            }
+            this.depth--;
+        }
 
         private void writeTypeAndLength(BitWriter outputStream, int type, long length)
         {
-            if (length < 24) {
+            // note that a negative length is an unsigned 64-bit value (see writeBigInteger()), so it always takes 8 bytes
+            if (length < 0) {
+                // 27: Value is in next 8 bytes (uint64_t)
+                writeUint8(outputStream, (type << 5) | 27);
+                writeUint64(outputStream, length);
+            }
+            else if (length < 24) {
                 // 0-23: Value is directly encoded in this byte (0-23)
                 writeUint8(outputStream, (type << 5) | (int) length);
             }
@@ -400,10 +911,8 @@ public class Bbor
 
         private void writeUint64(BitWriter outputStream, long value)
         {
-            int low = (int) (value % POW_2_32);
-            int high = (int) ((value - low) / POW_2_32);
-            outputStream.write(high, 32);
-            outputStream.write(low, 32);
+            // note that this writes the high 32 bits first, followed by the low 32 bits
+            outputStream.writeLong(value, 64);
         }
 
         private void writeFloat32(BitWriter outputStream, float value)
@@ -418,6 +927,77 @@ public class Bbor
             this.writeUint64(outputStream, Double.doubleToLongBits(value));
         }
 
+        private void writeFloat16Or32(BitWriter outputStream, float value)
+        {
+            int halfBits = this.toFloat16(value);
+            if (halfBits >= 0) {
+                writeUint8(outputStream, 0xf9);
+                writeUint16(outputStream, halfBits);
+            }
+            else {
+                writeUint8(outputStream, 0xfa);
+                writeFloat32(outputStream, value);
+            }
+        }
+
+        /**
+         * Returns true if the value is an integer that fits in a long (and can be encoded as one without losing anything)
+         */
+        private boolean isInteger(double value)
+        {
+            // Note that -0.0 passes the floor test, but it's not an integer (we would lose the sign)
+            // and 2^63 is the first double that doesn't fit in a long anymore (Long.MAX_VALUE rounds up to it)
+            return Math.floor(value) == value && Math.abs(value) < POW_2_63
+                   && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS;
+        }
+
+        /**
+         * Returns the IEEE 754 half-precision bits of the value or -1 if it doesn't fit exactly (see Decoder.fromFloat16())
+         */
+        private int toFloat16(float value)
+        {
+            // note that floatToIntBits() collapses all NaNs into the canonical one (0x7fc00000), which fits in a half
+            int bits = Float.floatToIntBits(value);
+            int sign = (bits >>> 16) & 0x8000;
+            int exponent = (bits >>> 23) & 0xff;
+            int fraction = bits & 0x7fffff;
+
+            int retVal = -1;
+            if (exponent == 0xff) {
+                // infinity or NaN: max out the half exponent as well
+                if ((fraction & 0x1fff) == 0) {
+                    retVal = sign | 0x7c00 | fraction >>> 13;
+                }
+            }
+            else if (exponent == 0) {
+                // zero (note that float subnormals are way too small for a half)
+                if (fraction == 0) {
+                    retVal = sign;
+                }
+            }
+            else {
+                // re-bias the exponent from 127 to 15
+                int halfExponent = exponent - 127 + 15;
+                if (halfExponent >= 1 && halfExponent <= 30) {
+                    // normal number: the fraction needs to fit in 10 bits instead of 23
+                    if ((fraction & 0x1fff) == 0) {
+                        retVal = sign | halfExponent << 10 | fraction >>> 13;
+                    }
+                }
+                else if (halfExponent >= -9 && halfExponent <= 0) {
+                    // subnormal number: fraction * 2^-24, so we need to shift in the implicit leading 1 of the float
+                    // and the bits we shift out need to be zero
+                    int shift = 14 - halfExponent;
+                    int significand = fraction | 0x800000;
+                    if ((significand & ((1 << shift) - 1)) == 0) {
+                        retVal = sign | significand >>> shift;
+                    }
+                }
+            }
+
+            return retVal;
+        }
+
         private byte[] toPositiveBigNum(long value)
         {
             // Count leading zero bytes from MSB (reverses bytes)
@@ -441,6 +1021,48 @@ public class Bbor
         }
     }
 
+    /**
+     * An object we're writing that uses a shape, see Encoder.writeStartObject(BitWriter, List)
+     */
+    private static final class OpenShape
+    {
+        private final OpenShape prev;
+        // the depth of the object, so we know which fields are its own
+        private final int depth;
+        private final List<?> fields;
+        // the bitmap of the fields that are present (-1 for all of them)
+        private final long presence;
+        // true if this object defines the shape (and writes its fields), false if it refers to it
+        private final boolean defining;
+        // the index of the next field
+        private int pos;
+
+        private OpenShape(OpenShape prev, int depth, List<?> fields, long presence, boolean defining)
+        {
+            this.prev = prev;
+            this.depth = depth;
+            this.fields = fields;
+            this.presence = presence;
+            this.defining = defining;
+            this.pos = 0;
+        }
+
+        /**
+         * Returns the next field that's present (and skips it) or null if we wrote them all
+         */
+        private String nextField()
+        {
+            while (this.pos < this.fields.size()) {
+                int i = this.pos++;
+                if (this.presence == -1L || (this.presence & (1L << i)) != 0) {
+                    return (String) this.fields.get(i);
+                }
+            }
+
+            return null;
+        }
+    }
+
     public static class Decoder
     {
         /**
@@ -485,6 +1107,7 @@ public class Bbor
             TEXT_STRING,
             POSITIVE_BIGNUM,
             NEGATIVE_BIGNUM,
+            DECIMAL_FRACTION,
             BOOLEAN,
             NULL,
             UNDEFINED,
@@ -506,6 +1129,13 @@ public class Bbor
             long pos;
             // for objects only, the current field
             public Object field;
+            // for shaped objects only, the fields (see Config.maxShapes()) and whether we're reading them (definition)
+            // or we know them already (the fields are not in the stream)
+            List<Object> shape;
+            boolean defining;
+            // for the rows of a columnar array (and the row objects in it), the decoded columns, see Columns
+            Columns columns;
+            int row;
 
             public Ctx(Ctx prev, Token token, long size)
             {
@@ -520,6 +1150,10 @@ public class Bbor
         private final Config config;
         // structure to decompress the long values back to fields
         private final FlexDict fields;
+        // structure to resolve the references to repeated string values (null if disabled)
+        private final ValueDict values;
+        // structure to resolve the fields of shaped objects (null if disabled)
+        private final ShapeDict shapes;
 
         public Ctx ctx;
         public Primitive primitive;
@@ -531,6 +1165,8 @@ public class Bbor
         {
             this.config = config;
             this.fields = new FlexDict(this.config.staticFieldsRev());
+            this.values = this.config.maxValueRefs() > 0 ? new ValueDict(this.config.maxValueRefs()) : null;
+            this.shapes = this.config.maxShapes() > 0 ? new ShapeDict(this.config.maxShapes()) : null;
 
             this.ctx = null;
             this.primitive = null;
@@ -557,6 +1193,17 @@ public class Bbor
                     return obj;
 
                 case START_ARRAY:
+                    // byte strings are returned as arrays, but without a context (see readNext())
+                    if (this.primitive == Primitive.BYTE_STRING) {
+                        return this.value;
+                    }
+                    // the rows of a columnar array are decoded already, so skip the tokens and assemble the rows when they're needed
+                    if (this.ctx.columns != null) {
+                        List<Map<Object, Object>> rows = this.ctx.columns.rows();
+                        this.ctx = this.ctx.prev;
+                        this.end = this.ctx == null;
+                        return rows;
+                    }
                     List<Object> arr = new ArrayList<>();
                     Object el;
                     while ((el = this.read(base62Decoder, compressor)) != END) {
@@ -581,6 +1228,7 @@ public class Bbor
                     if (t.equals(Token.START_OBJECT) || t.equals(Token.START_ARRAY)) {
                         this.ctx.pos++;
                         if (this.ctx.pos == this.ctx.size) {
+                            this.endShape(this.ctx);
                             // pop the context stack
                             this.ctx = this.ctx.prev;
                             // if we move from a context to no context, we reached the end and the next call
@@ -598,10 +1246,32 @@ public class Bbor
                 }
             }
 
+            // the rows of a columnar array are not in the stream anymore, we decoded them already (see readColumns())
+            if (this.ctx != null && this.ctx.columns != null) {
+                return this.readRow();
+            }
+
+            // the fields of an object with a known shape are not in the stream, we have them already
+            if (this.ctx != null && this.ctx.shape != null && !this.ctx.defining && this.ctx.pos % 2 == 0) {
+                this.primitive = null;
+                this.value = this.ctx.shape.get((int) (this.ctx.pos / 2));
+                this.ctx.field = this.value;
+                return Token.FIELD_NAME;
+            }
+
             int initialByte = this.readUint8(inputStream);
+
+            // major type 7, additional info 31: the break code that closes an indefinite length container
+            if (initialByte == 0xff) {
+                return this.readBreak();
+            }
+
             int majorType = initialByte >>> 5;
             int additionalInfo = initialByte & 0x1f;
-            long length = this.readLength(inputStream, additionalInfo);
+            // 31 means indefinite length for major types 2-5 (readLength() will throw for the others)
+            // Note that the strings are read in chunks and concatenated right away, see readChunks()
+            long length = additionalInfo == 31 && majorType >= 2 && majorType <= 5 ? INDEFINITE_LENGTH
+                                                                                    : this.readLength(inputStream, additionalInfo);
 
             Token retVal;
 
@@ -612,21 +1282,39 @@ public class Bbor
             switch (majorType) {
                 // 0: Unsigned integer
                 case 0:
-                    this.value = length;
-                    this.primitive = Primitive.POSITIVE_INTEGER;
+                    // a 64-bit value can overflow a long (see readLength()), we return those as a bignum, see readInteger()
+                    if (length >= 0) {
+                        this.value = length;
+                        this.primitive = Primitive.POSITIVE_INTEGER;
+                    }
+                    else {
+                        this.value = new BigInteger(Long.toUnsignedString(length));
+                        this.primitive = Primitive.POSITIVE_BIGNUM;
+                    }
                     retVal = Token.VALUE_NUMBER_INT;
                     break;
                 // 1: Negative integer
                 case 1:
-                    this.value = -1L - length;
-                    this.primitive = Primitive.NEGATIVE_INTEGER;
+                    // same as above
+                    if (length >= 0) {
+                        this.value = -1L - length;
+                        this.primitive = Primitive.NEGATIVE_INTEGER;
+                    }
+                    else {
+                        this.value = new BigInteger(Long.toUnsignedString(length)).not();
+                        this.primitive = Primitive.NEGATIVE_BIGNUM;
+                    }
                     retVal = Token.VALUE_NUMBER_INT;
                     break;
                 // 2: Byte string
                 case 2:
-                    byte[] bytes = new byte[(int) length];
-                    for (int i = 0; i < bytes.length; i++) {
-                        bytes[i] = (byte) inputStream.read(8);
+                    byte[] bytes;
+                    if (length == INDEFINITE_LENGTH) {
+                        bytes = this.readChunks(inputStream, majorType);
+                    }
+                    else {
+                        bytes = new byte[(int) length];
+                        inputStream.readBytes(bytes, 0, bytes.length);
                     }
                     this.value = bytes;
                     this.primitive = Primitive.BYTE_STRING;
@@ -635,9 +1323,14 @@ public class Bbor
                     break;
                 // 3: Text string (UTF-8)
                 case 3:
-                    this.value = this.readString(inputStream, compressor, length);
+                    this.value = length == INDEFINITE_LENGTH ? new String(this.readChunks(inputStream, majorType), java.nio.charset.StandardCharsets.UTF_8)
+                                                             : this.readString(inputStream, compressor, length);
                     this.primitive = Primitive.TEXT_STRING;
                     retVal = Token.VALUE_STRING;
+                    // mirror the encoder: remember all string values, but not the field names (see the special case below)
+                    if (this.values != null && !(this.ctx != null && this.ctx.token.equals(Token.START_OBJECT) && this.ctx.pos % 2 == 0)) {
+                        this.values.add((String) this.value);
+                    }
                     break;
                 // 4: Array of data items
                 case 4:
@@ -647,30 +1340,89 @@ public class Bbor
                 // 5: Map of pairs of data items
                 case 5:
                     // note that we count the tokens, so x2 to include the fields
-                    this.ctx = new Ctx(this.ctx, Token.START_OBJECT, length * 2);
+                    this.ctx = new Ctx(this.ctx, Token.START_OBJECT, length == INDEFINITE_LENGTH ? INDEFINITE_LENGTH : length * 2);
                     retVal = Token.START_OBJECT;
                     break;
                 // 6: Tagged data items
                 case 6:
-                    // Tag 2: Positive bignum
-                    // Tag 3: Negative bignum
+                    // Note that we read the tagged items straight from the stream (instead of recursing into readNext()),
+                    // so they don't touch the context (eg. the array of a decimal fraction)
                     switch (additionalInfo) {
+                        // Tag 2: Positive bignum
+                        // Tag 3: Negative bignum
                         case 2:
                         case 3:
                             boolean positive = additionalInfo == 2;
-                            // this must be enabled to skip the context position increment because
-                            // we're about to recurse and not fully done reading the current value yet
-                            this.readingValue = true;
-                            if (this.readNext(inputStream, compressor).equals(Token.START_ARRAY)) {
-                                this.value = positive ? this.fromPositiveBigNum((byte[]) this.value)
-                                                      : -1 - this.fromPositiveBigNum((byte[]) this.value);
-                                this.primitive = positive ? Primitive.POSITIVE_BIGNUM : Primitive.NEGATIVE_BIGNUM;
-                                this.readingValue = false;
-                                retVal = Token.VALUE_NUMBER_INT;
+                            this.value = this.readBigNum(inputStream, positive);
+                            this.primitive = positive ? Primitive.POSITIVE_BIGNUM : Primitive.NEGATIVE_BIGNUM;
+                            retVal = Token.VALUE_NUMBER_INT;
+                            break;
+                        // Tag 4: Decimal fraction
+                        case 4:
+                            this.value = this.readDecimalFraction(inputStream);
+                            this.primitive = Primitive.DECIMAL_FRACTION;
+                            retVal = Token.VALUE_NUMBER_FLOAT;
+                            break;
+                        // Tag 6: Reference to an earlier string value (bbor addition)
+                        case VALUE_REF_TAG:
+                            if (this.values == null) {
+                                throw new IllegalStateException("Encountered a value reference, but they're disabled in this config");
+                            }
+                            Number index = this.readInteger(inputStream);
+                            this.value = index instanceof Long ? this.values.get((Long) index) : null;
+                            if (this.value == null) {
+                                throw new IllegalStateException("Encountered a reference to an unknown value; " + index);
+                            }
+                            this.primitive = Primitive.TEXT_STRING;
+                            retVal = Token.VALUE_STRING;
+                            break;
+                        // Tag 7: Map that defines a new object shape (bbor addition)
+                        case SHAPE_DEFINITION_TAG:
+                            this.checkShapes();
+                            int mapByte = this.readUint8(inputStream);
+                            if (mapByte >>> 5 != 5 || (mapByte & 0x1f) == 31) {
+                                throw new IllegalStateException("A shape definition must be a definite length map; " + mapByte);
+                            }
+                            this.ctx = new Ctx(this.ctx, Token.START_OBJECT, this.readLength(inputStream, mapByte & 0x1f) * 2);
+                            // the fields are read as usual and the shape is added when the map ends, see endShape()
+                            this.ctx.shape = new ArrayList<>();
+                            this.ctx.defining = true;
+                            retVal = Token.START_OBJECT;
+                            break;
+                        // Tag 8: Object with a known shape (bbor addition)
+                        // Tag 9: Object with some of the fields of a known shape (bbor addition)
+                        case SHAPE_TAG:
+                        case SPARSE_SHAPE_TAG:
+                            this.checkShapes();
+                            Number shapeIndex = this.readInteger(inputStream);
+                            List<Object> fields = shapeIndex instanceof Long ? this.shapes.get((Long) shapeIndex) : null;
+                            if (fields == null) {
+                                throw new IllegalStateException("Encountered a reference to an unknown shape; " + shapeIndex);
                             }
-                            else {
-                                throw new IllegalStateException("Encountered bignum, but the next token isn't a byte array");
+                            List<Object> present = fields;
+                            if (additionalInfo == SPARSE_SHAPE_TAG) {
+                                Number presence = this.readInteger(inputStream);
+                                if (!(presence instanceof Long) || (Long) presence < 0 || (Long) presence >>> fields.size() != 0) {
+                                    throw new IllegalStateException("Invalid field bitmap for shape " + shapeIndex + "; " + presence);
+                                }
+                                present = new ArrayList<>();
+                                for (int i = 0; i < fields.size(); i++) {
+                                    if (((Long) presence & (1L << i)) != 0) {
+                                        present.add(fields.get(i));
+                                    }
+                                }
                             }
+                            this.ctx = new Ctx(this.ctx, Token.START_OBJECT, present.size() * 2L);
+                            this.ctx.shape = present;
+                            this.ctx.defining = false;
+                            retVal = Token.START_OBJECT;
+                            break;
+                        // Tag 10: Array of objects, written column by column (bbor addition)
+                        case COLUMNS_TAG:
+                            Columns columns = this.readColumns(inputStream, compressor);
+                            this.ctx = new Ctx(this.ctx, Token.START_ARRAY, columns.size);
+                            this.ctx.columns = columns;
+                            retVal = Token.START_ARRAY;
                             break;
                         default:
                             throw new IllegalStateException("Unimplemented tag value; " + additionalInfo);
@@ -711,11 +1463,11 @@ public class Bbor
                             break;
                         // 25: Half-precision float (16-bit)
                         case 25:
-                            throw new IllegalStateException("Half-precision (16-bit) float is not implemented because the encoder doesn't support it");
-                            //this.value = this.readFloat16(length);
-                            //this.primitive = Primitive.FLOAT16;
-                            //retVal = Token.VALUE_NUMBER_FLOAT;
-                            // 26: Single-precision float (32-bit)
+                            this.value = this.fromFloat16((int) length);
+                            this.primitive = Primitive.FLOAT16;
+                            retVal = Token.VALUE_NUMBER_FLOAT;
+                            break;
+                        // 26: Single-precision float (32-bit)
                         case 26:
                             this.value = Float.intBitsToFloat((int) length);
                             this.primitive = Primitive.FLOAT32;
@@ -744,12 +1496,175 @@ public class Bbor
                 this.value = this.parseField(this.value);
                 // cache the field so we can query it during the next value call
                 this.ctx.field = this.value;
+                if (this.ctx.defining) {
+                    this.ctx.shape.add(this.value);
+                }
                 retVal = Token.FIELD_NAME;
             }
 
             return retVal;
         }
 
+        private Token readBreak()
+        {
+            // a break can only take the place of the next item of an indefinite length container
+            // (and never the place of the value of a field)
+            if (this.readingValue || this.ctx == null || this.ctx.size != INDEFINITE_LENGTH
+                || (this.ctx.token.equals(Token.START_OBJECT) && this.ctx.pos % 2 != 0)) {
+                throw new IllegalStateException("Encountered a break code outside of an indefinite length container");
+            }
+
+            // same as the end of a definite length container, see readNext()
+            Token t = this.ctx.token;
+            this.endShape(this.ctx);
+            this.ctx = this.ctx.prev;
+            this.end = this.ctx == null;
+
+            return t.rev;
+        }
+        /**
+         * Decodes all columns of a columnar array (see Encoder.writeColumns()).
+         * We can't get to the values of a row without reading all the columns before it, so we need them all upfront,
+         * but the rows are only assembled (as tokens, see readRow(), or maps, see Columns.rows()) when they're read.
+         */
+        private Columns readColumns(BitReader inputStream, Compressor compressor)
+        {
+            // read the [rows, {field: column}] array in one go, as a separate value
+            Ctx ctx = this.ctx;
+            boolean end = this.end;
+            this.ctx = null;
+            this.end = false;
+            Object table = this.read(inputStream, compressor);
+            this.ctx = ctx;
+            this.end = end;
+
+            if (!(table instanceof List<?> list) || list.size() != 2 || !(list.get(0) instanceof Long size)
+                || size < 0 || size > Integer.MAX_VALUE || !(list.get(1) instanceof Map<?, ?> map) || map.isEmpty()) {
+                throw new IllegalStateException("Invalid columnar array; " + table);
+            }
+
+            Object[] fields = new Object[map.size()];
+            Object[][] values = new Object[map.size()][];
+            int f = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                fields[f] = entry.getKey();
+                values[f] = this.decodeColumn(entry.getValue(), size.intValue());
+                f++;
+            }
+
+            return new Columns(size.intValue(), fields, values);
+        }
+        private Object[] decodeColumn(Object column, int size)
+        {
+            if (!(column instanceof List<?> list) || list.size() != 2 || !(list.get(0) instanceof Long codec)) {
+                throw new IllegalStateException("Invalid column; " + column);
+            }
+
+            Object[] retVal = new Object[size];
+            Object payload = list.get(1);
+            if (codec == COLUMN_BOOLEANS && payload instanceof byte[] bits && bits.length == (size + 7) / 8) {
+                for (int i = 0; i < size; i++) {
+                    retVal[i] = (bits[i / 8] & (1 << (i % 8))) != 0;
+                }
+            }
+            else if (codec == COLUMN_DELTAS && payload instanceof List<?> deltas && deltas.size() == size) {
+                long prev = 0;
+                for (int i = 0; i < size; i++) {
+                    if (!(deltas.get(i) instanceof Long delta)) {
+                        throw new IllegalStateException("Invalid delta in column; " + deltas.get(i));
+                    }
+                    prev += delta;
+                    retVal[i] = prev;
+                }
+            }
+            else if (codec == COLUMN_VALUES && payload instanceof List<?> items && items.size() == size) {
+                retVal = items.toArray();
+            }
+            else {
+                throw new IllegalStateException("Invalid column; " + column);
+            }
+
+            return retVal;
+        }
+        /**
+         * Returns the next token of the rows of a columnar array, straight from its columns
+         */
+        private Token readRow()
+        {
+            Columns columns = this.ctx.columns;
+
+            this.value = null;
+            this.primitive = null;
+
+            // the array: start the object of the next row
+            if (this.ctx.token.equals(Token.START_ARRAY)) {
+                int row = (int) this.ctx.pos;
+                this.ctx = new Ctx(this.ctx, Token.START_OBJECT, columns.fields.length * 2L);
+                this.ctx.columns = columns;
+                this.ctx.row = row;
+                return Token.START_OBJECT;
+            }
+
+            int f = (int) (this.ctx.pos / 2);
+            if (this.ctx.pos % 2 == 0) {
+                this.value = columns.fields[f];
+                this.ctx.field = this.value;
+                return Token.FIELD_NAME;
+            }
+
+            // note that the columns only hold the simple values we can get from read()
+            this.value = columns.values[f][this.ctx.row];
+            if (this.value == null) {
+                this.primitive = Primitive.NULL;
+                return Token.VALUE_NULL;
+            }
+            else if (this.value instanceof String) {
+                this.primitive = Primitive.TEXT_STRING;
+                return Token.VALUE_STRING;
+            }
+            else if (this.value instanceof Boolean b) {
+                this.primitive = Primitive.BOOLEAN;
+                return b ? Token.VALUE_TRUE : Token.VALUE_FALSE;
+            }
+            else if (this.value instanceof Long l) {
+                this.primitive = l >= 0 ? Primitive.POSITIVE_INTEGER : Primitive.NEGATIVE_INTEGER;
+                return Token.VALUE_NUMBER_INT;
+            }
+            else if (this.value instanceof BigInteger b) {
+                this.primitive = b.signum() >= 0 ? Primitive.POSITIVE_BIGNUM : Primitive.NEGATIVE_BIGNUM;
+                return Token.VALUE_NUMBER_INT;
+            }
+            else if (this.value instanceof Float) {
+                this.primitive = Primitive.FLOAT32;
+                return Token.VALUE_NUMBER_FLOAT;
+            }
+            else if (this.value instanceof Double) {
+                this.primitive = Primitive.FLOAT64;
+                return Token.VALUE_NUMBER_FLOAT;
+            }
+            else if (this.value instanceof BigDecimal) {
+                this.primitive = Primitive.DECIMAL_FRACTION;
+                return Token.VALUE_NUMBER_FLOAT;
+            }
+            else {
+                throw new IllegalStateException("Unsupported value in column; " + this.value);
+            }
+        }
+        private void checkShapes()
+        {
+            if (this.shapes == null) {
+                throw new IllegalStateException("Encountered a shaped object, but shapes are disabled in this config");
+            }
+        }
+        /**
+         * Mirrors Encoder.writeEndObject(): a shape is added when the object that defines it ends
+         */
+        private void endShape(Ctx ctx)
+        {
+            if (ctx.defining) {
+                this.shapes.add(ctx.shape);
+            }
+        }
         private long readLength(BitReader inputStream, int additionalInfo)
         {
             // any value < 24 has the length value encoded into the 5 LSB of the majorType
@@ -775,19 +1690,37 @@ public class Bbor
                     throw new IllegalStateException("Invalid additional info: " + additionalInfo);
             }
         }
+        /**
+         * Reads the chunks of an indefinite length byte or text string (the initial byte is already read) up to the break code
+         * and returns all their bytes. Every chunk needs to be a definite length string of the same major type.
+         * Note that our encoders never write indefinite length strings (they're only here for standard cbor, see CborTranscoder),
+         * so the chunks are never compressed.
+         */
+        private byte[] readChunks(BitReader inputStream, int majorType)
+        {
+            ByteArrayOutputStream retVal = new ByteArrayOutputStream();
+
+            for (int initialByte = this.readUint8(inputStream); initialByte != 0xff; initialByte = this.readUint8(inputStream)) {
+                if (initialByte >>> 5 != majorType || (initialByte & 0x1f) == 31) {
+                    throw new IllegalStateException("Encountered an invalid chunk in an indefinite length string; " + initialByte);
+                }
+                byte[] chunk = new byte[(int) this.readLength(inputStream, initialByte & 0x1f)];
+                inputStream.readBytes(chunk, 0, chunk.length);
+                retVal.writeBytes(chunk);
+            }
+
+            return retVal.toByteArray();
+        }
         private String readString(BitReader inputStream, Compressor compressor, long length)
         {
-            // note that, for now, the encoder doesn't support indefinite lengths (length -1, see cbor.js),
-            // so we don't either
+            // note that the indefinite lengths are handled by readChunks()
             if (this.config.enableStringCompression() && compressor != null && length > 0) {
                 // the wrapper will read the inputStream for max length bytes
                 return compressor.decompress(new WrappedByteReader(inputStream, length));
             }
             else {
                 byte[] stringBytes = new byte[(int) length];
-                for (int i = 0; i < stringBytes.length; i++) {
-                    stringBytes[i] = (byte) inputStream.read(8);
-                }
+                inputStream.readBytes(stringBytes, 0, stringBytes.length);
                 // note that cbor strings are UTF-8 encoded
                 return new String(stringBytes, java.nio.charset.StandardCharsets.UTF_8);
             }
@@ -811,31 +1744,110 @@ public class Bbor
         private long readUint64(BitReader inputStream)
         {
             // sync with encoder
-            long high = inputStream.read(32);
-            long low = inputStream.read(32);
-            return (high * POW_2_32) + low;
-        }
-        // Commented because the encoder doesn't use it (float is always 32 bit in Java)
-        //        private double readFloat16(BitReader inputStream)
-        //        {
-        //            long value = this.readUint16(inputStream);
-        //            int sign = value & 0x8000;
-        //            int exponent = value & 0x7c00;
-        //            int fraction = value & 0x03ff;
-        //
-        //            if (exponent == 0x7c00) {
-        //                exponent = 0xff << 10;
-        //            }
-        //            else if (exponent != 0) {
-        //                exponent += (127 - 15) << 10;
-        //            }
-        //            else if (fraction != 0) {
-        //                return (sign != 0 ? -1 : 1) * fraction * POW_2_24;
-        //            }
-        //
-        //            int bits = sign << 16 | exponent << 13 | fraction << 13;
-        //            return Float.intBitsToFloat(bits);
-        //        }
+            return inputStream.readLong(64);
+        }
+        // note that every half-precision float fits in a float exactly, so we don't need to return a double
+        private float fromFloat16(int value)
+        {
+            int sign = value & 0x8000;
+            int exponent = (value >>> 10) & 0x1f;
+            int fraction = value & 0x03ff;
+
+            float retVal;
+            if (exponent == 0x1f) {
+                // infinity or NaN: max out the float exponent as well (and keep the NaN payload)
+                retVal = Float.intBitsToFloat(0x7f800000 | fraction << 13);
+            }
+            else if (exponent != 0) {
+                // normal number: re-bias the exponent from 15 to 127 and widen the fraction from 10 to 23 bits
+                retVal = Float.intBitsToFloat((exponent + 127 - 15) << 23 | fraction << 13);
+            }
+            else {
+                // zero or subnormal number: fraction * 2^-24
+                retVal = (float) (fraction / POW_2_24);
+            }
+
+            // note that this also keeps the sign of -0
+            return sign != 0 ? -retVal : retVal;
+        }
+        /**
+         * Reads the byte string of a bignum (the tag is already read) and returns it as a long if it fits (the usual case,
+         * see Encoder.writeLong()) or as a BigInteger if it doesn't
+         */
+        private Number readBigNum(BitReader inputStream, boolean positive)
+        {
+            int initialByte = this.readUint8(inputStream);
+            if (initialByte >>> 5 != 2) {
+                throw new IllegalStateException("Encountered bignum, but the next item isn't a byte string; " + initialByte);
+            }
+            byte[] bytes;
+            if ((initialByte & 0x1f) == 31) {
+                bytes = this.readChunks(inputStream, 2);
+            }
+            else {
+                bytes = new byte[(int) this.readLength(inputStream, initialByte & 0x1f)];
+                inputStream.readBytes(bytes, 0, bytes.length);
+            }
+
+            // note that the bytes are unsigned, so if we have 8 of them, the first bit can't be set or the long overflows
+            if (bytes.length < 8 || (bytes.length == 8 && bytes[0] >= 0)) {
+                long value = this.fromPositiveBigNum(bytes);
+                return positive ? value : -1 - value;
+            }
+            else {
+                BigInteger value = new BigInteger(1, bytes);
+                // for negative bignums, the value is -1-n, which is the same as not(n)
+                return positive ? value : value.not();
+            }
+        }
+        /**
+         * Reads one integer item, including bignums (note that the first byte of this item is not read yet)
+         */
+        private Number readInteger(BitReader inputStream)
+        {
+            int initialByte = this.readUint8(inputStream);
+            int majorType = initialByte >>> 5;
+            int additionalInfo = initialByte & 0x1f;
+
+            if (majorType == 0 || majorType == 1) {
+                long length = this.readLength(inputStream, additionalInfo);
+                // a 64-bit length can overflow a long, see readLength()
+                if (length >= 0) {
+                    return majorType == 0 ? length : -1L - length;
+                }
+                else {
+                    BigInteger value = new BigInteger(Long.toUnsignedString(length));
+                    return majorType == 0 ? value : value.not();
+                }
+            }
+            else if (majorType == 6 && (additionalInfo == 2 || additionalInfo == 3)) {
+                return this.readBigNum(inputStream, additionalInfo == 2);
+            }
+            else {
+                throw new IllegalStateException("Expected an integer, but encountered major type " + majorType);
+            }
+        }
+        /**
+         * Reads the [exponent, mantissa] array of a decimal fraction (the tag is already read), see Encoder.writeBigDecimal()
+         */
+        private BigDecimal readDecimalFraction(BitReader inputStream)
+        {
+            // major type 4 (array), length 2
+            if (this.readUint8(inputStream) != 0x82) {
+                throw new IllegalStateException("Encountered decimal fraction, but the next item isn't an array of two items");
+            }
+            Number exponent = this.readInteger(inputStream);
+            Number mantissa = this.readInteger(inputStream);
+
+            // the scale of a BigDecimal is the negated exponent (and it needs to fit in an int)
+            if (!(exponent instanceof Long) || (long) exponent > -(long) Integer.MIN_VALUE || (long) exponent < -(long) Integer.MAX_VALUE) {
+                throw new IllegalStateException("Decimal fraction exponent out of range; " + exponent);
+            }
+            int scale = (int) -(long) exponent;
+
+            return mantissa instanceof BigInteger bigMantissa ? new BigDecimal(bigMantissa, scale)
+                                                              : BigDecimal.valueOf(mantissa.longValue(), scale);
+        }
         private long fromPositiveBigNum(byte[] bytes)
         {
             long result = 0;
@@ -866,5 +1878,57 @@ public class Bbor
             // so let's return object
             return nameOrIdx;
         }
+
+        /**
+         * The decoded columns of a columnar array, see readColumns()
+         */
+        private static final class Columns
+        {
+            private final int size;
+            private final Object[] fields;
+            // indexed by field, then by row
+            private final Object[][] values;
+            // the rows we've assembled so far (see rows()), indexed by row
+            private final Map<Object, Object>[] rows;
+
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            private Columns(int size, Object[] fields, Object[][] values)
+            {
+                this.size = size;
+                this.fields = fields;
+                this.values = values;
+                this.rows = new Map[size];
+            }
+
+            /**
+             * Returns the rows as a (read-only) list that only assembles a row the first time it's asked for,
+             * so iterating it more than once (or changing a row) behaves exactly like a regular list of maps
+             */
+            private List<Map<Object, Object>> rows()
+            {
+                return new AbstractList<>()
+                {
+                    @Override
+                    public Map<Object, Object> get(int index)
+                    {
+                        Objects.checkIndex(index, size);
+                        Map<Object, Object> retVal = rows[index];
+                        if (retVal == null) {
+                            retVal = new LinkedHashMap<>();
+                            for (int f = 0; f < fields.length; f++) {
+                                retVal.put(fields[f], values[f][index]);
+                            }
+                            rows[index] = retVal;
+                        }
+                        return retVal;
+                    }
+                    @Override
+                    public int size()
+                    {
+                        return size;
+                    }
+                };
+            }
+        }
     }
 }
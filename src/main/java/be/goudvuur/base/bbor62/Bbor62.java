@@ -11,13 +11,19 @@ import be.goudvuur.base.bbor62.ifaces.BitWriter;
 import be.goudvuur.base.bbor62.ifaces.Compressor;
 import be.goudvuur.base.bbor62.jackson.BborGenerator;
 import be.goudvuur.base.bbor62.jackson.BborParser;
+import be.goudvuur.base.bbor62.jackson.Custom;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.io.ContentReference;
 import com.fasterxml.jackson.core.io.IOContext;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 
 /**
  * This is a serializer that combines Bbor + LZW string compression + Base62 to string conversion
@@ -32,9 +38,24 @@ public class Bbor62<T>
         LZW.Config lzwConfig();
         BaseXStream.Config baseXConfig();
         Bbor.Config bborConfig();
+
+        /**
+         * How generate() writes objects (beans) when Jackson doesn't pass the number of fields, see BborGenerator.SizingMode.
+         * Defaults to a single pass with indefinite length objects.
+         * Note that this changes the bytes generate() emits compared to counting the fields: every such object ends
+         * with a break byte instead of starting with its count (decoding is not affected, the decoder reads both).
+         */
+        default BborGenerator.SizingMode sizingMode()
+        {
+            return BborGenerator.SizingMode.INDEFINITE;
+        }
     }
 
     //-----CONSTANTS-----
+    // shared, because the mapper caches the serializers (and we cache the property plans of those, see BborGenerator.PropertyPlan)
+    // Note that our own serializer factory is needed to be able to count the fields of beans, see BborGenerator.SizingMode.COUNT
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().setSerializerFactory(new Custom.MyBeanSerializerFactory(null));
+
     public static final Config DEFAULT_CONFIG = new Config()
     {
         @Override
@@ -54,6 +75,30 @@ public class Bbor62<T>
         }
     };
 
+    /**
+     * Same as the default, but without byte aligning the compressed strings and the final base62 block,
+     * which saves up to 7 bits per string, so this is shorter for documents with a lot of (short) strings.
+     * Note that this is not wire compatible with the default (and not supported by the Javascript implementation yet).
+     */
+    public static final Config BIT_EXACT_CONFIG = new Config()
+    {
+        @Override
+        public LZW.Config lzwConfig()
+        {
+            return LZW.BIT_EXACT_CONFIG;
+        }
+        @Override
+        public BaseXStream.Config baseXConfig()
+        {
+            return BaseXStream.BIT_EXACT_CONFIG;
+        }
+        @Override
+        public Bbor.Config bborConfig()
+        {
+            return Bbor.DEFAULT_CONFIG;
+        }
+    };
+
     //-----VARIABLES-----
 
     //-----CONSTRUCTORS-----
@@ -69,6 +114,16 @@ public class Bbor62<T>
         return generate(value, DEFAULT_CONFIG);
     }
 
+    public static <T> void encode(T value, Writer writer) throws IOException
+    {
+        encode(value, writer, DEFAULT_CONFIG);
+    }
+
+    public static <T> void generate(T value, Writer writer) throws IOException
+    {
+        generate(value, writer, DEFAULT_CONFIG);
+    }
+
     public static <T> T decode(String cbor62) throws IOException
     {
         return decode(cbor62, DEFAULT_CONFIG);
@@ -85,13 +140,229 @@ public class Bbor62<T>
      */
     public static <T> String encode(T value, Config config) throws IOException
     {
-        // debatable if we should automatically convert a json string to a Map
-        // disabled because I think this is te responsibility of the caller
-        //value = jsonToObj(value);
+        StringBuilder base62 = new StringBuilder();
+
+        encode(value, new BaseXStream.Encoder(base62::append, config.baseXConfig()), config);
+
+        return base62.toString();
+    }
 
+    /**
+     * Same as encode(), but streams the base62 chars to the writer (in batches) instead of building a string first.
+     * Note that the writer is flushed, but not closed.
+     */
+    public static <T> void encode(T value, Writer writer, Config config) throws IOException
+    {
+        encode(value, new BaseXStream.Encoder(writer, config.baseXConfig()), config);
+    }
+
+    /**
+     * Same as encode(), but streams the base62 chars as ASCII bytes to the stream.
+     * Note that the stream is flushed, but not closed.
+     */
+    public static <T> void encode(T value, OutputStream outputStream, Config config) throws IOException
+    {
+        encode(value, new BaseXStream.Encoder(outputStream, config.baseXConfig()), config);
+    }
+
+    /**
+     * Basically does the same as encode(), but uses the Jackson generator instead, so all Jackson-annotated
+     * fields, getters, etc are taken into account
+     */
+    public static <T> String generate(T value, Config config) throws IOException
+    {
         StringBuilder base62 = new StringBuilder();
 
-        BitWriter writer = new BaseXStream.Encoder(base62::append, config.baseXConfig());
+        generate(value, new BaseXStream.Encoder(base62::append, config.baseXConfig()), config);
+
+        return base62.toString();
+    }
+
+    /**
+     * Same as generate(), but streams the base62 chars to the writer (in batches) instead of building a string first.
+     * Note that the writer is flushed, but not closed.
+     */
+    public static <T> void generate(T value, Writer writer, Config config) throws IOException
+    {
+        generate(value, new BaseXStream.Encoder(writer, config.baseXConfig()), config);
+    }
+
+    /**
+     * Same as generate(), but streams the base62 chars as ASCII bytes to the stream.
+     * Note that the stream is flushed, but not closed.
+     */
+    public static <T> void generate(T value, OutputStream outputStream, Config config) throws IOException
+    {
+        generate(value, new BaseXStream.Encoder(outputStream, config.baseXConfig()), config);
+    }
+
+    /**
+     * Inverse of encode() in that it decodes the raw object that was encoded in the first place
+     */
+    public static <T> T decode(String cbor62, Config config) throws IOException
+    {
+        return decode(new BaseXStream.Decoder(cbor62, config.baseXConfig()), config);
+    }
+
+    /**
+     * Same as decode(), but only decodes the chars between start (inclusive) and end (exclusive), without copying them
+     */
+    public static <T> T decode(CharSequence cbor62, int start, int end, Config config) throws IOException
+    {
+        return decode(new BaseXStream.Decoder(cbor62, start, end, config.baseXConfig()), config);
+    }
+
+    /**
+     * Same as decode(), but reads the (ASCII) bytes between offset and offset + length, without converting them to a String first
+     */
+    public static <T> T decode(byte[] cbor62, int offset, int length, Config config) throws IOException
+    {
+        return decode(new BaseXStream.Decoder(cbor62, offset, length, config.baseXConfig()), config);
+    }
+
+    /**
+     * Same as decode(), but reads the (ASCII) bytes between the position and the limit of the buffer (leaving its position untouched)
+     */
+    public static <T> T decode(ByteBuffer cbor62, Config config) throws IOException
+    {
+        return decode(new BaseXStream.Decoder(cbor62, config.baseXConfig()), config);
+    }
+
+    /**
+     * Inverse of generate() in that it uses the Jackson parser to recreate the requested POJO class
+     */
+    public static <T> T parse(String cbor62, Class<T> clazz, Config config) throws IOException
+    {
+        return parse(new BaseXStream.Decoder(cbor62, config.baseXConfig()), clazz, config);
+    }
+
+    /**
+     * Same as parse(), but only parses the chars between start (inclusive) and end (exclusive), without copying them
+     */
+    public static <T> T parse(CharSequence cbor62, int start, int end, Class<T> clazz, Config config) throws IOException
+    {
+        return parse(new BaseXStream.Decoder(cbor62, start, end, config.baseXConfig()), clazz, config);
+    }
+
+    /**
+     * Same as parse(), but reads the (ASCII) bytes between offset and offset + length, without converting them to a String first
+     */
+    public static <T> T parse(byte[] cbor62, int offset, int length, Class<T> clazz, Config config) throws IOException
+    {
+        return parse(new BaseXStream.Decoder(cbor62, offset, length, config.baseXConfig()), clazz, config);
+    }
+
+    /**
+     * Same as parse(), but reads the (ASCII) bytes between the position and the limit of the buffer (leaving its position untouched)
+     */
+    public static <T> T parse(ByteBuffer cbor62, Class<T> clazz, Config config) throws IOException
+    {
+        return parse(new BaseXStream.Decoder(cbor62, config.baseXConfig()), clazz, config);
+    }
+
+    /**
+     * Same as encode(), but returns the raw bbor (+ LZW) bytes instead of base62 chars (see BinaryStream).
+     * Use this between our own services, when the output doesn't need to be alphanumeric; it skips the base62
+     * inflation (and CPU) altogether. Note that the base X config is ignored here.
+     */
+    public static <T> byte[] encodeBinary(T value, Config config) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        encodeBinary(value, bytes, config);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Same as encodeBinary(), but streams the bytes to the stream.
+     * Note that the stream is flushed, but not closed.
+     */
+    public static <T> void encodeBinary(T value, OutputStream outputStream, Config config) throws IOException
+    {
+        encode(value, new BinaryStream.Encoder(outputStream), config);
+    }
+
+    /**
+     * Same as encodeBinary(), but writes the bytes to the buffer, starting at its position (that's moved to the end of the written bytes).
+     * Note that this throws a BufferOverflowException if the buffer is too small.
+     */
+    public static <T> void encodeBinary(T value, ByteBuffer buffer, Config config) throws IOException
+    {
+        encode(value, new BinaryStream.Encoder(buffer), config);
+    }
+
+    /**
+     * Same as encodeBinary(), but uses the Jackson generator instead, see generate()
+     */
+    public static <T> byte[] generateBinary(T value, Config config) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        generateBinary(value, bytes, config);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Same as generateBinary(), but streams the bytes to the stream.
+     * Note that the stream is flushed, but not closed.
+     */
+    public static <T> void generateBinary(T value, OutputStream outputStream, Config config) throws IOException
+    {
+        generate(value, new BinaryStream.Encoder(outputStream), config);
+    }
+
+    /**
+     * Inverse of encodeBinary(), reads the bytes between offset and offset + length
+     */
+    public static <T> T decodeBinary(byte[] bytes, int offset, int length, Config config) throws IOException
+    {
+        return decode(new BinaryStream.Decoder(bytes, offset, length), config);
+    }
+
+    /**
+     * Same as decodeBinary(), but reads the bytes between the position and the limit of the buffer (leaving its position untouched)
+     */
+    public static <T> T decodeBinary(ByteBuffer bytes, Config config) throws IOException
+    {
+        return decode(new BinaryStream.Decoder(bytes), config);
+    }
+
+    /**
+     * Same as decodeBinary(), but reads the bytes from the stream.
+     * Note that the stream is read ahead in batches, so it can be consumed beyond the end of the value.
+     */
+    public static <T> T decodeBinary(InputStream inputStream, Config config) throws IOException
+    {
+        return decode(new BinaryStream.Decoder(inputStream), config);
+    }
+
+    /**
+     * Inverse of generateBinary(), uses the Jackson parser to recreate the requested POJO class
+     */
+    public static <T> T parseBinary(byte[] bytes, int offset, int length, Class<T> clazz, Config config) throws IOException
+    {
+        return parse(new BinaryStream.Decoder(bytes, offset, length), clazz, config);
+    }
+
+    /**
+     * Same as parseBinary(), but reads the bytes from the stream, see decodeBinary(InputStream, Config)
+     */
+    public static <T> T parseBinary(InputStream inputStream, Class<T> clazz, Config config) throws IOException
+    {
+        return parse(new BinaryStream.Decoder(inputStream), clazz, config);
+    }
+
+    /**
+     * Same as encode(), but writes to the supplied (base62) bit writer, so we can plug in another output stage (eg. BaseXRangeStream).
+     * Note that the writer is flushed at the end.
+     */
+    public static <T> void encode(T value, BitWriter writer, Config config) throws IOException
+    {
+        // debatable if we should automatically convert a json string to a Map
+        // disabled because I think this is te responsibility of the caller
+        //value = jsonToObj(value);
 
         // needs to be byte aligned so we can write out compressed strings as byte arrays
         // Also note that this will be reused over and over again for each string in the json file,
@@ -102,20 +373,13 @@ public class Bbor62<T>
 
         // make sure to write the last base62 block if it's partial
         writer.flush();
-
-        return base62.toString();
     }
 
     /**
-     * Basically does the same as encode(), but uses the Jackson generator instead, so all Jackson-annotated
-     * fields, getters, etc are taken into account
+     * Same as generate(), but writes to the supplied (base62) bit writer, see encode(T, BitWriter, Config)
      */
-    public static <T> String generate(T value, Config config) throws IOException
+    public static <T> void generate(T value, BitWriter writer, Config config) throws IOException
     {
-        StringBuilder base62 = new StringBuilder();
-
-        BitWriter writer = new BaseXStream.Encoder(base62::append, config.baseXConfig());
-
         // needs to be byte aligned so we can write out compressed strings as byte arrays
         // Also note that this will be reused over and over again for each string in the json file,
         // reusing and adding to the dict, so make sure the sync with the decoder
@@ -134,24 +398,21 @@ public class Bbor62<T>
                                                         writeContext,
                                                         objectMapper.getFactory().getFactoryFeatures(),
                                                         new Bbor.Encoder(config.bborConfig()),
-                                                        compressor
+                                                        compressor,
+                                                        config.sizingMode()
         );
 
         // note that the objectMapper calls generator.flush()
         objectMapper.writeValue(generator, value);
-
-        return base62.toString();
     }
 
     /**
-     * Inverse of encode() in that it decodes the raw object that was encoded in the first place
+     * Same as decode(), but reads from the supplied (base62) bit reader, see encode(T, BitWriter, Config)
      */
-    public static <T> T decode(String cbor62, Config config) throws IOException
+    public static <T> T decode(BitReader reader, Config config) throws IOException
     {
         // sync with encode()
 
-        BitReader reader = new BaseXStream.Decoder(cbor62, config.baseXConfig());
-
         Compressor compressor = new LZW(config.lzwConfig());
 
         // note that cbor always decodes to the raw (encoded) object (map, string, number, array, ...)
@@ -159,15 +420,13 @@ public class Bbor62<T>
     }
 
     /**
-     * Inverse of generate() in that it uses the Jackson parser to recreate the requested POJO class
+     * Same as parse(), but reads from the supplied (base62) bit reader, see encode(T, BitWriter, Config)
      */
-    public static <T> T parse(String cbor62, Class<T> clazz, Config config) throws IOException
+    public static <T> T parse(BitReader reader, Class<T> clazz, Config config) throws IOException
     {
         // let's test for good and create a new instance
         Compressor compressor = new LZW(config.lzwConfig());
 
-        BitReader reader = new BaseXStream.Decoder(cbor62, config.baseXConfig());
-
         ObjectMapper objectMapper = getObjectMapper();
 
         IOContext readContext = new IOContext(StreamReadConstraints.defaults(),
@@ -206,6 +465,6 @@ public class Bbor62<T>
     //-----PRIVATE METHODS-----
     private static ObjectMapper getObjectMapper()
     {
-        return new ObjectMapper();
+        return OBJECT_MAPPER;
     }
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import be.goudvuur.base.bbor62.ifaces.BitReader;
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * The binary alternative for BaseXStream: the bits are written out as raw bytes (most significant bit first),
+ * without any base62 conversion. This is meant for transport between our own (JVM) services where the alphanumeric
+ * constraint doesn't matter, so we get the bbor + LZW compression without the text inflation (see Bbor62.encodeBinary()).
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class BinaryStream
+{
+    //-----CONSTANTS-----
+    // the number of bytes we collect before handing them to the stream (or read ahead from it)
+    private static final int BATCH_SIZE = 1 << 12;
+
+    //-----VARIABLES-----
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static class Encoder implements BitWriter
+    {
+        // null if we write to a buffer directly
+        private final OutputStream outputStream;
+        // either the batch for the output stream or the buffer we write to
+        private final ByteBuffer buffer;
+        // the bits that don't form a complete byte yet (right-aligned, see AccumulatorByteStream)
+        private long acc;
+        private int accBits;
+
+        /**
+         * Writes the bytes to the stream (in batches). Note that the stream is flushed, but not closed.
+         */
+        public Encoder(OutputStream outputStream)
+        {
+            this(outputStream, ByteBuffer.allocate(BATCH_SIZE));
+        }
+        /**
+         * Writes the bytes to the (heap or direct) buffer, starting at its position.
+         * Note that this throws a BufferOverflowException when the buffer is full.
+         */
+        public Encoder(ByteBuffer buffer)
+        {
+            this(null, buffer);
+        }
+        private Encoder(OutputStream outputStream, ByteBuffer buffer)
+        {
+            this.outputStream = outputStream;
+            this.buffer = buffer;
+            this.acc = 0;
+            this.accBits = 0;
+        }
+
+        @Override
+        public void write(int value, int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+            // note that the L is needed or the value overflows
+            if (value >= (1L << numBits)) {
+                throw new IllegalArgumentException("Value is too large for the specified number of bits");
+            }
+
+            // the accumulator holds less than 8 bits, so there's room for 32 more
+            this.acc = (this.acc << numBits) | (value & ((1L << numBits) - 1));
+            this.accBits += numBits;
+            while (this.accBits >= 8) {
+                this.accBits -= 8;
+                if (!this.buffer.hasRemaining()) {
+                    this.flushBatch();
+                }
+                this.buffer.put((byte) (this.acc >>> this.accBits));
+            }
+            this.acc &= (1L << this.accBits) - 1;
+        }
+        @Override
+        public void writeBytes(byte[] bytes, int off, int len)
+        {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+
+            if (this.accBits == 0) {
+                // if it doesn't fit in the batch anyway, skip it and write straight to the stream
+                if (this.outputStream != null && len > this.buffer.remaining()) {
+                    this.flushBatch();
+                    try {
+                        this.outputStream.write(bytes, off, len);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                else {
+                    this.buffer.put(bytes, off, len);
+                }
+            }
+            else {
+                BitWriter.super.writeBytes(bytes, off, len);
+            }
+        }
+        /**
+         * Pads the last byte with zero bits (if needed) and writes everything out.
+         * Note that this means the bits that are written after a flush start on a new byte.
+         */
+        @Override
+        public void flush()
+        {
+            if (this.accBits > 0) {
+                this.write(0, 8 - this.accBits);
+            }
+
+            this.flushBatch();
+            if (this.outputStream != null) {
+                try {
+                    this.outputStream.flush();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void flushBatch()
+        {
+            // if we write to a buffer directly, there's nothing to flush (and put() will throw when it's full)
+            if (this.outputStream != null && this.buffer.position() > 0) {
+                try {
+                    this.outputStream.write(this.buffer.array(), this.buffer.arrayOffset(), this.buffer.position());
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                this.buffer.clear();
+            }
+        }
+    }
+
+    public static class Decoder implements BitReader
+    {
+        // null if we read from a buffer directly
+        private final InputStream inputStream;
+        // either the read-ahead batch of the input stream or the buffer we read from
+        private final ByteBuffer buffer;
+        // the bits that were taken from the buffer, but not read yet (right-aligned, see AccumulatorByteStream)
+        private long acc;
+        private int accBits;
+
+        /**
+         * Reads the bytes from the stream.
+         * Note that we read ahead in batches, so this can consume bytes beyond the end of the encoded value.
+         */
+        public Decoder(InputStream inputStream)
+        {
+            // start with an empty batch, see fillBatch()
+            this(inputStream, ByteBuffer.allocate(BATCH_SIZE).flip());
+        }
+        /**
+         * Reads the bytes between offset and offset + length of the input
+         */
+        public Decoder(byte[] input, int offset, int length)
+        {
+            this(null, ByteBuffer.wrap(input, offset, length));
+        }
+        /**
+         * Reads the bytes between the position and the limit of the (heap or direct) buffer.
+         * Note that the position of the buffer is left untouched (same as BaseXStream.Decoder).
+         */
+        public Decoder(ByteBuffer input)
+        {
+            this(null, input.duplicate());
+        }
+        private Decoder(InputStream inputStream, ByteBuffer buffer)
+        {
+            this.inputStream = inputStream;
+            this.buffer = buffer;
+            this.acc = 0;
+            this.accBits = 0;
+        }
+
+        @Override
+        public int read(int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+
+            // the accumulator holds less than 8 bits after every read, so there's room for 32 more
+            while (this.accBits < numBits) {
+                if (!this.buffer.hasRemaining() && !this.fillBatch()) {
+                    throw new IllegalStateException("Not enough bits left in the stream; requested " + numBits + ", available " + this.accBits);
+                }
+                this.acc = (this.acc << 8) | (this.buffer.get() & 0xFF);
+                this.accBits += 8;
+            }
+
+            this.accBits -= numBits;
+            int retVal = (int) ((this.acc >>> this.accBits) & ((1L << numBits) - 1));
+            this.acc &= (1L << this.accBits) - 1;
+
+            return retVal;
+        }
+        @Override
+        public void readBytes(byte[] bytes, int off, int len)
+        {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+
+            if (this.accBits == 0) {
+                // first take what's left in the buffer
+                int numBytes = Math.min(len, this.buffer.remaining());
+                this.buffer.get(bytes, off, numBytes);
+                off += numBytes;
+                len -= numBytes;
+
+                // and read the rest straight from the stream (if any)
+                if (len > 0) {
+                    int read = 0;
+                    if (this.inputStream != null) {
+                        try {
+                            read = this.inputStream.readNBytes(bytes, off, len);
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    if (read < len) {
+                        throw new IllegalStateException("Not enough bytes left in the stream; requested " + len + ", available " + read);
+                    }
+                }
+            }
+            else {
+                BitReader.super.readBytes(bytes, off, len);
+            }
+        }
+        @Override
+        public boolean hasNext(int numBits)
+        {
+            // note that this blocks on the input stream until enough bytes arrived (or it ended)
+            while (this.accBits + this.buffer.remaining() * 8L < numBits && this.fillBatch()) {
+                // keep on filling
+            }
+
+            return this.accBits + this.buffer.remaining() * 8L >= numBits;
+        }
+
+        /**
+         * Reads the next batch from the input stream, after the bytes that are still left in the buffer.
+         * Returns false if nothing was added (end of the stream or no stream at all).
+         */
+        private boolean fillBatch()
+        {
+            boolean retVal = false;
+
+            if (this.inputStream != null) {
+                this.buffer.compact();
+                try {
+                    int read = this.inputStream.read(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), this.buffer.remaining());
+                    if (read > 0) {
+                        this.buffer.position(this.buffer.position() + read);
+                        retVal = true;
+                    }
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                finally {
+                    this.buffer.flip();
+                }
+            }
+
+            return retVal;
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+}
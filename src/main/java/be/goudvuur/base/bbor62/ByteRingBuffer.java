@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+
+/**
+ * The byte storage behind ByteStream and AccumulatorByteStream: a FIFO of complete bytes in a power-of-two ring buffer.
+ * The bytes that were read back are simply left behind by the head and the tail wraps around into that space,
+ * so we never have to compact (and reallocate) the buffer when reads and writes are interleaved (eg. in the
+ * BaseXStream.IncrementalDecoder). It only grows (x2) when it's truly full.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+final class ByteRingBuffer
+{
+    //-----CONSTANTS-----
+
+    //-----VARIABLES-----
+    private byte[] buffer;
+    // buffer.length - 1, so (index & mask) wraps around
+    private int mask;
+    // the index of the next byte to read
+    private int head;
+    // the number of bytes that were written, but not read yet
+    private int size;
+    // the total number of bytes ever written
+    private long written;
+
+    //-----CONSTRUCTORS-----
+    ByteRingBuffer(int initialCapacity)
+    {
+        if (initialCapacity <= 0 || Integer.bitCount(initialCapacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two; " + initialCapacity);
+        }
+
+        this.buffer = new byte[initialCapacity];
+        this.mask = initialCapacity - 1;
+        this.head = 0;
+        this.size = 0;
+        this.written = 0;
+    }
+
+    //-----PUBLIC METHODS-----
+    int size()
+    {
+        return this.size;
+    }
+
+    long written()
+    {
+        return this.written;
+    }
+
+    /**
+     * Returns the next byte without removing it (note that the caller should check size() first)
+     */
+    byte peek()
+    {
+        return this.buffer[this.head];
+    }
+
+    byte take()
+    {
+        if (this.size == 0) {
+            throw new IllegalStateException("No bytes left in the buffer");
+        }
+
+        byte retVal = this.buffer[this.head];
+        this.head = (this.head + 1) & this.mask;
+        this.size--;
+
+        return retVal;
+    }
+
+    void take(byte[] dst, int off, int len)
+    {
+        if (len > this.size) {
+            throw new IllegalStateException("Not enough bytes left in the stream; requested " + len + ", available " + this.size);
+        }
+
+        // the bytes can wrap around the end of the buffer, so we need (at most) two copies
+        int first = Math.min(len, this.buffer.length - this.head);
+        System.arraycopy(this.buffer, this.head, dst, off, first);
+        System.arraycopy(this.buffer, 0, dst, off + first, len - first);
+        this.head = (this.head + len) & this.mask;
+        this.size -= len;
+    }
+
+    void put(byte value)
+    {
+        this.assertSpaceFor(1);
+        this.buffer[(this.head + this.size) & this.mask] = value;
+        this.size++;
+        this.written++;
+    }
+
+    void put(byte[] src, int off, int len)
+    {
+        this.assertSpaceFor(len);
+
+        // see take()
+        int tail = (this.head + this.size) & this.mask;
+        int first = Math.min(len, this.buffer.length - tail);
+        System.arraycopy(src, off, this.buffer, tail, first);
+        System.arraycopy(src, off + first, this.buffer, 0, len - first);
+        this.size += len;
+        this.written += len;
+    }
+
+    /**
+     * Writes all unread bytes to the writer (straight from the buffer, without copying them first) and empties the buffer.
+     * Note that the capacity is kept, so the buffer can be reused without growing it again.
+     */
+    void transferTo(BitWriter writer)
+    {
+        // see take()
+        int first = Math.min(this.size, this.buffer.length - this.head);
+        writer.writeBytes(this.buffer, this.head, first);
+        writer.writeBytes(this.buffer, 0, this.size - first);
+        this.head = 0;
+        this.size = 0;
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    private void assertSpaceFor(int numBytes)
+    {
+        // note the long, this shouldn't overflow before we throw
+        long needed = (long) this.size + numBytes;
+        if (needed > this.buffer.length) {
+            // let's use a grow ratio of x2, same as ArrayList (and keep it a power of two)
+            long capacity = this.buffer.length;
+            while (capacity < needed) {
+                capacity <<= 1;
+            }
+            if (capacity > (1 << 30)) {
+                throw new IllegalStateException("The byte stream can't hold more than " + (1 << 30) + " unread bytes");
+            }
+
+            // unwrap the unread bytes to the start of the new buffer
+            byte[] newBuffer = new byte[(int) capacity];
+            int first = Math.min(this.size, this.buffer.length - this.head);
+            System.arraycopy(this.buffer, this.head, newBuffer, 0, first);
+            System.arraycopy(this.buffer, 0, newBuffer, first, this.size - first);
+            this.buffer = newBuffer;
+            this.mask = newBuffer.length - 1;
+            this.head = 0;
+        }
+    }
+}
@@ -9,6 +9,8 @@ package be.goudvuur.base.bbor62;
 import be.goudvuur.base.bbor62.ifaces.BitReader;
 import be.goudvuur.base.bbor62.ifaces.BitWriter;
 
+import java.util.Objects;
+
 /**
  * Created by bram on Nov 18, 2024
  */
@@ -17,18 +19,16 @@ public class ByteStream implements BitReader, BitWriter
     //-----CONSTANTS-----
 
     //-----VARIABLES-----
-    private byte[] buffer;
-    private int readPos = 0;
+    // the complete bytes that were written, but not read yet (see ByteRingBuffer)
+    private final ByteRingBuffer buffer;
     private int readBitPos = 0;
-    private int writePos = 0;
     private int writeBitPos = 0;
     private int writeBuf;
 
     //-----CONSTRUCTORS-----
     public ByteStream()
     {
-        this.buffer = new byte[8];
-        this.writePos = 0;
+        this.buffer = new ByteRingBuffer(8);
     }
 
     //-----PUBLIC METHODS-----
@@ -40,11 +40,15 @@ public class ByteStream implements BitReader, BitWriter
             throw new IllegalArgumentException("Number of bits must be between 1 and 32");
         }
 
+        if (!this.hasNext(numBits)) {
+            throw new IllegalStateException("Not enough bits left in the stream; requested " + numBits);
+        }
+
         int result = 0;
         int bitsRemaining = numBits;
 
         while (bitsRemaining > 0) {
-            int currentValue = this.buffer[this.readPos];
+            int currentValue = this.buffer.peek();
             int bitsAvailable = 8 - this.readBitPos;
             int bitsToRead = Math.min(bitsRemaining, bitsAvailable);
             int mask = (1 << bitsToRead) - 1;
@@ -55,8 +59,9 @@ public class ByteStream implements BitReader, BitWriter
             bitsRemaining -= bitsToRead;
             this.readBitPos += bitsToRead;
 
+            // the current byte is completely read, drop it from the buffer
             if (this.readBitPos >= 8) {
-                this.readPos++;
+                this.buffer.take();
                 this.readBitPos -= 8;
             }
         }
@@ -66,7 +71,7 @@ public class ByteStream implements BitReader, BitWriter
     @Override
     public boolean hasNext(int numBits)
     {
-        return (this.readPos * 8 + this.readBitPos + numBits) <= this.writePos * 8;
+        return this.readBitPos + numBits <= this.buffer.size() * 8L;
     }
     @Override
     public void write(int value, int numBits)
@@ -74,7 +79,8 @@ public class ByteStream implements BitReader, BitWriter
         if (numBits <= 0 || numBits > 32) {
             throw new IllegalArgumentException("Number of bits must be between 1 and 32");
         }
-        if (value >= (1 << numBits)) {
+        // note that the L is needed or the value overflows (1 << 32 == 1)
+        if (value >= (1L << numBits)) {
             throw new IllegalArgumentException("Value is too large for the specified number of bits");
         }
 
@@ -91,8 +97,7 @@ public class ByteStream implements BitReader, BitWriter
             this.writeBitPos += bitsToWrite;
 
             if (this.writeBitPos == 8) {
-                this.assertSpaceFor(1);
-                this.buffer[this.writePos++] = (byte) this.writeBuf;
+                this.buffer.put((byte) this.writeBuf);
                 this.writeBuf = 0;
                 this.writeBitPos = 0;
             }
@@ -101,6 +106,31 @@ public class ByteStream implements BitReader, BitWriter
         }
     }
     @Override
+    public void writeBytes(byte[] bytes, int off, int len)
+    {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+
+        // if we're byte aligned, we can just copy the bytes, otherwise, every byte needs to be shifted bit by bit
+        if (this.writeBitPos == 0) {
+            this.buffer.put(bytes, off, len);
+        }
+        else {
+            BitWriter.super.writeBytes(bytes, off, len);
+        }
+    }
+    @Override
+    public void readBytes(byte[] bytes, int off, int len)
+    {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+
+        if (this.readBitPos == 0) {
+            this.buffer.take(bytes, off, len);
+        }
+        else {
+            BitReader.super.readBytes(bytes, off, len);
+        }
+    }
+    @Override
     public void flush()
     {
         // Handle partial chunk if any
@@ -110,40 +140,16 @@ public class ByteStream implements BitReader, BitWriter
     }
     public long length()
     {
-        // the writePos is the position where the next byte will be written,
-        // so it's the length of all complete bytes
-        return this.writePos;
+        // all complete bytes that were ever written (note that this doesn't change when they're read back)
+        return this.buffer.written();
+    }
+    public long bitLength()
+    {
+        // same as length(), but including the bits of the byte we're currently building
+        return this.buffer.written() * 8L + this.writeBitPos;
     }
 
     //-----PROTECTED METHODS-----
 
     //-----PRIVATE METHODS-----
-    private void assertSpaceFor(int numBytes)
-    {
-        // the readPos is the position where the current (uncomplete) byte can be read
-        // as soon as a complete byte was read, the readPos is incremented to the next (empty) byte,
-        // so all positions before readPos can be assumed read
-
-        // the writePos is the position where the next byte will be written (the one we're currently building in writeBuf)
-
-        // compact if some bytes were already read back, so we don't grow indefinitely and hopefully don't have to grow at all
-        // this will copy the bytes starting from the current read position to the beginning of the buffer
-        if (this.readPos > 0) {
-            // let's keep the same length
-            byte[] newBuffer = new byte[this.buffer.length];
-            System.arraycopy(this.buffer, this.readPos, newBuffer, 0, this.buffer.length - this.readPos);
-            this.buffer = newBuffer;
-            // writePos should >= readPos, so this should always work
-            this.writePos -= this.readPos;
-            this.readPos = 0;
-        }
-
-        // copy to a new, larger buffer if we don't have any room left, despite compacting
-        if (this.writePos + numBytes > this.buffer.length) {
-            // let's use a grow ratio of x2, same as ArrayList
-            byte[] newBuffer = new byte[this.buffer.length * 2];
-            System.arraycopy(this.buffer, 0, newBuffer, 0, this.buffer.length);
-            this.buffer = newBuffer;
-        }
-    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import be.goudvuur.base.bbor62.ifaces.BitReader;
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+import be.goudvuur.base.bbor62.ifaces.Compressor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Converts standard (RFC 8949) cbor bytes to bbor62 and back, without building an object graph in between.
+ * <p>
+ * The trick is that bbor is cbor with a few additions, so our own Bbor.Decoder/Encoder read and write standard cbor
+ * when we disable those additions (see Bbor.RFC8949_CONFIG). We pull the tokens one by one from the decoder on one side
+ * (see Bbor.Decoder.readNext()) and push them straight into the encoder on the other side, which maps the keys and
+ * (de)compresses the strings on the fly, so the memory usage only depends on the largest string, not the document.
+ * <p>
+ * Note that we only support the cbor subset bbor supports itself: integers (the full 64-bit range), (in)definite length arrays,
+ * maps and strings (the chunks of an indefinite length string are joined, so it comes back as a definite length one), text keys,
+ * no tags except for the bignums and decimal fractions and no simple values except for false/true/null/undefined
+ * (undefined becomes null). Numbers follow the json model, so a float with an integer value (eg. 1.0) comes back as an integer.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class CborTranscoder
+{
+    //-----CONSTANTS-----
+
+    //-----VARIABLES-----
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    /**
+     * Converts the standard cbor bytes to a bbor62 string (same as Bbor62.encode() would return for the decoded value)
+     */
+    public static String toBbor62(byte[] cbor, Bbor62.Config config)
+    {
+        StringBuilder base62 = new StringBuilder();
+
+        toBbor(new BinaryStream.Decoder(cbor, 0, cbor.length), new BaseXStream.Encoder(base62::append, config.baseXConfig()), config);
+
+        return base62.toString();
+    }
+
+    /**
+     * Same as toBbor62(), but streams the cbor from the input stream and the base62 chars to the writer.
+     * Note that the writer is flushed, but not closed.
+     */
+    public static void toBbor62(InputStream cbor, Writer writer, Bbor62.Config config)
+    {
+        toBbor(new BinaryStream.Decoder(cbor), new BaseXStream.Encoder(writer, config.baseXConfig()), config);
+    }
+
+    /**
+     * Converts the bbor62 string back to standard cbor bytes
+     */
+    public static byte[] fromBbor62(CharSequence bbor62, Bbor62.Config config)
+    {
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+
+        fromBbor62(bbor62, cbor, config);
+
+        return cbor.toByteArray();
+    }
+
+    /**
+     * Same as fromBbor62(), but streams the cbor bytes to the output stream.
+     * Note that the stream is flushed, but not closed.
+     */
+    public static void fromBbor62(CharSequence bbor62, OutputStream cbor, Bbor62.Config config)
+    {
+        fromBbor(new BaseXStream.Decoder(bbor62, config.baseXConfig()), new BinaryStream.Encoder(cbor), config);
+    }
+
+    /**
+     * Reads one standard cbor value from the reader and writes it as bbor to the (base62) writer, see Bbor62.encode(T, BitWriter, Config).
+     * Note that the writer is flushed at the end.
+     */
+    public static void toBbor(BitReader cbor, BitWriter bbor, Bbor62.Config config)
+    {
+        // sync with Bbor62.encode()
+        transcode(cbor, new Bbor.Decoder(Bbor.RFC8949_CONFIG), null,
+                  bbor, new Bbor.Encoder(config.bborConfig()), new LZW(config.lzwConfig()));
+    }
+
+    /**
+     * Reads one bbor value from the (base62) reader and writes it as standard cbor to the writer, see Bbor62.decode(BitReader, Config).
+     * Note that the writer is flushed at the end.
+     */
+    public static void fromBbor(BitReader bbor, BitWriter cbor, Bbor62.Config config)
+    {
+        // sync with Bbor62.decode()
+        transcode(bbor, new Bbor.Decoder(config.bborConfig()), new LZW(config.lzwConfig()),
+                  cbor, new Bbor.Encoder(Bbor.RFC8949_CONFIG), null);
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    private static void transcode(BitReader reader, Bbor.Decoder decoder, Compressor decompressor,
+                                  BitWriter writer, Bbor.Encoder encoder, Compressor compressor)
+    {
+        // the decoder doesn't know when a top-level scalar ends (see Bbor.Decoder.read()),
+        // so we keep track of the nesting ourselves and stop when we're back at the top
+        int depth = 0;
+        do {
+            Bbor.Decoder.Token token = decoder.readNext(reader, decompressor);
+            if (token == null) {
+                throw new IllegalStateException("Unexpected end of the cbor stream");
+            }
+
+            switch (token) {
+                case START_OBJECT:
+                    // note that the decoder counts the fields as tokens too
+                    encoder.writeStartObject(writer, decoder.ctx.size == Bbor.INDEFINITE_LENGTH ? Bbor.INDEFINITE_LENGTH : decoder.ctx.size / 2);
+                    depth++;
+                    break;
+                case START_ARRAY:
+                    // the decoder returns byte strings as arrays (without a new context), see Bbor.Decoder.readNext()
+                    if (decoder.primitive == Bbor.Decoder.Primitive.BYTE_STRING) {
+                        encoder.writeBytes(writer, (byte[]) decoder.value);
+                    }
+                    else {
+                        encoder.writeStartArray(writer, decoder.ctx.size);
+                        depth++;
+                    }
+                    break;
+                case END_OBJECT:
+                    encoder.writeEndObject(writer);
+                    depth--;
+                    break;
+                case END_ARRAY:
+                    encoder.writeEndArray(writer);
+                    depth--;
+                    break;
+                case FIELD_NAME:
+                    // bbor uses number keys for the mapped fields, so we can't pass other keys through
+                    if (!(decoder.value instanceof String)) {
+                        throw new IllegalStateException("Only text keys are supported; " + decoder.value);
+                    }
+                    encoder.writeFieldName(writer, compressor, (String) decoder.value);
+                    break;
+                case VALUE_STRING:
+                    encoder.writeString(writer, compressor, (String) decoder.value);
+                    break;
+                case VALUE_NUMBER_INT:
+                    // note that the 64-bit integers that don't fit in a long come in as a BigInteger,
+                    // the encoder writes them as plain integers again in RFC8949_CONFIG (see Bbor.Config.enableJsSafeIntegers())
+                    if (decoder.primitive == Bbor.Decoder.Primitive.BYTE) {
+                        throw new IllegalStateException("Simple values are not supported; " + decoder.value);
+                    }
+                    encoder.writeNumber(writer, (Number) decoder.value);
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    encoder.writeNumber(writer, (Number) decoder.value);
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    encoder.writeBoolean(writer, (Boolean) decoder.value);
+                    break;
+                case VALUE_NULL:
+                    // note that this includes undefined, see Bbor.Encoder.write()
+                    encoder.writeNull(writer);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported token; " + token);
+            }
+        }
+        while (depth > 0);
+
+        // make sure to write the last base62 block if it's partial
+        writer.flush();
+    }
+}
@@ -58,6 +58,17 @@ public class LZW implements Compressor
          */
         boolean byteAlignMode();
 
+        /**
+         * Only has effect in byteAlignMode: when enabled, we only pad the bitstream when the decoder can't detect the end of it
+         * by itself and even then, we only write the end marker, not the zeros to fill up the byte.
+         * This means the stream doesn't end on a full byte anymore, and the bits after it can be used by whatever comes next
+         * (see Bbor.Encoder.writeString()). The decompressor is adjusted to stop at the exact end without eating the rest of the byte.
+         */
+        default boolean bitExactMode()
+        {
+            return false;
+        }
+
         /**
          * The initial static dict <String, Integer> that at least needs ASCII_ESCAPE_VAL (index 0) and UNICODE_ESCAPE_VAL (index 1)
          */
@@ -196,6 +207,48 @@ public class LZW implements Compressor
         }
     };
 
+    /**
+     * Same as the default, but in bit exact mode (see Config.bitExactMode())
+     */
+    public static final Config BIT_EXACT_CONFIG = new Config()
+    {
+        @Override
+        public boolean enableDynamicDict()
+        {
+            return DEFAULT_CONFIG.enableDynamicDict();
+        }
+        @Override
+        public int maxDictSize()
+        {
+            return DEFAULT_CONFIG.maxDictSize();
+        }
+        @Override
+        public boolean enableDictReset()
+        {
+            return DEFAULT_CONFIG.enableDictReset();
+        }
+        @Override
+        public boolean byteAlignMode()
+        {
+            return true;
+        }
+        @Override
+        public boolean bitExactMode()
+        {
+            return true;
+        }
+        @Override
+        public Map<Object, Object> staticDict()
+        {
+            return DEFAULT_CONFIG.staticDict();
+        }
+        @Override
+        public Map<Object, Object> staticDictRev()
+        {
+            return DEFAULT_CONFIG.staticDictRev();
+        }
+    };
+
     /**
      * Little string wrapper to also store it was new or not
      */
@@ -304,7 +357,22 @@ public class LZW implements Compressor
             ctx.dict.add(last, ctx.dict.size());
         }
 
-        if (this.config.byteAlignMode() && ctx.byteAlignVal > 0) {
+        if (this.config.byteAlignMode() && this.config.bitExactMode()) {
+
+            // The decoder knows the total byte length of the stream, so it stops as soon as the remaining bits in the last byte
+            // can't hold a full sequence anymore. That means we only need to mark the end if the remaining bits can hold one.
+            // In that case, we write ASCII_ESCAPE without the 8 bit char, the decoder detects this because it can't read 8 more bits.
+            // Note that this needs to be the number of bits the decoder will try to read next, so for a dynamic dict,
+            // we need to account for the 'hole' it leaves for the next lastPlusCurrent (see decompress())
+            int bitsUntilFullByte = (8 - ctx.byteAlignVal) % 8;
+            int bitsNeededForSeq = this.bitsNeeded(this.config.enableDynamicDict() ? ctx.dict.size() : ctx.dict.size() - 1);
+            if (bitsUntilFullByte >= bitsNeededForSeq) {
+                output.write(ASCII_ESCAPE_IDX, bitsNeededForSeq);
+                if (ENABLE_DEBUG) Logger.log("\t WRITE\t\t" + "end" + "\t\t(code ASC" + ", " + bitsNeededForSeq + " bits, size " + ctx.dict.size() + ")");
+            }
+            ctx.byteAlignVal = 0;
+        }
+        else if (this.config.byteAlignMode() && ctx.byteAlignVal > 0) {
 
             // As long as the decoder knows the total byte length of the stream, we don't need any extra dict chars to mark the end:
             // - if bitsNeededForSeq > bitsUntilFullByte:
@@ -499,7 +567,8 @@ public class LZW implements Compressor
                 // this is the special end case in byteAligned mode
                 if (this.config.byteAlignMode() && !input.hasNext(8)) {
                     // sync the input stream by reading the remaining bits until a full byte
-                    if (ctx.byteAlignVal > 0) {
+                    // (in bit exact mode, those bits belong to whatever comes next)
+                    if (ctx.byteAlignVal > 0 && !this.config.bitExactMode()) {
                         input.read(8 - ctx.byteAlignVal);
                     }
                     retVal = null;
@@ -552,7 +621,7 @@ public class LZW implements Compressor
         }
         // ead of stream; let's eat the remaining bits if we're in byteAligned mode
         else {
-            if (this.config.byteAlignMode() && ctx.byteAlignVal > 0) {
+            if (this.config.byteAlignMode() && ctx.byteAlignVal > 0 && !this.config.bitExactMode()) {
                 // sync the input stream by reading the remaining bits until a full byte
                 input.read(8 - ctx.byteAlignVal);
             }
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import be.goudvuur.base.bbor62.ifaces.BitReader;
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Bit reader and writer on top of a (possibly huge) file, for offline batch jobs.
+ * Instead of keeping everything in memory (like ByteStream or BaseXStream), we map a window of the file into memory
+ * (see FileChannel.map()) and roll it forward when we reach its end, so the heap usage is constant and the OS takes
+ * care of paging the data in and out.
+ * <p>
+ * Eg. to write the raw bbor bits of a huge document to a file and read it back:
+ * <pre>
+ * try (MappedFileStream.Writer writer = new MappedFileStream.Writer(path)) {
+ *     Bbor62.encode(value, writer, Bbor62.DEFAULT_CONFIG);
+ * }
+ * try (MappedFileStream.Reader reader = new MappedFileStream.Reader(path)) {
+ *     Object value = Bbor62.decode(reader, Bbor62.DEFAULT_CONFIG);
+ * }
+ * </pre>
+ * Note that the bits are written as they are (most significant bit first), there's no base62 conversion here.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class MappedFileStream
+{
+    //-----CONSTANTS-----
+    /**
+     * How much of the file we map into memory at once (64MB).
+     * Note that every window is a separate mapping that's only released when it's garbage collected,
+     * so don't make them too small (the OS limits the number of mappings per process).
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+    //-----VARIABLES-----
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static class Writer implements BitWriter, Closeable
+    {
+        private final FileChannel channel;
+        private final int windowSize;
+        // the mapped window we're writing to and its position in the file
+        private MappedByteBuffer window;
+        private long windowStart;
+        // the bits that don't form a complete byte yet (right-aligned, see AccumulatorByteStream)
+        private long acc;
+        private int accBits;
+
+        /**
+         * Creates (or truncates) the file and maps it in windows of DEFAULT_WINDOW_SIZE bytes
+         */
+        public Writer(Path file) throws IOException
+        {
+            this(file, DEFAULT_WINDOW_SIZE);
+        }
+        public Writer(Path file, int windowSize) throws IOException
+        {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("The window size must be positive; " + windowSize);
+            }
+
+            // note that we need read access to be able to map the file read-write
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.windowSize = windowSize;
+            this.window = null;
+            this.windowStart = 0;
+            this.acc = 0;
+            this.accBits = 0;
+        }
+
+        @Override
+        public void write(int value, int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+            // note that the L is needed or the value overflows
+            if (value >= (1L << numBits)) {
+                throw new IllegalArgumentException("Value is too large for the specified number of bits");
+            }
+
+            // the accumulator holds less than 8 bits, so there's room for 32 more
+            this.acc = (this.acc << numBits) | (value & ((1L << numBits) - 1));
+            this.accBits += numBits;
+            while (this.accBits >= 8) {
+                this.accBits -= 8;
+                this.putByte((byte) (this.acc >>> this.accBits));
+            }
+            this.acc &= (1L << this.accBits) - 1;
+        }
+        @Override
+        public void writeBytes(byte[] bytes, int off, int len)
+        {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+
+            // if we're byte aligned, we can copy the bytes into the window(s) directly
+            if (this.accBits == 0) {
+                while (len > 0) {
+                    if (this.window == null || !this.window.hasRemaining()) {
+                        this.nextWindow();
+                    }
+                    int numBytes = Math.min(len, this.window.remaining());
+                    this.window.put(bytes, off, numBytes);
+                    off += numBytes;
+                    len -= numBytes;
+                }
+            }
+            else {
+                BitWriter.super.writeBytes(bytes, off, len);
+            }
+        }
+        /**
+         * Pads the last byte with zero bits (if needed) and makes sure everything is written to the file
+         */
+        @Override
+        public void flush()
+        {
+            if (this.accBits > 0) {
+                this.write(0, 8 - this.accBits);
+            }
+            if (this.window != null) {
+                this.window.force();
+            }
+        }
+        /**
+         * The number of complete bytes written so far
+         */
+        public long length()
+        {
+            return this.window == null ? 0 : this.windowStart + this.window.position();
+        }
+        /**
+         * Flushes and cuts the file off at the end of the written data (the last window can be larger than that).
+         * Note that you need to close the writer, otherwise the file can end with zeros up to the end of the last window.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try {
+                this.flush();
+
+                long length = this.length();
+                // we can't unmap the window ourselves, that's up to the GC
+                this.window = null;
+                this.channel.truncate(length);
+            }
+            finally {
+                this.channel.close();
+            }
+        }
+
+        private void putByte(byte value)
+        {
+            if (this.window == null || !this.window.hasRemaining()) {
+                this.nextWindow();
+            }
+            this.window.put(value);
+        }
+
+        private void nextWindow()
+        {
+            long start = this.window == null ? 0 : this.windowStart + this.window.capacity();
+            try {
+                // note that mapping beyond the end of the file grows the file
+                this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, start, this.windowSize);
+                this.windowStart = start;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static class Reader implements BitReader, Closeable
+    {
+        private final FileChannel channel;
+        private final int windowSize;
+        private final long size;
+        // the mapped window we're reading from and its position in the file
+        private MappedByteBuffer window;
+        private long windowStart;
+        // the bits that were taken from the window, but not read yet (right-aligned, see AccumulatorByteStream)
+        private long acc;
+        private int accBits;
+
+        /**
+         * Opens the file and maps it in windows of DEFAULT_WINDOW_SIZE bytes
+         */
+        public Reader(Path file) throws IOException
+        {
+            this(file, DEFAULT_WINDOW_SIZE);
+        }
+        public Reader(Path file, int windowSize) throws IOException
+        {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("The window size must be positive; " + windowSize);
+            }
+
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.windowSize = windowSize;
+            this.size = this.channel.size();
+            this.window = null;
+            this.windowStart = 0;
+            this.acc = 0;
+            this.accBits = 0;
+        }
+
+        @Override
+        public int read(int numBits)
+        {
+            if (numBits <= 0 || numBits > Integer.SIZE) {
+                throw new IllegalArgumentException("Number of bits must be between 1 and " + Integer.SIZE);
+            }
+
+            // the accumulator holds less than 8 bits after every read, so there's room for 32 more
+            while (this.accBits < numBits) {
+                this.acc = (this.acc << 8) | (this.getByte() & 0xFF);
+                this.accBits += 8;
+            }
+
+            this.accBits -= numBits;
+            int retVal = (int) ((this.acc >>> this.accBits) & ((1L << numBits) - 1));
+            this.acc &= (1L << this.accBits) - 1;
+
+            return retVal;
+        }
+        @Override
+        public void readBytes(byte[] bytes, int off, int len)
+        {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+
+            // if we're byte aligned, we can copy the bytes from the window(s) directly
+            if (this.accBits == 0) {
+                if (len > this.size - this.position()) {
+                    throw new IllegalStateException("Not enough bytes left in the file; requested " + len + ", available " + (this.size - this.position()));
+                }
+                while (len > 0) {
+                    if (this.window == null || !this.window.hasRemaining()) {
+                        this.nextWindow();
+                    }
+                    int numBytes = Math.min(len, this.window.remaining());
+                    this.window.get(bytes, off, numBytes);
+                    off += numBytes;
+                    len -= numBytes;
+                }
+            }
+            else {
+                BitReader.super.readBytes(bytes, off, len);
+            }
+        }
+        @Override
+        public boolean hasNext(int numBits)
+        {
+            return this.accBits + (this.size - this.position()) * 8 >= numBits;
+        }
+        @Override
+        public void close() throws IOException
+        {
+            this.window = null;
+            this.channel.close();
+        }
+
+        /**
+         * The position in the file of the next byte that will be taken from the window
+         */
+        private long position()
+        {
+            return this.window == null ? 0 : this.windowStart + this.window.position();
+        }
+
+        private byte getByte()
+        {
+            if (this.window == null || !this.window.hasRemaining()) {
+                this.nextWindow();
+            }
+            return this.window.get();
+        }
+
+        private void nextWindow()
+        {
+            long start = this.window == null ? 0 : this.windowStart + this.window.capacity();
+            if (start >= this.size) {
+                throw new IllegalStateException("Not enough bits left in the file; reached the end at " + this.size + " bytes");
+            }
+
+            try {
+                this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(this.windowSize, this.size - start));
+                this.windowStart = start;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The shapes (ordered lists of field names) of the objects we've seen so far, indexed by the order they were defined in
+ * (see Bbor.Config.maxShapes()). Once a shape is defined, objects with the same fields only need to send its index,
+ * followed by their values, instead of a header and a reference for every field.
+ * <p>
+ * Unlike ValueDict, there's no eviction: the shapes of a payload are usually few and keep coming back, so when we're full,
+ * we just stop defining new ones. Note that the encoder and the decoder both keep one and they need to add the same shapes
+ * in the same order (when the object that defines it ends, see Bbor.Encoder.writeEndObject()).
+ *
+ * Created by agent on Oct 18, 2026
+ */
+public class ShapeDict
+{
+    //-----CONSTANTS-----
+    /**
+     * Objects with less fields are not worth a shape: the reference takes (at least) two bytes as well
+     */
+    public static final int MIN_SIZE = 2;
+
+    //-----VARIABLES-----
+    // shape -> index
+    private final Map<List<?>, Integer> indexes;
+    // index -> shape
+    private final List<List<Object>> shapes;
+    private final int maxSize;
+
+    //-----CONSTRUCTORS-----
+    public ShapeDict(int maxSize)
+    {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The size of the shape dictionary must be positive; " + maxSize);
+        }
+
+        this.indexes = new HashMap<>();
+        this.shapes = new ArrayList<>();
+        this.maxSize = maxSize;
+    }
+
+    //-----PUBLIC METHODS-----
+    /**
+     * Returns the index of the shape or -1 if we don't have it (encoder side)
+     */
+    public int indexOf(List<?> fields)
+    {
+        Integer retVal = this.indexes.get(fields);
+        return retVal == null ? -1 : retVal;
+    }
+    /**
+     * Returns the shape at the index or null if we don't have it (decoder side)
+     */
+    public List<Object> get(long index)
+    {
+        return index >= 0 && index < this.shapes.size() ? this.shapes.get((int) index) : null;
+    }
+    /**
+     * Adds a (copy of the) shape, unless we already have it or we're full
+     */
+    public void add(List<?> fields)
+    {
+        if (!this.isFull() && !this.indexes.containsKey(fields)) {
+            List<Object> shape = List.copyOf(fields);
+            this.indexes.put(shape, this.shapes.size());
+            this.shapes.add(shape);
+        }
+    }
+    public boolean isFull()
+    {
+        return this.shapes.size() >= this.maxSize;
+    }
+    public int size()
+    {
+        return this.shapes.size();
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+}
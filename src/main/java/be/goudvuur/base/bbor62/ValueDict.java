@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The string values we've seen so far, so exact repeats can be replaced by their index (see Bbor.Config.maxValueRefs()).
+ * This is the value counterpart of the field dictionary (see FlexDict), but since values are a lot more diverse than
+ * field names, it's bounded: when it's full, the least recently used value is evicted and its index is reused.
+ * Enum-like values (statuses, departments, tenant ids, ...) keep getting used, so they stay in.
+ * <p>
+ * Note that the encoder and the decoder both keep one and they need to stay in sync, so both sides need to call
+ * add() for every string value they write/read in full and indexOf()/get() for every reference.
+ *
+ * Created by agent on Oct 18, 2026
+ */
+public class ValueDict
+{
+    //-----CONSTANTS-----
+    /**
+     * Shorter strings are not added: a reference takes at least two bytes, so it wouldn't save anything
+     */
+    public static final int MIN_LENGTH = 3;
+
+    //-----VARIABLES-----
+    // value -> index, in access order, so the first entry is the least recently used one
+    private final LinkedHashMap<String, Integer> indexes;
+    // index -> value
+    private final List<String> values;
+    private final int maxSize;
+
+    //-----CONSTRUCTORS-----
+    public ValueDict(int maxSize)
+    {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The size of the value dictionary must be positive; " + maxSize);
+        }
+
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true);
+        this.values = new ArrayList<>();
+        this.maxSize = maxSize;
+    }
+
+    //-----PUBLIC METHODS-----
+    /**
+     * Returns the index of the value (and marks it as used) or -1 if we don't have it (encoder side)
+     */
+    public int indexOf(String value)
+    {
+        Integer retVal = this.indexes.get(value);
+        return retVal == null ? -1 : retVal;
+    }
+    /**
+     * Returns the value at the index (and marks it as used) or null if we don't have it (decoder side)
+     */
+    public String get(long index)
+    {
+        String retVal = null;
+
+        if (index >= 0 && index < this.values.size()) {
+            retVal = this.values.get((int) index);
+            // touch it, see indexOf()
+            this.indexes.get(retVal);
+        }
+
+        return retVal;
+    }
+    /**
+     * Adds the value if it's long enough (see MIN_LENGTH), evicting the least recently used value if we're full
+     */
+    public void add(String value)
+    {
+        if (value.length() >= MIN_LENGTH && !this.indexes.containsKey(value)) {
+            int index;
+            if (this.values.size() < this.maxSize) {
+                index = this.values.size();
+                this.values.add(value);
+            }
+            else {
+                Iterator<Map.Entry<String, Integer>> eldest = this.indexes.entrySet().iterator();
+                index = eldest.next().getValue();
+                eldest.remove();
+                this.values.set(index, value);
+            }
+            this.indexes.put(value, index);
+        }
+    }
+    public int size()
+    {
+        return this.values.size();
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+}
@@ -6,6 +6,8 @@
 
 package be.goudvuur.base.bbor62.ifaces;
 
+import java.util.Objects;
+
 /**
  * Created by bram on Nov 15, 2024
  */
@@ -23,6 +25,39 @@ public interface BitReader
      */
     int read(int numBits);
 
+    /**
+     * Reads len bytes (8 bits each) from the stream into the array, starting at off.
+     * Implementations can override this to copy the bytes in one go (eg. when the stream is byte aligned)
+     */
+    default void readBytes(byte[] bytes, int off, int len)
+    {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+
+        for (int i = off; i < off + len; i++) {
+            bytes[i] = (byte) this.read(8);
+        }
+    }
+
+    /**
+     * Reads numBits bits (max 64) from the stream as an unsigned long
+     */
+    default long readLong(int numBits)
+    {
+        if (numBits <= 0 || numBits > Long.SIZE) {
+            throw new IllegalArgumentException("Number of bits must be between 1 and " + Long.SIZE);
+        }
+
+        // see BitWriter.writeLong()
+        long retVal = 0;
+        if (numBits > Integer.SIZE) {
+            retVal = (this.read(numBits - Integer.SIZE) & 0xFFFFFFFFL) << Integer.SIZE;
+            numBits = Integer.SIZE;
+        }
+
+        // note the L, numBits can be 32
+        return retVal | (this.read(numBits) & ((1L << numBits) - 1));
+    }
+
     /**
      * Tests if numBits are available for reading
      */
@@ -6,6 +6,8 @@
 
 package be.goudvuur.base.bbor62.ifaces;
 
+import java.util.Objects;
+
 /**
  * Created by bram on Nov 15, 2024
  */
@@ -23,6 +25,39 @@ public interface BitWriter
      */
     void write(int value, int numBits);
 
+    /**
+     * Writes len bytes (8 bits each) of the array, starting at off.
+     * Implementations can override this to copy the bytes in one go (eg. when the stream is byte aligned)
+     */
+    default void writeBytes(byte[] bytes, int off, int len)
+    {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+
+        for (int i = off; i < off + len; i++) {
+            this.write(bytes[i] & 0xFF, 8);
+        }
+    }
+
+    /**
+     * Writes numBits bits (max 64) of the (unsigned) long value to the stream
+     */
+    default void writeLong(long value, int numBits)
+    {
+        if (numBits <= 0 || numBits > Long.SIZE) {
+            throw new IllegalArgumentException("Number of bits must be between 1 and " + Long.SIZE);
+        }
+        if (numBits < Long.SIZE && (value >>> numBits) != 0) {
+            throw new IllegalArgumentException("Value is too large for the specified number of bits");
+        }
+
+        // write the high part first, so the bits end up in the same order as a single write() would
+        if (numBits > Integer.SIZE) {
+            this.write((int) (value >>> Integer.SIZE), numBits - Integer.SIZE);
+            numBits = Integer.SIZE;
+        }
+        this.write((int) value, numBits);
+    }
+
     /**
      * Flushes trailing _write_ bits to the stream
      */
@@ -6,6 +6,10 @@
 
 package be.goudvuur.base.bbor62.ifaces;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
 /**
  * This class is inspired by com.fasterxml.jackson.core.JsonGenerator
  *
@@ -26,6 +30,19 @@ public interface CborGenerator
 
     CborGenerator writeNumber(BitWriter outputStream, Number value);
 
+    // primitive versions of writeNumber(), so we don't need to box every value
+    CborGenerator writeInt(BitWriter outputStream, int value);
+
+    CborGenerator writeLong(BitWriter outputStream, long value);
+
+    CborGenerator writeFloat(BitWriter outputStream, float value);
+
+    CborGenerator writeDouble(BitWriter outputStream, double value);
+
+    CborGenerator writeBigInteger(BitWriter outputStream, BigInteger value);
+
+    CborGenerator writeBigDecimal(BitWriter outputStream, BigDecimal value);
+
     CborGenerator writeString(BitWriter outputStream, Compressor compressor, String value);
 
     CborGenerator writeBytes(BitWriter outputStream, byte[] value);
@@ -38,6 +55,9 @@ public interface CborGenerator
 
     CborGenerator writeStartObject(BitWriter outputStream, long size);
 
+    // version of writeStartObject() for when we know the fields upfront (in the order they'll be written), so they can be sent as a shape
+    CborGenerator writeStartObject(BitWriter outputStream, List<String> keys);
+
     CborGenerator writeEndObject(BitWriter outputStream);
 
 }
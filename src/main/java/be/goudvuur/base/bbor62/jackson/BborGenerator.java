@@ -6,19 +6,28 @@
 
 package be.goudvuur.base.bbor62.jackson;
 
+import be.goudvuur.base.bbor62.AccumulatorByteStream;
 import be.goudvuur.base.bbor62.Bbor;
 import be.goudvuur.base.bbor62.ifaces.BitWriter;
 import be.goudvuur.base.bbor62.ifaces.Compressor;
 import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.base.GeneratorBase;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.type.WritableTypeId;
 import com.fasterxml.jackson.databind.*;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Streams;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,17 +35,64 @@ import java.util.Map;
  */
 public class BborGenerator extends GeneratorBase
 {
+    /**
+     * How we write the header of an object (bean) if Jackson doesn't tell us the number of fields upfront
+     */
+    public enum SizingMode
+    {
+        /**
+         * Count the fields that will be written first, so we can write a definite length header.
+         * This is the most compact, but it needs an extra pass over the conditional properties of the bean
+         * (and calls their getters twice), see PropertyPlan and Custom.MyBeanPropertyWriter.willSerializeAsField().
+         * Note that this needs the Custom.MyBeanSerializerFactory to be installed in the mapper (see Bbor62),
+         * objects we can't count (eg. a JsonNode) are written as indefinite length objects instead.
+         * Since we know exactly which fields will be written, this is also the only mode that can write beans as shapes
+         * (see Bbor.Config.maxShapes()).
+         */
+        COUNT,
+        /**
+         * Write a cbor indefinite length header and close the object with a break code, so we can serialize in a single pass.
+         * This costs one extra byte per object (the break), but doesn't need any counting.
+         */
+        INDEFINITE,
+        /**
+         * Write the fields of every object of unknown size to a temp buffer first and count them while they pass,
+         * so we can write a definite length header followed by the buffered fields when the object ends.
+         * Same output as COUNT, but every getter is called exactly once (think lazy proxies or computed fields)
+         * and it works for every object (eg. JsonNode, any getters, object ids, ...), not only the ones we can count upfront.
+         * The price is copying the encoded fields once for every nesting level, see ObjectBuffer.
+         */
+        BUFFER
+    }
+
     //-----CONSTANTS-----
+    // the property plans of the serializers we've seen, see PropertyPlan
+    // (the serializers are cached by their mapper, so weak keys make sure we don't keep them alive when the mapper is gone)
+    private static final Cache<JsonSerializer<?>, PropertyPlan> PROPERTY_PLANS = CacheBuilder.newBuilder().weakKeys().build();
 
     //-----VARIABLES-----
     private final Bbor.Encoder encoder;
     private final BitWriter writer;
     private final Compressor compressor;
     private final ObjectMapper mapper;
+    private final SizingMode sizingMode;
+    // the number of extra fields (type ids) the next writeStartObject(Object) needs to count, see writeTypePrefix()
+    private int extraFields;
+    // where the encoder writes to: the writer or the buffer of the innermost object we're buffering (see SizingMode.BUFFER)
+    private BitWriter out;
+    // the buffers of the objects we're in, indexed by nesting level; they're reused for all objects on the same level
+    private final List<ObjectBuffer> buffers;
+    private int numBuffers;
+    // the fields of the next bean we'll write as a shape (reused, the encoder copies what it needs to keep)
+    private final List<String> fieldNames;
 
     //-----CONSTRUCTORS-----
-    // see JsonFactory._createUTF8Generator()
     public BborGenerator(ObjectMapper mapper, IOContext ctxt, int features, Bbor.Encoder encoder, Compressor compressor)
+    {
+        this(mapper, ctxt, features, encoder, compressor, SizingMode.INDEFINITE);
+    }
+    // see JsonFactory._createUTF8Generator()
+    public BborGenerator(ObjectMapper mapper, IOContext ctxt, int features, Bbor.Encoder encoder, Compressor compressor, SizingMode sizingMode)
     {
         super(features, mapper, ctxt);
 
@@ -45,73 +101,110 @@ public class BborGenerator extends GeneratorBase
         this.compressor = compressor;
 
         this.mapper = mapper;
+        this.sizingMode = sizingMode;
+        this.extraFields = 0;
+        this.out = this.writer;
+        this.buffers = new ArrayList<>();
+        this.numBuffers = 0;
+        this.fieldNames = new ArrayList<>();
     }
 
     //-----PUBLIC METHODS-----
     @Override
     public void writeStartArray() throws IOException
     {
-        throw new IllegalStateException("unimplemented");
+        // eg. JsonNode, TokenBuffer, ... that don't pass the size
+        this.startContainer();
+        this.encoder.writeStartArray(this.out, Bbor.INDEFINITE_LENGTH);
     }
     @Override
     public void writeStartArray(int size) throws IOException
     {
-        this.encoder.writeStartArray(this.writer, size);
+        this.startContainer();
+        this.encoder.writeStartArray(this.out, size);
     }
     @Override
     public void writeStartArray(Object forValue) throws IOException
     {
         if (forValue instanceof Object[] e) {
-            this.writeStartObject(forValue, e.length);
+            this.writeStartArray(forValue, e.length);
         }
-        else if (forValue instanceof Iterable<?> e) {
-            this.writeStartObject(forValue, Iterables.size(e));
+        else if (forValue instanceof Collection<?> e) {
+            this.writeStartArray(forValue, e.size());
         }
         else {
-            throw new IllegalStateException("Can't determine size of array; " + forValue);
+            // eg. an Iterable or Iterator we can only walk once, so let's not count it upfront
+            this.writeStartArray();
         }
     }
     @Override
     public void writeStartArray(Object forValue, int size) throws IOException
     {
-        this.encoder.writeStartArray(this.writer, size);
+        this.startContainer();
+        this.encoder.writeStartArray(this.out, size);
     }
     @Override
     public void writeEndArray() throws IOException
     {
-        this.encoder.writeEndArray(this.writer);
+        this.encoder.writeEndArray(this.out);
+        this.endContainer();
     }
     @Override
     public void writeStartObject() throws IOException
     {
-        throw new IllegalStateException("unimplemented");
+        // eg. JsonNode, TokenBuffer, ... that don't pass the size
+        if (this.sizingMode == SizingMode.BUFFER) {
+            this.startBuffer();
+        }
+        else {
+            this.startContainer();
+            this.encoder.writeStartObject(this.out, Bbor.INDEFINITE_LENGTH);
+        }
     }
     @Override
     public void writeStartObject(Object forValue) throws IOException
     {
+        // a type id that's written as a property is added by the caller, right after this, see writeTypePrefix()
+        final int extraFields = this.extraFields;
+        this.extraFields = 0;
+
         if (forValue instanceof Map<?, ?> e) {
-            this.writeStartObject(forValue, e.size());
+            this.writeStartObject(forValue, e.size() + extraFields);
+        }
+        else if (this.sizingMode != SizingMode.COUNT || forValue == null) {
+            // note that this buffers the object in SizingMode.BUFFER
+            this.writeStartObject();
         }
         else {
             // didn't think this would be so hard, but essentially, this uses our wrapper BeanPropertyWriter
             // to execute the same code during serializing, but instead return true/false instead.
-            // The alternative was to implement cbor's variable-length objects encoding, but that wastes an extra byte
-            // for every object and I wanted to avoid that
+            // The alternative is cbor's variable-length objects encoding (see SizingMode.INDEFINITE),
+            // but that wastes an extra byte for every object
             try {
                 final SerializerProvider prov = this.mapper.getSerializerProviderInstance();
                 final JsonSerializer<Object> ser = prov.findValueSerializer(forValue.getClass());
-                final int count = (int) Streams.stream(ser.properties())
-                                               .filter(writer -> {
-                                                   try {
-                                                       return ((Custom.MyBeanPropertyWriter) writer).willSerializeAsField(forValue, prov);
-                                                   }
-                                                   catch (Exception e) {
-                                                       throw new RuntimeException("Error while checking if property would get serialized; " + writer, e);
-                                                   }
-                                               })
-                                               .count();
-
-                this.writeStartObject(forValue, count);
+                PropertyPlan plan = PROPERTY_PLANS.getIfPresent(ser);
+                if (plan == null) {
+                    plan = PropertyPlan.create(ser, forValue.getClass(), prov);
+                    PROPERTY_PLANS.put(ser, plan);
+                }
+
+                // views filter the properties at runtime (see BeanSerializerBase._filteredProps), so we can't use the plan
+                if (plan.countable && prov.getActiveView() == null) {
+                    // if we know all fields (a type id is written by the caller), the encoder can write the object as a shape
+                    if (extraFields == 0 && this.encoder.enableShapes()) {
+                        this.fieldNames.clear();
+                        plan.fieldNames(forValue, prov, this.fieldNames);
+                        this.startContainer();
+                        this.encoder.writeStartObject(this.out, this.fieldNames);
+                    }
+                    else {
+                        this.writeStartObject(forValue, plan.count(forValue, prov) + extraFields);
+                    }
+                }
+                else {
+                    this.writeStartObject();
+                }
             }
             catch (Exception e) {
                 throw new IOException("Can't determine size of object; " + forValue, e);
@@ -121,22 +214,51 @@ public class BborGenerator extends GeneratorBase
     @Override
     public void writeStartObject(Object forValue, int size) throws IOException
     {
-        this.encoder.writeStartObject(this.writer, size);
+        this.startContainer();
+        this.encoder.writeStartObject(this.out, size);
     }
     @Override
     public void writeEndObject() throws IOException
     {
-        this.encoder.writeEndObject(this.writer);
+        if (this.numBuffers > 0 && this.buffers.get(this.numBuffers - 1).depth == 0) {
+            this.endBuffer();
+        }
+        else {
+            this.encoder.writeEndObject(this.out);
+            this.endContainer();
+        }
+    }
+    @Override
+    public WritableTypeId writeTypePrefix(WritableTypeId typeIdDef) throws IOException
+    {
+        // this writes the type id as an extra field of the object if it's included as a property (eg. @JsonTypeInfo(include = PROPERTY)),
+        // so we need to count it in the header of that object, see writeStartObject(Object)
+        if (typeIdDef.valueShape == JsonToken.START_OBJECT && typeIdDef.include == WritableTypeId.Inclusion.METADATA_PROPERTY) {
+            this.extraFields = 1;
+        }
+        try {
+            return super.writeTypePrefix(typeIdDef);
+        }
+        finally {
+            this.extraFields = 0;
+        }
     }
     @Override
     public void writeFieldName(String name) throws IOException
     {
-        this.encoder.writeFieldName(this.writer, this.compressor, name);
+        // only count the fields of the buffered object itself, not the ones of the (non-buffered) maps inside it
+        if (this.numBuffers > 0) {
+            ObjectBuffer buffer = this.buffers.get(this.numBuffers - 1);
+            if (buffer.depth == 0) {
+                buffer.fields++;
+            }
+        }
+        this.encoder.writeFieldName(this.out, this.compressor, name);
     }
     @Override
     public void writeString(String text) throws IOException
     {
-        this.encoder.writeString(this.writer, this.compressor, text);
+        this.encoder.writeString(this.out, this.compressor, text);
     }
     @Override
     public void writeString(char[] buffer, int offset, int len) throws IOException
@@ -182,32 +304,44 @@ public class BborGenerator extends GeneratorBase
     @Override
     public void writeNumber(int v) throws IOException
     {
-        this.encoder.writeNumber(this.writer, v);
+        this.encoder.writeInt(this.out, v);
     }
     @Override
     public void writeNumber(long v) throws IOException
     {
-        this.encoder.writeNumber(this.writer, v);
+        this.encoder.writeLong(this.out, v);
     }
     @Override
     public void writeNumber(BigInteger v) throws IOException
     {
-        throw new IllegalStateException("not supported yet");
+        // same as the other Jackson generators
+        if (v == null) {
+            this.writeNull();
+        }
+        else {
+            this.encoder.writeBigInteger(this.out, v);
+        }
     }
     @Override
     public void writeNumber(double v) throws IOException
     {
-        this.encoder.writeNumber(this.writer, v);
+        this.encoder.writeDouble(this.out, v);
     }
     @Override
     public void writeNumber(float v) throws IOException
     {
-        this.encoder.writeNumber(this.writer, v);
+        this.encoder.writeFloat(this.out, v);
     }
     @Override
     public void writeNumber(BigDecimal v) throws IOException
     {
-        throw new IllegalStateException("not supported yet");
+        // same as the other Jackson generators
+        if (v == null) {
+            this.writeNull();
+        }
+        else {
+            this.encoder.writeBigDecimal(this.out, v);
+        }
     }
     @Override
     public void writeNumber(String encodedValue) throws IOException
@@ -217,12 +351,12 @@ public class BborGenerator extends GeneratorBase
     @Override
     public void writeBoolean(boolean state) throws IOException
     {
-        this.encoder.writeBoolean(this.writer, state);
+        this.encoder.writeBoolean(this.out, state);
     }
     @Override
     public void writeNull() throws IOException
     {
-        this.encoder.writeNull(this.writer);
+        this.encoder.writeNull(this.out);
     }
     @Override
     public void flush() throws IOException
@@ -243,4 +377,159 @@ public class BborGenerator extends GeneratorBase
     //-----PROTECTED METHODS-----
 
     //-----PRIVATE METHODS-----
+    /**
+     * Starts buffering a new object: everything that's written until the matching writeEndObject() goes to
+     * the (reused) buffer of the next nesting level instead of the current output, see endBuffer()
+     */
+    private void startBuffer()
+    {
+        if (this.numBuffers == this.buffers.size()) {
+            this.buffers.add(new ObjectBuffer());
+        }
+        ObjectBuffer buffer = this.buffers.get(this.numBuffers++);
+        buffer.fields = 0;
+        buffer.depth = 0;
+
+        this.out = buffer.body;
+    }
+
+    /**
+     * Writes the header of the buffered object (now that we know the number of fields) followed by its body to the
+     * output of the enclosing level. Note that the encoder doesn't keep track of where it writes to (only the order matters
+     * for the dictionaries), so writing the header after the body is fine.
+     */
+    private void endBuffer()
+    {
+        ObjectBuffer buffer = this.buffers.get(--this.numBuffers);
+        this.out = this.numBuffers == 0 ? this.writer : this.buffers.get(this.numBuffers - 1).body;
+
+        this.encoder.writeStartObject(this.out, buffer.fields);
+        buffer.body.transferTo(this.out);
+        this.encoder.writeEndObject(this.out);
+    }
+
+    /**
+     * Keeps track of the (non-buffered) containers inside the object we're buffering, so we know which fields
+     * and which writeEndObject() belong to that object
+     */
+    private void startContainer()
+    {
+        if (this.numBuffers > 0) {
+            this.buffers.get(this.numBuffers - 1).depth++;
+        }
+    }
+
+    private void endContainer()
+    {
+        if (this.numBuffers > 0) {
+            this.buffers.get(this.numBuffers - 1).depth--;
+        }
+    }
+
+    /**
+     * The encoded fields of an object we're buffering, see SizingMode.BUFFER
+     */
+    private static final class ObjectBuffer
+    {
+        private final AccumulatorByteStream body;
+        // the number of fields of the object itself
+        private int fields;
+        // the number of containers we're in, inside the object
+        private int depth;
+
+        private ObjectBuffer()
+        {
+            this.body = new AccumulatorByteStream();
+            this.fields = 0;
+            this.depth = 0;
+        }
+    }
+
+    /**
+     * What we know about the properties of a bean class, so we don't need to figure it out again for every instance.
+     * Most properties are always written (eg. primitives or everything if there's no @JsonInclude), so we count those once
+     * and only check the conditional ones per instance. If there are none (the usual case), counting is a no-op.
+     */
+    private static final class PropertyPlan
+    {
+        // the plan for everything we can't count, so it's written as an indefinite length object
+        private static final PropertyPlan UNCOUNTABLE = new PropertyPlan(false, 0, new Custom.MyBeanPropertyWriter[0], new Custom.MyBeanPropertyWriter[0]);
+
+        private final boolean countable;
+        private final int fixedCount;
+        private final Custom.MyBeanPropertyWriter[] conditional;
+        // all properties, in the order they're written
+        private final Custom.MyBeanPropertyWriter[] properties;
+
+        private PropertyPlan(boolean countable, int fixedCount, Custom.MyBeanPropertyWriter[] conditional, Custom.MyBeanPropertyWriter[] properties)
+        {
+            this.countable = countable;
+            this.fixedCount = fixedCount;
+            this.conditional = conditional;
+            this.properties = properties;
+        }
+
+        public static PropertyPlan create(JsonSerializer<?> ser, Class<?> type, SerializerProvider prov)
+        {
+            // only beans have properties we can count (eg. a JsonNode doesn't) and object ids replace the properties
+            // of the second occurrence of the same object, so we can't know upfront what will be written
+            if (!(ser instanceof BeanSerializerBase) || ser.usesObjectId()) {
+                return UNCOUNTABLE;
+            }
+
+            // any getters (@JsonAnyGetter) and filters (@JsonFilter) write fields we don't see in the properties below
+            BeanDescription beanDesc = prov.getConfig().introspect(prov.constructType(type));
+            if (beanDesc.findAnyGetter() != null || prov.getAnnotationIntrospector().findFilterId(beanDesc.getClassInfo()) != null) {
+                return UNCOUNTABLE;
+            }
+
+            int fixedCount = 0;
+            List<Custom.MyBeanPropertyWriter> conditional = new ArrayList<>();
+            List<Custom.MyBeanPropertyWriter> properties = new ArrayList<>();
+            for (Iterator<PropertyWriter> iter = ser.properties(); iter.hasNext(); ) {
+                PropertyWriter property = iter.next();
+                // these are created by our own serializer factory; if it's not installed (or eg. for @JsonUnwrapped), we can't count
+                if (!(property instanceof Custom.MyBeanPropertyWriter writer)) {
+                    return UNCOUNTABLE;
+                }
+                if (writer.isConditional()) {
+                    conditional.add(writer);
+                }
+                else {
+                    fixedCount++;
+                }
+                properties.add(writer);
+            }
+
+            return new PropertyPlan(true, fixedCount, conditional.toArray(new Custom.MyBeanPropertyWriter[0]),
+                                    properties.toArray(new Custom.MyBeanPropertyWriter[0]));
+        }
+
+        public int count(Object bean, SerializerProvider prov) throws Exception
+        {
+            int retVal = this.fixedCount;
+
+            final Custom.MyBeanPropertyWriter[] conditional = this.conditional;
+            for (int i = 0; i < conditional.length; i++) {
+                if (conditional[i].willSerializeAsField(bean, prov)) {
+                    retVal++;
+                }
+            }
+
+            return retVal;
+        }
+
+        /**
+         * Same as count(), but adds the names of the fields that will be written (in order) instead of counting them
+         */
+        public void fieldNames(Object bean, SerializerProvider prov, List<String> fieldNames) throws Exception
+        {
+            final Custom.MyBeanPropertyWriter[] properties = this.properties;
+            for (int i = 0; i < properties.length; i++) {
+                if (!properties[i].isConditional() || properties[i].willSerializeAsField(bean, prov)) {
+                    fieldNames.add(properties[i].getName());
+                }
+            }
+        }
+    }
 }
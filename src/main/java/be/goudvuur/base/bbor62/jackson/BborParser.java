@@ -251,13 +251,17 @@ public class BborParser extends ParserMinimalBase
     {
         switch (this.getNumberType()) {
             case INT:
-                return ((Long) this.decoder.value).intValue();
+                return this.getIntValue();
             case LONG:
-                return (long) this.decoder.value;
+                return this.getLongValue();
+            case BIG_INTEGER:
+                return this.getBigIntegerValue();
             case FLOAT:
-                return (float) this.decoder.value;
+                return this.getFloatValue();
             case DOUBLE:
-                return (double) this.decoder.value;
+                return this.getDoubleValue();
+            case BIG_DECIMAL:
+                return this.getDecimalValue();
         }
 
         this._throwInternal();
@@ -276,12 +280,15 @@ public class BborParser extends ParserMinimalBase
                 return intVal >= Integer.MIN_VALUE && intVal <= Integer.MAX_VALUE ? NumberType.INT : NumberType.LONG;
             case POSITIVE_BIGNUM:
             case NEGATIVE_BIGNUM:
-                return NumberType.LONG;
+                // the decoder only returns a BigInteger if it doesn't fit in a long
+                return this.decoder.value instanceof BigInteger ? NumberType.BIG_INTEGER : NumberType.LONG;
             case FLOAT16:
             case FLOAT32:
                 return NumberType.FLOAT;
             case FLOAT64:
                 return NumberType.DOUBLE;
+            case DECIMAL_FRACTION:
+                return NumberType.BIG_DECIMAL;
         }
 
         this._throwInternal();
@@ -290,32 +297,56 @@ public class BborParser extends ParserMinimalBase
     @Override
     public int getIntValue() throws IOException
     {
-        return ((Long) this.decoder.value).intValue();
+        // note that all of these are converted the Java way (Jackson would check the ranges, but let's keep it simple)
+        // and the decoder returns different types for the same token (eg. a Float or a Double for VALUE_NUMBER_FLOAT)
+        return ((Number) this.decoder.value).intValue();
     }
     @Override
     public long getLongValue() throws IOException
     {
-        return (long) this.decoder.value;
+        return ((Number) this.decoder.value).longValue();
     }
     @Override
     public BigInteger getBigIntegerValue() throws IOException
     {
-        throw new IllegalStateException("Unimplemented");
+        Object value = this.decoder.value;
+        if (value instanceof BigInteger e) {
+            return e;
+        }
+        else if (value instanceof Long e) {
+            return BigInteger.valueOf(e);
+        }
+        else {
+            return this.getDecimalValue().toBigInteger();
+        }
     }
     @Override
     public float getFloatValue() throws IOException
     {
-        return (float) this.decoder.value;
+        return ((Number) this.decoder.value).floatValue();
     }
     @Override
     public double getDoubleValue() throws IOException
     {
-        return (double) this.decoder.value;
+        return ((Number) this.decoder.value).doubleValue();
     }
     @Override
     public BigDecimal getDecimalValue() throws IOException
     {
-        throw new IllegalStateException("Unimplemented");
+        Object value = this.decoder.value;
+        if (value instanceof BigDecimal e) {
+            return e;
+        }
+        else if (value instanceof BigInteger e) {
+            return new BigDecimal(e);
+        }
+        else if (value instanceof Long e) {
+            return BigDecimal.valueOf(e);
+        }
+        else {
+            // same as Jackson does for floating point numbers: use the (shortest) textual representation, so eg. 0.1f becomes 0.1
+            return new BigDecimal(String.valueOf(value));
+        }
     }
     // edited from UTF8StreamJsonParser
     @Override
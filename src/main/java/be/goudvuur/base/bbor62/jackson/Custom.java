@@ -85,6 +85,17 @@ public class Custom
             super(propDef, member, contextAnnotations, declaredType, ser, typeSer, serType, suppressNulls, suppressableValue, includeInViews);
         }
 
+        /**
+         * Returns true if this property can be left out, depending on its value (see willSerializeAsField()).
+         * Note that this only depends on the configuration of the writer, so it can be cached together with the serializer.
+         */
+        public boolean isConditional()
+        {
+            // suppressed values (nulls, defaults, empties, ...) are left out and so are nulls if there's no null serializer
+            // (note that the self reference check below only leaves out the field if there's no null serializer either)
+            return _suppressableValue != null || _nullSerializer == null;
+        }
+
         /**
          * Tests if the field of the given bean will get serialized as a property.
          * This is basically a copy/paste of BeanPropertyWriter.serializeAsField(), but:
@@ -142,10 +153,11 @@ public class Custom
                         }
                     }
                     else if (prov.isEnabled(SerializationFeature.WRITE_SELF_REFERENCES_AS_NULL)) {
-                        return true;
+                        // the field is only written (as null) if we have a null serializer
+                        return _nullSerializer != null;
                     }
                 }
-                return false;
+                // note that _handleSelfReference() returning false means the value is serialized as usual
             }
 
             return true;
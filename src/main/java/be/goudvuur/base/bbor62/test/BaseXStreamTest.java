@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62.test;
+
+import be.goudvuur.base.bbor62.BaseXRangeStream;
+import be.goudvuur.base.bbor62.BaseXStream;
+import be.goudvuur.base.bbor62.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Differential test of the alternative BaseXStream decoders (parallel, incremental, windowed) against the sequential Decoder:
+ * we encode the same (random and all-0xff) data and check every decoder returns exactly the same bytes.
+ * The range coder (BaseXRangeStream) gets a plain round trip check, because it's not wire compatible with the others.
+ * Note that the all-0xff data is there on purpose: it produces a lot of squeezed blocks, so the block
+ * lengths vary and that's where the chunk and block boundaries are most likely to go wrong.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class BaseXStreamTest
+{
+    //-----CONSTANTS-----
+    private static final BaseXStream.Config[] CONFIGS = {
+                    BaseXStream.DEFAULT_CONFIG,
+                    BaseXStream.DENSE_CONFIG,
+                    new BaseXStream.ConfigBuilder(BaseXStream.BASE62_DICT, BaseXStream.BASE62_CHARS_PER_BLOCK).enableBitSqueezing(false).build(),
+                    // uses the default implementations of the derived tables
+                    minimalConfig(BaseXStream.DENSE_CONFIG),
+                    };
+
+    // the parallel decoder works in chunks of 8192 blocks of (roughly) 3 bytes, so make sure we span a couple of them
+    private static final int[] PARALLEL_SIZES = { 0, 1, 2, 3, 1000, 8192 * 3 - 1, 8192 * 3, 8192 * 3 + 1, 100_000, 250_001 };
+    // all small sizes, so some of them end exactly on a block boundary and others don't
+    private static final int MAX_INCREMENTAL_SIZE = 200;
+    private static final int INCREMENTAL_SPLITS = 20;
+    // note that the bulk decoder only kicks in from 4096 chars, so we need some big ones as well
+    private static final int[] WINDOW_SIZES = { 0, 1, 7, 100, 3000, 20_000 };
+    // valid chars on purpose, so reading outside of the window doesn't fail, but returns other bytes
+    private static final String WINDOW_PREFIX = "0123zZ";
+    private static final String WINDOW_SUFFIX = "zZ9876";
+    private static final BaseXStream.Config[] BIT_EXACT_CONFIGS = {
+                    BaseXStream.BIT_EXACT_CONFIG,
+                    new BaseXStream.ConfigBuilder(BaseXStream.BASE62_DICT, 5).enableBitExactMode(true).build(),
+                    };
+    private static final int MAX_BIT_EXACT_BITS = 300;
+    // the range encoder hands its chars to the consumer in batches of 4096, so the big one spans a couple of them
+    private static final int[] RANGE_SIZES = { 0, 1, 2, 3, 4, 5, 17, 100, 1000, 20_000 };
+    // the encoder hands its chars to the sinks in batches of 4096 (about 2944 bytes with 23 bits per 4 chars),
+    // so some of these fit in a single batch and others span a couple of them
+    private static final int[] SINK_SIZES = { 0, 1, 100, 2900, 2944, 3000, 6000, 20_000 };
+
+    //-----VARIABLES-----
+    private static int errors = 0;
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args)
+    {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 42);
+
+        for (BaseXStream.Config config : CONFIGS) {
+            for (int size : PARALLEL_SIZES) {
+                byte[] randomData = new byte[size];
+                random.nextBytes(randomData);
+                checkParallel(config, "random", randomData);
+
+                byte[] fullData = new byte[size];
+                Arrays.fill(fullData, (byte) 0xff);
+                checkParallel(config, "all-0xff", fullData);
+            }
+
+            int blockAligned = 0;
+            for (int size = 0; size <= MAX_INCREMENTAL_SIZE; size++) {
+                byte[] randomData = new byte[size];
+                random.nextBytes(randomData);
+                byte[] fullData = new byte[size];
+                Arrays.fill(fullData, (byte) 0xff);
+
+                for (byte[] data : new byte[][] { randomData, fullData }) {
+                    String encoded = encode(config, data);
+                    if (encoded.length() % config.charsPerBlock() == 0) {
+                        blockAligned++;
+                    }
+                    for (int split = 0; split < INCREMENTAL_SPLITS; split++) {
+                        // the first split feeds every char on its own
+                        checkIncremental(config, data, encoded, split == 0 ? 1 : 1 + random.nextInt(2 * config.charsPerBlock() + 1), random);
+                    }
+                }
+            }
+            if (blockAligned == 0) {
+                errors++;
+                Logger.log("ERROR!!! none of the incremental inputs ended on a block boundary (" + config.charsPerBlock() + " chars per block)");
+            }
+
+            for (int size : WINDOW_SIZES) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                checkWindows(config, data);
+            }
+
+            for (int size : SINK_SIZES) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                checkSinks(config, data);
+            }
+        }
+
+        for (BaseXStream.Config config : BIT_EXACT_CONFIGS) {
+            int blockAligned = 0;
+            for (int numBits = 0; numBits <= MAX_BIT_EXACT_BITS; numBits++) {
+                if (numBits % config.bitsPerBlock() == 0) {
+                    blockAligned++;
+                }
+                checkBitExact(config, numBits, random);
+            }
+            if (blockAligned < 2) {
+                errors++;
+                Logger.log("ERROR!!! not enough bit exact inputs that fill up their blocks exactly (" + config.charsPerBlock() + " chars per block)");
+            }
+
+            for (int size : SINK_SIZES) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                checkSinks(config, data);
+            }
+        }
+
+        for (BaseXStream.Config config : new BaseXStream.Config[] { BaseXStream.DEFAULT_CONFIG, BaseXStream.DENSE_CONFIG }) {
+            for (int size : RANGE_SIZES) {
+                byte[] randomData = new byte[size];
+                random.nextBytes(randomData);
+                checkRange(config, "random", randomData, random);
+                checkRange(config, "all-0x00", new byte[size], random);
+                byte[] fullData = new byte[size];
+                Arrays.fill(fullData, (byte) 0xff);
+                checkRange(config, "all-0xff", fullData, random);
+            }
+        }
+
+        for (BaseXStream.Config config : new BaseXStream.Config[] { BaseXStream.DEFAULT_CONFIG, BaseXStream.DENSE_CONFIG }) {
+            checkDefaultTables(config);
+        }
+
+        if (errors == 0) {
+            Logger.log("\nSUCCESS!!!");
+        }
+        else {
+            Logger.log("\nERROR!!! " + errors + " failures");
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    /**
+     * Wraps the config, but only implements the methods a Config needs to implement,
+     * so the derived tables are calculated by the default methods of the interface
+     */
+    private static BaseXStream.Config minimalConfig(BaseXStream.Config config)
+    {
+        return new BaseXStream.Config()
+        {
+            @Override
+            public String dict()
+            {
+                return config.dict();
+            }
+            @Override
+            public int charsPerBlock()
+            {
+                return config.charsPerBlock();
+            }
+            @Override
+            public boolean enableBitSqueezing()
+            {
+                return config.enableBitSqueezing();
+            }
+            @Override
+            public Map<Character, Integer> dictRev()
+            {
+                return config.dictRev();
+            }
+            @Override
+            public int radix()
+            {
+                return config.radix();
+            }
+            @Override
+            public int bitsPerBlock()
+            {
+                return config.bitsPerBlock();
+            }
+            @Override
+            public int maxBlockValue()
+            {
+                return config.maxBlockValue();
+            }
+            @Override
+            public int maxBlockCapacity()
+            {
+                return config.maxBlockCapacity();
+            }
+        };
+    }
+    /**
+     * The default implementations of the derived tables should return the same as the lookup tables of the ConfigBuilder
+     */
+    private static void checkDefaultTables(BaseXStream.Config config)
+    {
+        BaseXStream.Config minimal = minimalConfig(config);
+        String description = " of the default config implementation (" + config.charsPerBlock() + " chars per block)";
+
+        for (char c = 0; c < 256; c++) {
+            if (minimal.digit(c) != config.digit(c)) {
+                errors++;
+                Logger.log("ERROR!!! digit('" + c + "')" + description + " returned " + minimal.digit(c) + " instead of " + config.digit(c));
+            }
+        }
+        for (int numBits = 0; numBits <= config.bitsPerBlock(); numBits++) {
+            if (minimal.finalBlockChars(numBits) != config.finalBlockChars(numBits)) {
+                errors++;
+                Logger.log("ERROR!!! finalBlockChars(" + numBits + ")" + description + " returned " + minimal.finalBlockChars(numBits) + " instead of " + config.finalBlockChars(numBits));
+            }
+        }
+        for (int modulo = 0; modulo < BaseXStream.BITS_PER_BYTE; modulo++) {
+            for (int numChars = 0; numChars <= config.charsPerBlock(); numChars++) {
+                if (minimal.finalBlockBitLength(modulo, numChars) != config.finalBlockBitLength(modulo, numChars)) {
+                    errors++;
+                    Logger.log("ERROR!!! finalBlockBitLength(" + modulo + ", " + numChars + ")" + description + " returned " + minimal.finalBlockBitLength(modulo, numChars) +
+                               " instead of " + config.finalBlockBitLength(modulo, numChars));
+                }
+            }
+        }
+    }
+    private static String encode(BaseXStream.Config config, byte[] data)
+    {
+        StringBuilder retVal = new StringBuilder();
+
+        encode(new BaseXStream.Encoder(retVal::append, config), data);
+
+        return retVal.toString();
+    }
+    private static void encode(BaseXStream.Encoder encoder, byte[] data)
+    {
+        encoder.writeBytes(data, 0, data.length);
+        encoder.flush();
+    }
+    private static byte[] decode(BaseXStream.Decoder decoder)
+    {
+        ByteArrayOutputStream retVal = new ByteArrayOutputStream();
+
+        while (decoder.hasNext(BaseXStream.BITS_PER_BYTE)) {
+            retVal.write(decoder.read(BaseXStream.BITS_PER_BYTE));
+        }
+
+        return retVal.toByteArray();
+    }
+    private static void checkParallel(BaseXStream.Config config, String name, byte[] data)
+    {
+        String encoded = encode(config, data);
+        byte[] expected = decode(new BaseXStream.Decoder(encoded, config));
+        byte[] actual = new BaseXStream.ParallelDecoder(config).decode(encoded);
+
+        check("parallel decode of " + data.length + " " + name + " bytes (" + config.charsPerBlock() + " chars per block)", data, expected, actual);
+    }
+    private static void checkIncremental(BaseXStream.Config config, byte[] data, String encoded, int maxChunk, Random random)
+    {
+        byte[] expected = decode(new BaseXStream.Decoder(encoded, config));
+
+        // feed random chunks (so most of them start and end in the middle of a block) and read what's available in between
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        BaseXStream.IncrementalDecoder decoder = new BaseXStream.IncrementalDecoder(config);
+        int pos = 0;
+        while (pos < encoded.length()) {
+            int end = Math.min(encoded.length(), pos + 1 + random.nextInt(maxChunk));
+            decoder.feed(encoded.subSequence(pos, end));
+            pos = end;
+            while (decoder.hasNext(BaseXStream.BITS_PER_BYTE)) {
+                actual.write(decoder.read(BaseXStream.BITS_PER_BYTE));
+            }
+        }
+        decoder.endOfInput();
+        while (decoder.hasNext(BaseXStream.BITS_PER_BYTE)) {
+            actual.write(decoder.read(BaseXStream.BITS_PER_BYTE));
+        }
+
+        check("incremental decode of " + data.length + " bytes in chunks of max " + maxChunk + " chars (" + config.charsPerBlock() + " chars per block)",
+              data, expected, actual.toByteArray());
+    }
+    private static void checkWindows(BaseXStream.Config config, byte[] data)
+    {
+        String encoded = encode(config, data);
+        byte[] expected = decode(new BaseXStream.Decoder(encoded, config));
+
+        // embed the encoded data between a prefix and a suffix and only decode the part in between
+        String embedded = WINDOW_PREFIX + encoded + WINDOW_SUFFIX;
+        int start = WINDOW_PREFIX.length();
+        int end = start + encoded.length();
+        byte[] ascii = embedded.getBytes(StandardCharsets.US_ASCII);
+        String description = " decode of " + data.length + " bytes (" + config.charsPerBlock() + " chars per block)";
+
+        check("char sequence window" + description, data, expected, decode(new BaseXStream.Decoder(embedded, start, end, config)));
+        check("byte array window" + description, data, expected, decode(new BaseXStream.Decoder(ascii, start, encoded.length(), config)));
+
+        for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.wrap(ascii), ByteBuffer.allocateDirect(ascii.length).put(ascii) }) {
+            buffer.position(start).limit(end);
+            check((buffer.isDirect() ? "direct" : "heap") + " byte buffer window" + description, data, expected, decode(new BaseXStream.Decoder(buffer, config)));
+            if (buffer.position() != start || buffer.limit() != end) {
+                errors++;
+                Logger.log("ERROR!!! " + (buffer.isDirect() ? "direct" : "heap") + " byte buffer window" + description + " changed the position or limit of the buffer");
+            }
+        }
+    }
+    /**
+     * Every sink of the encoder (writer, stream, heap and direct buffer) should receive exactly the same chars
+     * as the consumer, and a buffer that's too small should overflow instead of silently dropping chars
+     */
+    private static void checkSinks(BaseXStream.Config config, byte[] data)
+    {
+        String expected = encode(config, data);
+        String description = " sink of " + data.length + " bytes (" + expected.length() + " chars, " + config.charsPerBlock() + " chars per block" +
+                             (config.enableBitExactMode() ? ", bit exact" : "") + ")";
+
+        StringWriter writer = new StringWriter();
+        encode(new BaseXStream.Encoder(writer, config), data);
+        checkSink("writer" + description, expected, writer.toString());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encode(new BaseXStream.Encoder(outputStream, config), data);
+        checkSink("output stream" + description, expected, outputStream.toString(StandardCharsets.US_ASCII));
+
+        for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(expected.length()), ByteBuffer.allocateDirect(expected.length()) }) {
+            encode(new BaseXStream.Encoder(buffer, config), data);
+            checkSink((buffer.isDirect() ? "direct" : "heap") + " byte buffer" + description, expected, StandardCharsets.US_ASCII.decode(buffer.flip()).toString());
+        }
+
+        // one byte short: the batches that fit should be there, but the one that doesn't should throw
+        if (!expected.isEmpty()) {
+            for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(expected.length() - 1), ByteBuffer.allocateDirect(expected.length() - 1) }) {
+                String name = "too small " + (buffer.isDirect() ? "direct" : "heap") + " byte buffer" + description;
+                try {
+                    encode(new BaseXStream.Encoder(buffer, config), data);
+                    errors++;
+                    Logger.log("ERROR!!! " + name + " didn't overflow");
+                }
+                catch (BufferOverflowException e) {
+                    String written = StandardCharsets.US_ASCII.decode(buffer.flip()).toString();
+                    if (!expected.startsWith(written)) {
+                        errors++;
+                        Logger.log("ERROR!!! " + name + " holds other chars than the start of the consumer chars");
+                    }
+                }
+            }
+        }
+    }
+    private static void checkSink(String description, String expected, String actual)
+    {
+        if (!expected.equals(actual)) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " returned " + actual.length() + " chars that differ from the " + expected.length() + " chars of the consumer");
+        }
+    }
+    /**
+     * In bit exact mode, the decoder should return exactly the bits we wrote, so reading bit by bit until hasNext() says
+     * there's nothing left should return the same number of bits, also when they fill up the last block exactly
+     * (the final block then only holds the end marker)
+     */
+    private static void checkBitExact(BaseXStream.Config config, int numBits, Random random)
+    {
+        boolean[] bits = new boolean[numBits];
+        StringBuilder encoded = new StringBuilder();
+        BaseXStream.Encoder encoder = new BaseXStream.Encoder(encoded::append, config);
+        for (int i = 0; i < numBits; i++) {
+            // mostly ones, so the blocks are squeezed as well
+            bits[i] = random.nextInt(4) != 0;
+            encoder.write(bits[i] ? 1 : 0, 1);
+        }
+        encoder.flush();
+
+        String description = "bit exact decode of " + numBits + " bits (" + config.charsPerBlock() + " chars per block)";
+        BaseXStream.Decoder decoder = new BaseXStream.Decoder(encoded, config);
+        BaseXStream.IncrementalDecoder incrementalDecoder = new BaseXStream.IncrementalDecoder(config);
+        incrementalDecoder.feed(encoded);
+        incrementalDecoder.endOfInput();
+        int numRead = 0;
+        while (decoder.hasNext(1) && numRead <= numBits) {
+            boolean bit = decoder.read(1) == 1;
+            if (numRead < numBits && bit != bits[numRead]) {
+                errors++;
+                Logger.log("ERROR!!! " + description + " returned a wrong bit at position " + numRead);
+                return;
+            }
+            if (!incrementalDecoder.hasNext(1) || incrementalDecoder.read(1) == 1 != bit) {
+                errors++;
+                Logger.log("ERROR!!! incremental " + description + " differs from the sequential decoder at position " + numRead);
+                return;
+            }
+            numRead++;
+        }
+        if (numRead != numBits) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " returned " + numRead + " bits");
+        }
+        else if (incrementalDecoder.hasNext(1)) {
+            errors++;
+            Logger.log("ERROR!!! incremental " + description + " returned more bits than the sequential decoder");
+        }
+    }
+    /**
+     * The range coder is not wire compatible with the block decoders, so we just check it restores the bits: first plain,
+     * then interleaved with modeled bits (see BaseXRangeStream.Encoder.writeBit()).
+     * Note that its decoder doesn't know where the data ends (see BaseXRangeStream.Decoder.hasNext()), so we read back the
+     * exact number of bytes we wrote.
+     */
+    private static void checkRange(BaseXStream.Config config, String name, byte[] data, Random random)
+    {
+        String description = "range decode of " + data.length + " " + name + " bytes (" + config.charsPerBlock() + " chars per block)";
+
+        StringBuilder encoded = new StringBuilder();
+        BaseXRangeStream.Encoder encoder = new BaseXRangeStream.Encoder(encoded::append, config);
+        for (byte b : data) {
+            encoder.write(b & 0xff, BaseXStream.BITS_PER_BYTE);
+        }
+        encoder.flush();
+        // flushing again without new bits shouldn't write anything
+        int length = encoded.length();
+        encoder.flush();
+        encoder.flush();
+        if (encoded.length() != length) {
+            errors++;
+            Logger.log("ERROR!!! repeated flush of the " + description + " added " + (encoded.length() - length) + " chars");
+        }
+
+        BaseXRangeStream.Decoder decoder = new BaseXRangeStream.Decoder(encoded, config);
+        byte[] actual = new byte[data.length];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = (byte) decoder.read(BaseXStream.BITS_PER_BYTE);
+        }
+        check(description, data, data, actual);
+
+        // every byte is followed by a modeled bit (always the first bit of that byte), with a random probability
+        int[] probs = new int[data.length];
+        encoded.setLength(0);
+        encoder = new BaseXRangeStream.Encoder(encoded::append, config);
+        for (int i = 0; i < data.length; i++) {
+            probs[i] = 1 + random.nextInt(BaseXRangeStream.PROB_ONE - 1);
+            encoder.write(data[i] & 0xff, BaseXStream.BITS_PER_BYTE);
+            encoder.writeBit((data[i] >>> 7) & 1, probs[i]);
+        }
+        encoder.flush();
+
+        decoder = new BaseXRangeStream.Decoder(encoded, config);
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = (byte) decoder.read(BaseXStream.BITS_PER_BYTE);
+            if (decoder.readBit(probs[i]) != ((data[i] >>> 7) & 1)) {
+                errors++;
+                Logger.log("ERROR!!! modeled " + description + " returned a wrong modeled bit at byte " + i);
+                return;
+            }
+        }
+        check("modeled " + description, data, data, actual);
+    }
+    private static void check(String description, byte[] data, byte[] expected, byte[] actual)
+    {
+        if (!Arrays.equals(data, expected)) {
+            errors++;
+            Logger.log("ERROR!!! sequential " + description + " doesn't return the input");
+        }
+        else if (!Arrays.equals(expected, actual)) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " differs from the sequential decoder");
+        }
+    }
+}
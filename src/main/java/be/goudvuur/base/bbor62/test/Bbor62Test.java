@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62.test;
+
+import be.goudvuur.base.bbor62.Bbor62;
+import be.goudvuur.base.bbor62.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Round trip tests of the public Bbor62 API: we encode a value, decode it again (through every overload that makes sense)
+ * and check we get back exactly what we put in.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class Bbor62Test
+{
+    //-----CONSTANTS-----
+    // valid chars on purpose, so reading outside of the window doesn't fail, but returns garbage
+    private static final String WINDOW_PREFIX = "0123zZ";
+    private static final String WINDOW_SUFFIX = "zZ9876";
+
+    //-----VARIABLES-----
+    private static int errors = 0;
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args) throws IOException
+    {
+        checkWindows();
+        checkSinks();
+
+        if (errors == 0) {
+            Logger.log("\nSUCCESS!!!");
+        }
+        else {
+            Logger.log("\nERROR!!! " + errors + " failures");
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    /**
+     * Embeds the encoded value between a prefix and a suffix and only decodes/parses the part in between
+     */
+    private static void checkWindows() throws IOException
+    {
+        Map<String, Object> small = new LinkedHashMap<>();
+        small.put("name", "Tech Innovators ā Inc.");
+        small.put("founded", 2010L);
+        small.put("skills", List.of("JavaScript", "Python", "AWS"));
+
+        // big enough to use the bulk decoder (note that integers are always decoded as longs)
+        List<Object> big = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            big.add(Map.of("id", "E" + i, "extension", (long) i));
+        }
+
+        for (Bbor62.Config config : new Bbor62.Config[] { Bbor62.DEFAULT_CONFIG, Bbor62.BIT_EXACT_CONFIG }) {
+            for (Object value : new Object[] { "", small, big }) {
+                String encoded = Bbor62.encode(value, config);
+                String description = " decode of " + encoded.length() + " chars" + (config == Bbor62.BIT_EXACT_CONFIG ? " (bit exact)" : "");
+                check("string" + description, value, Bbor62.decode(encoded, config));
+
+                String embedded = WINDOW_PREFIX + encoded + WINDOW_SUFFIX;
+                int start = WINDOW_PREFIX.length();
+                int end = start + encoded.length();
+                byte[] ascii = embedded.getBytes(StandardCharsets.US_ASCII);
+
+                check("char sequence window" + description, value, Bbor62.decode(embedded, start, end, config));
+                check("byte array window" + description, value, Bbor62.decode(ascii, start, encoded.length(), config));
+                for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.wrap(ascii), ByteBuffer.allocateDirect(ascii.length).put(ascii) }) {
+                    buffer.position(start).limit(end);
+                    check((buffer.isDirect() ? "direct" : "heap") + " byte buffer window" + description, value, Bbor62.decode(buffer, config));
+                }
+            }
+
+            TestPojo pojo = new TestPojo();
+            pojo.setValue(new TestPojo.Org());
+            pojo.getValue().setValue("Tech Innovators ā Inc.");
+            String encoded = Bbor62.generate(pojo, config);
+            String embedded = WINDOW_PREFIX + encoded + WINDOW_SUFFIX;
+            int start = WINDOW_PREFIX.length();
+            int end = start + encoded.length();
+            byte[] ascii = embedded.getBytes(StandardCharsets.US_ASCII);
+            String name = pojo.getValue().getValue();
+
+            check("char sequence window parse", name, Bbor62.parse(embedded, start, end, TestPojo.class, config).getValue().getValue());
+            check("byte array window parse", name, Bbor62.parse(ascii, start, encoded.length(), TestPojo.class, config).getValue().getValue());
+            for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.wrap(ascii), ByteBuffer.allocateDirect(ascii.length).put(ascii) }) {
+                buffer.position(start).limit(end);
+                check((buffer.isDirect() ? "direct" : "heap") + " byte buffer window parse", name, Bbor62.parse(buffer, TestPojo.class, config).getValue().getValue());
+            }
+        }
+    }
+    /**
+     * The writer and stream overloads of encode() and generate() should stream exactly the same chars as the string ones,
+     * both for values that fit in a single batch of the encoder and for values that span a couple of them
+     */
+    private static void checkSinks() throws IOException
+    {
+        Map<String, Object> small = new LinkedHashMap<>();
+        small.put("name", "Tech Innovators ā Inc.");
+        small.put("skills", List.of("JavaScript", "Python", "AWS"));
+
+        // way more than the 4096 chars of a batch
+        List<Object> big = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            big.add(Map.of("id", "E" + i, "extension", (long) i));
+        }
+
+        for (Bbor62.Config config : new Bbor62.Config[] { Bbor62.DEFAULT_CONFIG, Bbor62.BIT_EXACT_CONFIG }) {
+            for (Object value : new Object[] { "", small, big }) {
+                String expected = Bbor62.encode(value, config);
+                String description = " encode of " + expected.length() + " chars" + (config == Bbor62.BIT_EXACT_CONFIG ? " (bit exact)" : "");
+                StringWriter writer = new StringWriter();
+                Bbor62.encode(value, writer, config);
+                check("writer" + description, expected, writer.toString());
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                Bbor62.encode(value, outputStream, config);
+                check("output stream" + description, expected, outputStream.toString(StandardCharsets.US_ASCII));
+
+                expected = Bbor62.generate(value, config);
+                description = " generate of " + expected.length() + " chars" + (config == Bbor62.BIT_EXACT_CONFIG ? " (bit exact)" : "");
+                writer = new StringWriter();
+                Bbor62.generate(value, writer, config);
+                check("writer" + description, expected, writer.toString());
+                outputStream = new ByteArrayOutputStream();
+                Bbor62.generate(value, outputStream, config);
+                check("output stream" + description, expected, outputStream.toString(StandardCharsets.US_ASCII));
+            }
+        }
+    }
+    private static void check(String description, Object expected, Object actual)
+    {
+        if (!Objects.equals(expected, actual)) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " returned " + actual + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62.test;
+
+import be.goudvuur.base.bbor62.BaseXStream;
+import be.goudvuur.base.bbor62.Bbor;
+import be.goudvuur.base.bbor62.Bbor62;
+import be.goudvuur.base.bbor62.BinaryStream;
+import be.goudvuur.base.bbor62.CborTranscoder;
+import be.goudvuur.base.bbor62.LZW;
+import be.goudvuur.base.bbor62.Logger;
+import be.goudvuur.base.bbor62.ValueDict;
+import be.goudvuur.base.bbor62.ifaces.BitWriter;
+import be.goudvuur.base.bbor62.jackson.BborGenerator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.io.BaseEncoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Round trip tests of the Bbor encoder/decoder on the edge cases of the value types: we encode a value with the
+ * standard cbor config (so we can check the bytes it chose), decode it again and check we get back the exact same value.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class BborTest
+{
+    //-----CONSTANTS-----
+    private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Comparator<JsonNode> NUMBER_COMPARATOR = (n1, n2) -> n1.equals(n2) || (n1.isNumber() && n2.isNumber() && n1.decimalValue().compareTo(n2.decimalValue()) == 0) ? 0 : 1;
+
+    //-----VARIABLES-----
+    private static int errors = 0;
+
+    /**
+     * A bean that skips its null fields, so it has a different set of fields depending on what's set (see checkShapes())
+     * Note that we use Longs, because that's what the decoder returns for integers.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Record
+    {
+        public Long id;
+        public String status;
+        public String name;
+        public Boolean active;
+        public Record child;
+        public List<Record> kids;
+
+        public Record()
+        {
+        }
+        public Record(Long id, String status, String name, Boolean active)
+        {
+            this.id = id;
+            this.status = status;
+            this.name = name;
+            this.active = active;
+        }
+    }
+
+    /**
+     * A bean without conditional properties (note that a null is still written), that counts how often its getters are called,
+     * so we can check counting its fields doesn't call them (see checkPropertyPlans())
+     */
+    public static class Counted
+    {
+        private static int gets = 0;
+
+        private final long id;
+        private final String name;
+        private final boolean active;
+
+        public Counted(long id, String name, boolean active)
+        {
+            this.id = id;
+            this.name = name;
+            this.active = active;
+        }
+
+        public long getId()
+        {
+            gets++;
+            return this.id;
+        }
+        public String getName()
+        {
+            gets++;
+            return this.name;
+        }
+        public boolean isActive()
+        {
+            gets++;
+            return this.active;
+        }
+    }
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args) throws IOException
+    {
+        checkFloats();
+        checkBigNumbers();
+        checkPrimitiveWriters();
+        checkValueRefs();
+        checkShapes();
+        checkColumns();
+        checkSizingModes();
+        checkPropertyPlans();
+
+        if (errors == 0) {
+            Logger.log("\nSUCCESS!!!");
+        }
+        else {
+            Logger.log("\nERROR!!! " + errors + " failures");
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    /**
+     * Checks the width the encoder picks for the floats around the half/single/double boundaries and that we get back the exact value
+     */
+    private static void checkFloats() throws IOException
+    {
+        // value, expected encoding
+        Object[][] cases = {
+                        { 0.5, "f93800" },
+                        { 1.5f, "f93e00" },
+                        // the largest half and the first value that rounds to infinity as a half,
+                        // but since they're integers, they're written as such (see Bbor.Encoder.isInteger())
+                        { 65504.0, "19ffe0" },
+                        { 65520.0, "19fff0" },
+                        // the smallest half subnormal, the largest half subnormal and the smallest normal half
+                        { 5.9604644775390625E-8, "f90001" },
+                        { 6.097555160522461E-5, "f903ff" },
+                        { 6.103515625E-5, "f90400" },
+                        // half of the smallest half subnormal doesn't fit in a half anymore
+                        { 2.9802322387695312E-8, "fa33000000" },
+                        { (double) Float.MAX_VALUE, "fa7f7fffff" },
+                        { (double) Float.MIN_VALUE, "fa00000001" },
+                        // 2^63 is the first value that doesn't fit in a long, but it fits in a single
+                        { 9.223372036854775807E18, "fa5f000000" },
+                        // 0.1 has no exact half or single representation, so it must stay 64-bit (0.1f is a different value)
+                        { 0.1, "fb3fb999999999999a" },
+                        { 0.1f, "fa3dcccccd" },
+                        { Double.MIN_VALUE, "fb0000000000000001" },
+                        { Double.MAX_VALUE, "fb7fefffffffffffff" },
+                        // -0.0 is not an integer, we would lose the sign
+                        { -0.0, "f98000" },
+                        { -0.0f, "f98000" },
+                        { Double.NaN, "f97e00" },
+                        { Float.NaN, "f97e00" },
+                        { Double.POSITIVE_INFINITY, "f97c00" },
+                        { Double.NEGATIVE_INFINITY, "f9fc00" },
+                        { Float.NEGATIVE_INFINITY, "f9fc00" },
+                        };
+
+        for (Object[] c : cases) {
+            Number value = (Number) c[0];
+            String description = value.getClass().getSimpleName() + " " + value;
+
+            byte[] encoded = encode(value);
+            if (!HEX.encode(encoded).equals(c[1])) {
+                errors++;
+                Logger.log("ERROR!!! " + description + " is encoded as " + HEX.encode(encoded) + " instead of " + c[1]);
+            }
+
+            // note that the decoder returns a Float for halfs and singles and a Long for integers, so we compare the double bits
+            // (which also makes -0.0 differ from 0.0 and NaN equal itself)
+            checkSameDouble(description, value, decode(encoded));
+            // and the same through the full bbor62 stack
+            checkSameDouble(description + " (bbor62)", value, Bbor62.decode(Bbor62.encode(value, Bbor62.DEFAULT_CONFIG), Bbor62.DEFAULT_CONFIG));
+        }
+    }
+    /**
+     * Checks the encoding of the big integers and decimals in and just outside of the long range and that we get back an equal value
+     * (integers that fit in a long always come back as a Long, the rest as a BigInteger; decimals keep their scale)
+     */
+    private static void checkBigNumbers() throws IOException
+    {
+        BigInteger pow63 = BigInteger.ONE.shiftLeft(63);
+        BigInteger pow64 = BigInteger.ONE.shiftLeft(64);
+
+        // value, expected encoding (in standard cbor, so without the javascript limits, see Bbor.Config.enableJsSafeIntegers())
+        Object[][] cases = {
+                        // +-2^63 (only -2^63 fits in a long) and +-2^64 (only -2^64 fits in major type 1)
+                        { pow63, "1b8000000000000000" },
+                        { pow63.negate(), "3b7fffffffffffffff" },
+                        { pow64, "c249010000000000000000" },
+                        { pow64.negate(), "3bffffffffffffffff" },
+                        { pow64.subtract(BigInteger.ONE), "1bffffffffffffffff" },
+                        { pow64.negate().subtract(BigInteger.ONE), "c349010000000000000000" },
+                        // big integers that fit in a long are plain integers
+                        { BigInteger.ZERO, "00" },
+                        { BigInteger.valueOf(42), "182a" },
+                        { BigInteger.valueOf(-42), "3829" },
+                        { BigInteger.valueOf(Long.MAX_VALUE), "1b7fffffffffffffff" },
+                        // the scale is kept: 1.50 is [-2, 150], not [-1, 15]
+                        { new BigDecimal("1.50"), "c482211896" },
+                        { new BigDecimal("-1.50"), "c482213895" },
+                        { new BigDecimal("0.000"), "c4822200" },
+                        { new BigDecimal("1E+5"), "c4820501" },
+                        // a negative exponent with a bignum mantissa
+                        { new BigDecimal(pow64.multiply(BigInteger.TEN), 30), "c482381dc2490a0000000000000000" },
+                        { new BigDecimal(pow64.negate(), 3), "c482223bffffffffffffffff" },
+                        };
+
+        for (Object[] c : cases) {
+            Number value = (Number) c[0];
+            Object expected = value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE ? (Object) value.longValue() : value;
+            String description = value.getClass().getSimpleName() + " " + value;
+
+            byte[] encoded = encode(value);
+            if (!HEX.encode(encoded).equals(c[1])) {
+                errors++;
+                Logger.log("ERROR!!! " + description + " is encoded as " + HEX.encode(encoded) + " instead of " + c[1]);
+            }
+
+            check(description, expected, decode(encoded));
+            // with the javascript limits, everything outside of +-2^53 becomes a bignum, but it should come back the same
+            check(description + " (bbor62)", expected, Bbor62.decode(Bbor62.encode(value, Bbor62.DEFAULT_CONFIG), Bbor62.DEFAULT_CONFIG));
+        }
+    }
+    /**
+     * Checks the primitive writers (used by the Jackson generator) write the same bytes as writeNumber() with the boxed value
+     * around the integer, javascript safe integer and float width boundaries, with and without the javascript limits
+     */
+    private static void checkPrimitiveWriters() throws IOException
+    {
+        long pow53 = 1L << 53;
+        long[] longs = {
+                        0, 1, -1, 23, 24, -24, -25, 255, 256, -256, -257, 65535, 65536, -65536, -65537,
+                        Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L, 4294967295L, 4294967296L, -4294967296L, -4294967297L,
+                        pow53 - 1, pow53, pow53 + 1, -pow53 + 1, -pow53, -pow53 - 1,
+                        Long.MAX_VALUE, Long.MIN_VALUE,
+                        };
+        double[] doubles = {
+                        0.5, -0.5, 1.5, 65504.0, 65504.5, 65520.0, 5.9604644775390625E-8, 2.9802322387695312E-8, 6.103515625E-5,
+                        Float.MAX_VALUE, Float.MIN_VALUE, (double) Float.MAX_VALUE * 2, 0.1, Double.MIN_VALUE, Double.MAX_VALUE,
+                        // the integers just inside and outside of the javascript and long range
+                        pow53 - 1, pow53, -pow53, 9.223372036854775807E18, -9.223372036854775807E18, 1.8446744073709552E19,
+                        -0.0, 0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                        };
+
+        for (Bbor.Config config : new Bbor.Config[] { Bbor.RFC8949_CONFIG, Bbor.DEFAULT_CONFIG }) {
+            String suffix = config.enableJsSafeIntegers() ? " (javascript safe)" : "";
+            for (long value : longs) {
+                byte[] expected = write(config, (encoder, writer) -> encoder.writeNumber(writer, value));
+                checkSameBytes("writeLong(" + value + ")" + suffix, expected, write(config, (encoder, writer) -> encoder.writeLong(writer, value)));
+                checkSameBytes("writeBigInteger(" + value + ")" + suffix, expected, write(config, (encoder, writer) -> encoder.writeBigInteger(writer, BigInteger.valueOf(value))));
+                if (value == (int) value) {
+                    checkSameBytes("writeNumber(Integer " + value + ")" + suffix, expected, write(config, (encoder, writer) -> encoder.writeNumber(writer, (int) value)));
+                    checkSameBytes("writeInt(" + value + ")" + suffix, expected, write(config, (encoder, writer) -> encoder.writeInt(writer, (int) value)));
+                }
+            }
+            for (double value : doubles) {
+                byte[] expected = write(config, (encoder, writer) -> encoder.writeNumber(writer, value));
+                checkSameBytes("writeDouble(" + value + ")" + suffix, expected, write(config, (encoder, writer) -> encoder.writeDouble(writer, value)));
+
+                float floatValue = (float) value;
+                expected = write(config, (encoder, writer) -> encoder.writeNumber(writer, floatValue));
+                checkSameBytes("writeFloat(" + floatValue + ")" + suffix, expected, write(config, (encoder, writer) -> encoder.writeFloat(writer, floatValue)));
+                // a float is the same value as a double, so it should pick the same width as well
+                checkSameBytes("writeFloat(" + floatValue + ") as a double" + suffix, write(config, (encoder, writer) -> encoder.writeNumber(writer, (double) floatValue)),
+                               write(config, (encoder, writer) -> encoder.writeFloat(writer, floatValue)));
+            }
+        }
+
+        // the Jackson generator calls the primitive writers, encode() calls writeNumber()
+        List<Number> numbers = new ArrayList<>();
+        for (long value : longs) {
+            numbers.add(value);
+            if (value == (int) value) {
+                numbers.add((int) value);
+            }
+        }
+        for (double value : doubles) {
+            numbers.add(value);
+            numbers.add((float) value);
+        }
+        for (Number value : numbers) {
+            check("generate of " + value.getClass().getSimpleName() + " " + value, Bbor62.encode(value, Bbor62.DEFAULT_CONFIG), Bbor62.generate(value, Bbor62.DEFAULT_CONFIG));
+        }
+    }
+    /**
+     * Checks the value references stay in sync between the encoder and the decoder when the dictionary is full
+     * and the least recently used values get evicted (see ValueDict)
+     */
+    private static void checkValueRefs() throws IOException
+    {
+        // first the eviction order itself
+        ValueDict dict = new ValueDict(3);
+        dict.add("alpha");
+        dict.add("bravo");
+        dict.add("charlie");
+        // touch alpha, so bravo becomes the least recently used one
+        check("value dict touched index", 0, dict.indexOf("alpha"));
+        dict.add("delta");
+        check("value dict evicted value", -1, dict.indexOf("bravo"));
+        check("value dict reused index", 1, dict.indexOf("delta"));
+        check("value dict value of reused index", "delta", dict.get(1));
+        check("value dict size", 3, dict.size());
+        // too short to be added
+        dict.add("ab");
+        check("value dict short value", -1, dict.indexOf("ab"));
+
+        // more distinct values than fit in the dictionary, in an order that keeps evicting the ones that come back later
+        List<Object> values = new ArrayList<>();
+        for (String value : new String[] { "alpha", "bravo", "charlie", "alpha", "delta", "bravo", "alpha", "charlie", "echo", "delta", "alpha", "foxtrot", "bravo", "bravo" }) {
+            values.add(value);
+        }
+        Random random = new Random(42);
+        String[] statuses = { "active", "inactive", "pending", "archived", "deleted", "unknown" };
+        List<Object> records = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("status", statuses[random.nextInt(statuses.length)]);
+            // a key that's also a value, keys don't go in the value dictionary
+            record.put(statuses[random.nextInt(statuses.length)], statuses[random.nextInt(statuses.length)]);
+            record.put("tags", List.of(statuses[random.nextInt(statuses.length)], "ab"));
+            records.add(record);
+        }
+
+        for (BborGenerator.SizingMode sizingMode : BborGenerator.SizingMode.values()) {
+            Bbor62.Config config = config(3, 0, false, sizingMode);
+            for (Object value : new Object[] { values, records }) {
+                checkRoundTrip("value refs (" + sizingMode + ")", value, config);
+            }
+        }
+
+        // make sure we actually wrote references (note that we can't expect it to be smaller,
+        // with this many misses, the LZW dictionary does about as good a job on its own)
+        String plain = Bbor62.encode(records, Bbor62.DEFAULT_CONFIG);
+        String refs = Bbor62.encode(records, config(3, 0, false, BborGenerator.SizingMode.INDEFINITE));
+        if (refs.equals(plain)) {
+            errors++;
+            Logger.log("ERROR!!! value refs didn't change the encoding of the records");
+        }
+    }
+    /**
+     * Checks the object shapes in every sizing mode: repeated shapes, subsets of the last shape (presence bitmap),
+     * shapes defined inside of shape definitions and a full shape dictionary
+     */
+    private static void checkShapes() throws IOException
+    {
+        Random random = new Random(42);
+        String[] statuses = { "active", "inactive", "pending", "archived" };
+
+        // the same fields over and over again
+        List<Record> repeated = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            repeated.add(new Record((long) i, statuses[random.nextInt(statuses.length)], "user" + i, i % 2 == 0));
+        }
+
+        // every other record leaves out some fields (null fields are skipped), so it's a subset of the previous one
+        List<Record> subsets = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Record record = new Record((long) i, statuses[random.nextInt(statuses.length)], "user" + i, true);
+            if (i % 2 == 1) {
+                record.status = random.nextBoolean() ? null : record.status;
+                record.name = null;
+                record.active = random.nextBoolean() ? null : false;
+            }
+            subsets.add(record);
+        }
+
+        // the first record defines its shape and the shapes of its children while the outer definition is still open
+        List<Record> nested = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Record record = new Record((long) i, statuses[i % statuses.length], "parent" + i, null);
+            record.child = new Record(-(long) i, "child", null, true);
+            record.child.child = new Record(null, "grandchild", "deep" + i, false);
+            if (i % 3 == 0) {
+                record.kids = List.of(new Record((long) i, "kid", null, null), new Record(null, "kid", "kid" + i, null));
+            }
+            nested.add(record);
+        }
+
+        for (BborGenerator.SizingMode sizingMode : BborGenerator.SizingMode.values()) {
+            for (int maxShapes : new int[] { 2, 64 }) {
+                Bbor62.Config config = config(0, maxShapes, false, sizingMode);
+                String description = "shapes (" + sizingMode + ", max " + maxShapes + ")";
+                for (List<Record> records : List.of(repeated, subsets, nested)) {
+                    Object tree = MAPPER.convertValue(records, Object.class);
+                    // the maps (note that encode() always knows the fields, so it always uses shapes)
+                    checkRoundTrip(description, tree, config);
+                    // the beans (only COUNT and BUFFER know the fields before they write them)
+                    String generated = Bbor62.generate(records, config);
+                    check(description + " beans", tree, Bbor62.decode(generated, config));
+                    // Note that we parse back to the beans, Jackson would return Integers for the small integers otherwise
+                    check(description + " beans parse", tree, MAPPER.convertValue(Bbor62.parse(generated, Record[].class, config), List.class));
+                }
+            }
+        }
+
+        // more distinct field sets than fit in the dictionary, the rest must be written as regular maps
+        List<Object> full = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Map<String, Object> value = new LinkedHashMap<>();
+            switch (i % 4) {
+                case 0 -> { value.put("a", (long) i); value.put("b", "x" + i); }
+                case 1 -> { value.put("c", (long) i); value.put("d", true); }
+                case 2 -> { value.put("e", "y" + i); value.put("f", null); value.put("g", (long) -i); }
+                default -> { value.put("a", (long) i); value.put("b", "z" + i); value.put("h", false); }
+            }
+            full.add(value);
+        }
+        for (BborGenerator.SizingMode sizingMode : BborGenerator.SizingMode.values()) {
+            checkRoundTrip("full shapes (" + sizingMode + ")", full, config(0, 2, false, sizingMode));
+        }
+
+        // make sure we actually wrote shapes
+        if (Bbor62.generate(repeated, config(0, 64, false, BborGenerator.SizingMode.COUNT)).equals(Bbor62.generate(repeated, Bbor62.DEFAULT_CONFIG))) {
+            errors++;
+            Logger.log("ERROR!!! shapes didn't change the encoding of the records");
+        }
+    }
+    /**
+     * Checks the columnar arrays: too few rows, the different kinds of columns, deltas that would overflow,
+     * columnar arrays nested in other values and reading them through the Jackson parser and the transcoder
+     */
+    private static void checkColumns() throws IOException
+    {
+        Bbor62.Config config = config(0, 0, true, BborGenerator.SizingMode.INDEFINITE);
+
+        // below MIN_COLUMN_ROWS, the array is written as usual
+        for (int size = 0; size <= Bbor.MIN_COLUMN_ROWS + 1; size++) {
+            List<Object> rows = columnRows(size);
+            checkColumnsRoundTrip("columns of " + size + " rows", rows, config);
+            boolean columnar = !Bbor62.encode(rows, config).equals(Bbor62.encode(rows, Bbor62.DEFAULT_CONFIG));
+            if (columnar != size >= Bbor.MIN_COLUMN_ROWS) {
+                errors++;
+                Logger.log("ERROR!!! columns of " + size + " rows " + (columnar ? "were" : "weren't") + " written as columns");
+            }
+        }
+
+        // deltas that overflow a long: Long.MAX_VALUE next to a negative value (and the other way around)
+        List<Object> overflow = new ArrayList<>();
+        for (long value : new long[] { Long.MAX_VALUE, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0L, Long.MIN_VALUE, 1L }) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", value);
+            row.put("count", -value / 2);
+            overflow.add(row);
+        }
+        checkColumnsRoundTrip("columns with overflowing deltas", overflow, config);
+
+        // columnar arrays inside of other values (a column only holds simple values, so the outer array of rows
+        // with a columnar array in every row is written row by row, but the inner ones are columnar again)
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("first", columnRows(10));
+        nested.put("second", columnRows(5));
+        List<Object> outer = new ArrayList<>();
+        for (int i = 0; i < Bbor.MIN_COLUMN_ROWS * 2; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", (long) i);
+            row.put("rows", columnRows(Bbor.MIN_COLUMN_ROWS + i));
+            outer.add(row);
+        }
+        nested.put("outer", outer);
+        nested.put("lists", List.of(columnRows(6), List.of(columnRows(7), "x"), columnRows(2)));
+        checkColumnsRoundTrip("nested columns", nested, config);
+
+        // the decoded rows are assembled once, so a change to a row sticks (like in a regular list)
+        List<?> decoded = (List<?>) Bbor62.decode(Bbor62.encode(columnRows(10), config), config);
+        if (decoded.get(3) != decoded.get(3)) {
+            errors++;
+            Logger.log("ERROR!!! the rows of a columnar array are assembled more than once");
+        }
+    }
+    /**
+     * Checks the values Jackson writes without a field or element count (a tree, a replayed token buffer and a streamed iterable)
+     * round trip through generate() in every sizing mode, starting with the default one (indefinite length objects)
+     */
+    private static void checkSizingModes() throws IOException
+    {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Record record = new Record((long) i, i % 2 == 0 ? "active" : "pending", "user" + i, i % 3 == 0 ? null : i % 2 == 0);
+            record.child = new Record(-(long) i, "child", null, true);
+            records.add(record);
+        }
+        JsonNode expected = MAPPER.valueToTree(records);
+
+        TokenBuffer tokens = new TokenBuffer(MAPPER, false);
+        MAPPER.writeValue(tokens, records);
+        // Note that a lambda is not a collection, so Jackson can't know the number of elements before it's done
+        Iterable<Record> iterable = () -> records.iterator();
+
+        List<Bbor62.Config> configs = new ArrayList<>();
+        configs.add(Bbor62.DEFAULT_CONFIG);
+        for (BborGenerator.SizingMode sizingMode : BborGenerator.SizingMode.values()) {
+            configs.add(config(0, 0, false, sizingMode));
+        }
+        for (Bbor62.Config config : configs) {
+            String description = (config == Bbor62.DEFAULT_CONFIG ? "default" : config.sizingMode().toString()) + " sizing mode generate of ";
+            for (Map.Entry<String, Object> value : Map.of("a json node", expected, "a token buffer", tokens, "an iterable", iterable).entrySet()) {
+                // compare as trees, so the numbers are compared by value (the decoder returns Longs, see ComparisonTest)
+                JsonNode actual = MAPPER.valueToTree(Bbor62.decode(Bbor62.generate(value.getValue(), config), config));
+                if (!expected.equals(NUMBER_COMPARATOR, actual)) {
+                    errors++;
+                    Logger.log("ERROR!!! " + description + value.getKey() + " returned " + actual + " instead of " + expected);
+                }
+            }
+        }
+
+        // the default writes a break byte after every object instead of counting its fields first
+        if (Bbor62.DEFAULT_CONFIG.sizingMode() != BborGenerator.SizingMode.INDEFINITE ||
+            Bbor62.generate(records, Bbor62.DEFAULT_CONFIG).equals(Bbor62.generate(records, config(0, 0, false, BborGenerator.SizingMode.COUNT)))) {
+            errors++;
+            Logger.log("ERROR!!! the default sizing mode doesn't write indefinite length objects");
+        }
+    }
+    /**
+     * Checks the field counts of the (cached) property plans in COUNT mode: a bean without conditional properties is counted
+     * without calling a single getter and a bean with @JsonInclude(NON_NULL) gets the same header as when we buffer its fields
+     */
+    private static void checkPropertyPlans() throws IOException
+    {
+        Bbor62.Config count = config(0, 0, false, BborGenerator.SizingMode.COUNT);
+        Bbor62.Config buffer = config(0, 0, false, BborGenerator.SizingMode.BUFFER);
+
+        // more than one, so the second one uses the cached plan
+        List<Counted> counted = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            counted.add(new Counted(i, i % 2 == 0 ? "user" + i : null, i % 3 == 0));
+        }
+        Counted.gets = 0;
+        String generated = Bbor62.generate(counted, count);
+        // every getter is called exactly once, to write the field
+        check("getter calls of COUNT generate", counted.size() * 3, Counted.gets);
+        check("COUNT generate of beans without conditional properties", Bbor62.generate(counted, buffer), generated);
+        JsonNode expected = MAPPER.valueToTree(counted);
+        JsonNode actual = MAPPER.valueToTree(Bbor62.decode(generated, count));
+        if (!expected.equals(NUMBER_COMPARATOR, actual)) {
+            errors++;
+            Logger.log("ERROR!!! COUNT generate of beans without conditional properties returned " + actual + " instead of " + expected);
+        }
+
+        // every combination of null fields, so every count from zero to all fields (BUFFER counts the fields it actually wrote)
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            records.add(new Record((i & 1) == 0 ? null : (long) i, (i & 2) == 0 ? null : "active", (i & 4) == 0 ? null : "user" + i, (i & 8) == 0 ? null : true));
+        }
+        generated = Bbor62.generate(records, count);
+        check("COUNT generate of NON_NULL beans", Bbor62.generate(records, buffer), generated);
+        check("COUNT generate of NON_NULL beans parse", MAPPER.convertValue(records, List.class),
+              MAPPER.convertValue(Bbor62.parse(generated, Record[].class, count), List.class));
+    }
+    /**
+     * Returns rows with every kind of column: integers (deltas), booleans, strings, nulls and mixed values
+     */
+    private static List<Object> columnRows(int size)
+    {
+        List<Object> retVal = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", 1000L + i * 3L);
+            row.put("active", i % 3 == 0);
+            row.put("status", i % 2 == 0 ? "active" : "pending");
+            row.put("none", null);
+            row.put("mixed", switch (i % 5) {
+                case 0 -> null;
+                case 1 -> true;
+                case 2 -> "text" + i;
+                case 3 -> 1.5f;
+                default -> (long) -i;
+            });
+            retVal.add(row);
+        }
+        return retVal;
+    }
+    private static void checkColumnsRoundTrip(String description, Object value, Bbor62.Config config) throws IOException
+    {
+        checkRoundTrip(description, value, config);
+        // and through the Jackson parser (as a tree, so we can compare the numbers by value, see ComparisonTest)
+        JsonNode parsed = Bbor62.parse(Bbor62.encode(value, config), JsonNode.class, config);
+        JsonNode expected = MAPPER.valueToTree(value);
+        if (!expected.equals(NUMBER_COMPARATOR, parsed)) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " parse returned " + parsed + " instead of " + expected);
+        }
+    }
+    /**
+     * Round trips the value through encode(), generate() and (after the first) the transcoder and checks we get back an equal value
+     */
+    private static void checkRoundTrip(String description, Object value, Bbor62.Config config) throws IOException
+    {
+        String encoded = Bbor62.encode(value, config);
+        check(description + " encode", value, Bbor62.decode(encoded, config));
+        check(description + " generate", value, Bbor62.decode(Bbor62.generate(value, config), config));
+        check(description + " transcode", value, Bbor62.decode(CborTranscoder.toBbor62(CborTranscoder.fromBbor62(encoded, config), config), config));
+    }
+    private static void check(String description, Object expected, Object actual)
+    {
+        if (!Objects.equals(expected, actual)) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " returned " + actual + " (" + (actual == null ? null : actual.getClass().getSimpleName()) + ") instead of " + expected);
+        }
+    }
+    private static void checkSameDouble(String description, Number expected, Object actual)
+    {
+        if (!(actual instanceof Number) || Double.doubleToLongBits(((Number) actual).doubleValue()) != Double.doubleToLongBits(expected.doubleValue())) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " is decoded as " + actual);
+        }
+    }
+    private static void checkSameBytes(String description, byte[] expected, byte[] actual)
+    {
+        if (!Arrays.equals(expected, actual)) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " is encoded as " + HEX.encode(actual) + " instead of " + HEX.encode(expected) + " (writeNumber)");
+        }
+    }
+    private static Bbor62.Config config(int maxValueRefs, int maxShapes, boolean enableColumns, BborGenerator.SizingMode sizingMode)
+    {
+        Bbor.Config bborConfig = new Bbor.Config()
+        {
+            @Override
+            public boolean enableKeyMapping()
+            {
+                return Bbor.DEFAULT_CONFIG.enableKeyMapping();
+            }
+            @Override
+            public boolean enableStringCompression()
+            {
+                return Bbor.DEFAULT_CONFIG.enableStringCompression();
+            }
+            @Override
+            public Map<Object, Object> staticFields()
+            {
+                return Bbor.DEFAULT_CONFIG.staticFields();
+            }
+            @Override
+            public Map<Object, Object> staticFieldsRev()
+            {
+                return Bbor.DEFAULT_CONFIG.staticFieldsRev();
+            }
+            @Override
+            public int maxValueRefs()
+            {
+                return maxValueRefs;
+            }
+            @Override
+            public int maxShapes()
+            {
+                return maxShapes;
+            }
+            @Override
+            public boolean enableColumns()
+            {
+                return enableColumns;
+            }
+        };
+
+        return new Bbor62.Config()
+        {
+            @Override
+            public LZW.Config lzwConfig()
+            {
+                return Bbor62.DEFAULT_CONFIG.lzwConfig();
+            }
+            @Override
+            public BaseXStream.Config baseXConfig()
+            {
+                return Bbor62.DEFAULT_CONFIG.baseXConfig();
+            }
+            @Override
+            public Bbor.Config bborConfig()
+            {
+                return bborConfig;
+            }
+            @Override
+            public BborGenerator.SizingMode sizingMode()
+            {
+                return sizingMode;
+            }
+        };
+    }
+    private static byte[] encode(Object value)
+    {
+        return write(Bbor.RFC8949_CONFIG, (encoder, writer) -> encoder.write(writer, null, value));
+    }
+    private static byte[] write(Bbor.Config config, BiConsumer<Bbor.Encoder, BitWriter> write)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryStream.Encoder writer = new BinaryStream.Encoder(bytes);
+        write.accept(new Bbor.Encoder(config), writer);
+        writer.flush();
+
+        return bytes.toByteArray();
+    }
+    private static Object decode(byte[] encoded)
+    {
+        return new Bbor.Decoder(Bbor.RFC8949_CONFIG).read(new BinaryStream.Decoder(encoded, 0, encoded.length), null);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62.test;
+
+import be.goudvuur.base.bbor62.AccumulatorByteStream;
+import be.goudvuur.base.bbor62.ByteStream;
+import be.goudvuur.base.bbor62.Logger;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Differential test between the reference ByteStream and the AccumulatorByteStream:
+ * we throw the same random mix of (interleaved) writes and reads at both and check they always return the same.
+ * Note that the interleaving also exercises the wrap-around of the ring buffer behind both of them.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class ByteStreamDiffTest
+{
+    //-----CONSTANTS-----
+    private static final int RUNS = 2000;
+    private static final int OPS_PER_RUN = 500;
+
+    //-----VARIABLES-----
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args)
+    {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 42);
+
+        int errors = 0;
+        for (int run = 0; run < RUNS && errors < 10; run++) {
+            ByteStream reference = new ByteStream();
+            AccumulatorByteStream stream = new AccumulatorByteStream();
+
+            for (int op = 0; op < OPS_PER_RUN; op++) {
+                String error = null;
+
+                switch (random.nextInt(6)) {
+                    case 0: {
+                        int numBits = 1 + random.nextInt(Integer.SIZE);
+                        int value = random.nextInt() >>> (Integer.SIZE - numBits);
+                        reference.write(value, numBits);
+                        stream.write(value, numBits);
+                        break;
+                    }
+                    case 1: {
+                        int numBits = 1 + random.nextInt(Long.SIZE);
+                        long value = random.nextLong() >>> (Long.SIZE - numBits);
+                        reference.writeLong(value, numBits);
+                        stream.writeLong(value, numBits);
+                        break;
+                    }
+                    case 2: {
+                        byte[] bytes = new byte[random.nextInt(20)];
+                        random.nextBytes(bytes);
+                        reference.writeBytes(bytes, 0, bytes.length);
+                        stream.writeBytes(bytes, 0, bytes.length);
+                        break;
+                    }
+                    case 3: {
+                        int numBits = 1 + random.nextInt(Integer.SIZE);
+                        if (reference.hasNext(numBits) != stream.hasNext(numBits)) {
+                            error = "hasNext(" + numBits + ") differs";
+                        }
+                        else if (reference.hasNext(numBits)) {
+                            int expected = reference.read(numBits);
+                            int actual = stream.read(numBits);
+                            if (expected != actual) {
+                                error = "read(" + numBits + ") returned " + actual + " instead of " + expected;
+                            }
+                        }
+                        break;
+                    }
+                    case 4: {
+                        int numBits = 1 + random.nextInt(Long.SIZE);
+                        if (reference.hasNext(numBits) != stream.hasNext(numBits)) {
+                            error = "hasNext(" + numBits + ") differs";
+                        }
+                        else if (reference.hasNext(numBits)) {
+                            long expected = reference.readLong(numBits);
+                            long actual = stream.readLong(numBits);
+                            if (expected != actual) {
+                                error = "readLong(" + numBits + ") returned " + actual + " instead of " + expected;
+                            }
+                        }
+                        break;
+                    }
+                    case 5: {
+                        int len = random.nextInt(20);
+                        if (reference.hasNext(len * 8) != stream.hasNext(len * 8)) {
+                            error = "hasNext(" + (len * 8) + ") differs";
+                        }
+                        else if (reference.hasNext(len * 8)) {
+                            byte[] expected = new byte[len];
+                            byte[] actual = new byte[len];
+                            reference.readBytes(expected, 0, len);
+                            stream.readBytes(actual, 0, len);
+                            if (!Arrays.equals(expected, actual)) {
+                                error = "readBytes(" + len + ") returned " + Arrays.toString(actual) + " instead of " + Arrays.toString(expected);
+                            }
+                        }
+                        break;
+                    }
+                }
+
+                if (error == null && (reference.length() != stream.length() || reference.bitLength() != stream.bitLength())) {
+                    error = "length differs: " + stream.bitLength() + " bits instead of " + reference.bitLength();
+                }
+
+                if (error != null) {
+                    Logger.log("ERROR!!! run " + run + ", op " + op + ": " + error);
+                    errors++;
+                    break;
+                }
+            }
+        }
+
+        if (errors == 0) {
+            Logger.log("SUCCESS!!! " + RUNS + " runs of " + OPS_PER_RUN + " operations returned the same results");
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62.test;
+
+import be.goudvuur.base.bbor62.Bbor62;
+import be.goudvuur.base.bbor62.CborTranscoder;
+import be.goudvuur.base.bbor62.Logger;
+import com.google.common.io.BaseEncoding;
+import com.upokecenter.cbor.CBORObject;
+import com.upokecenter.cbor.CBORType;
+import com.upokecenter.numbers.EInteger;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Differential test of the CborTranscoder against an independent cbor implementation (com.upokecenter.cbor):
+ * we let it encode a value to standard cbor, transcode that to bbor62 and back and check it decodes to an equal value.
+ * Note that the indefinite length items are written by hand, the reference implementation never writes them itself.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class CborTranscoderTest
+{
+    //-----CONSTANTS-----
+    private static final BigInteger TWO_POW_53 = BigInteger.ONE.shiftLeft(53);
+    private static final BigInteger TWO_POW_63 = BigInteger.ONE.shiftLeft(63);
+    private static final BigInteger TWO_POW_64 = BigInteger.ONE.shiftLeft(64);
+
+    //-----VARIABLES-----
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args) throws IOException
+    {
+        List<byte[]> samples = new ArrayList<>();
+        // these should come back byte for byte (eg. Long.MIN_VALUE as 3B7FFFFFFFFFFFFFFF, not as a bignum)
+        Set<byte[]> exactSamples = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // the json sample in the root of the project (pass another path as the first argument)
+        Path json = Path.of(args.length > 0 ? args[0] : "sample1.json");
+        if (Files.exists(json)) {
+            samples.add(CBORObject.FromJSONString(Files.readString(json, StandardCharsets.UTF_8)).EncodeToBytes());
+        }
+        else {
+            Logger.log("Skipping " + json.toAbsolutePath() + ", it doesn't exist");
+        }
+
+        // the integer boundaries: the javascript safe range, the major type 0/1 range and the bignums just outside of it
+        for (BigInteger value : new BigInteger[] {
+                        BigInteger.ZERO,
+                        BigInteger.valueOf(23),
+                        BigInteger.valueOf(24),
+                        BigInteger.valueOf(-24),
+                        BigInteger.valueOf(-25),
+                        BigInteger.valueOf(4294967295L),
+                        TWO_POW_53.subtract(BigInteger.ONE),
+                        TWO_POW_53,
+                        TWO_POW_53.negate().add(BigInteger.ONE),
+                        TWO_POW_53.negate(),
+                        BigInteger.valueOf(Long.MAX_VALUE),
+                        BigInteger.valueOf(Long.MIN_VALUE),
+                        TWO_POW_63,
+                        TWO_POW_64.subtract(BigInteger.ONE),
+                        TWO_POW_64.negate(),
+                        TWO_POW_64,
+                        TWO_POW_64.negate().subtract(BigInteger.ONE),
+                        TWO_POW_64.shiftLeft(64),
+                        }) {
+            byte[] sample = CBORObject.FromEInteger(EInteger.FromString(value.toString())).EncodeToBytes();
+            samples.add(sample);
+            exactSamples.add(sample);
+        }
+
+        // byte strings, around the length boundaries
+        for (int length : new int[] { 0, 1, 23, 24, 255, 256, 1000 }) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 31);
+            }
+            byte[] sample = CBORObject.FromByteArray(bytes).EncodeToBytes();
+            samples.add(sample);
+            exactSamples.add(sample);
+        }
+
+        // half floats: 1.0, 65504.0 (max), 5.96e-8 (min subnormal), -0.0, infinity and NaN (see expectedValue() for the first two)
+        for (int bits : new int[] { 0x3c00, 0x7bff, 0x0001, 0x8000, 0x7c00, 0xfc00, 0x7e00 }) {
+            samples.add(CBORObject.FromFloatingPointBits(bits, 2).EncodeToBytes());
+        }
+
+        // indefinite length containers and strings
+        for (String hex : new String[] {
+                        // [_ 1, [2, 3], [_ ]]
+                        "9F01820203 9FFF FF",
+                        // {_ "a": 1, "b": [_ 2]}
+                        "BF616101 6162 9F02FF FF",
+                        // (_ "ab", "c", "") as a text string
+                        "7F626162 6163 60 FF",
+                        // (_ h'0102', h'03') as a byte string
+                        "5F420102 4103 FF",
+                        // ["x", (_ "y", "z"), {_ "k": (_ h'ff')}]
+                        "83 6178 7F61796179FF BF616B5F41FFFFFF",
+                        // a positive bignum with an indefinite length byte string: 2^64
+                        "C2 5F4101 4800000000000000 00FF",
+                        }) {
+            samples.add(BaseEncoding.base16().decode(hex.replace(" ", "")));
+        }
+
+        boolean allOkay = true;
+        for (byte[] sample : samples) {
+            String hex = BaseEncoding.base16().encode(sample);
+            try {
+                CBORObject expected = expectedValue(CBORObject.DecodeFromBytes(sample));
+                for (Bbor62.Config config : new Bbor62.Config[] { Bbor62.DEFAULT_CONFIG, Bbor62.BIT_EXACT_CONFIG }) {
+                    String bbor62 = CborTranscoder.toBbor62(sample, config);
+                    byte[] cbor = CborTranscoder.fromBbor62(bbor62, config);
+                    CBORObject actual = CBORObject.DecodeFromBytes(cbor);
+
+                    if (exactSamples.contains(sample) && !Arrays.equals(sample, cbor)) {
+                        Logger.log("ERROR !!! " + hex + " -> " + bbor62 + " -> " + BaseEncoding.base16().encode(cbor) + " doesn't come back byte for byte");
+                        allOkay = false;
+                    }
+                    else if (expected.equals(actual)) {
+                        Logger.log("YES !!! " + abbreviate(hex) + " -> " + abbreviate(bbor62) + " -> " + abbreviate(BaseEncoding.base16().encode(cbor)));
+                    }
+                    else {
+                        Logger.log("ERROR !!! " + hex + " -> " + bbor62 + " -> " + BaseEncoding.base16().encode(cbor) + " decodes to " + actual + " instead of " + expected);
+                        allOkay = false;
+                    }
+                }
+            }
+            catch (Throwable e) {
+                Logger.error("Error while transcoding " + hex, e);
+                allOkay = false;
+            }
+        }
+
+        if (allOkay) {
+            Logger.log("");
+            Logger.log("");
+            Logger.log("####################");
+            Logger.log("##### ALL OKAY #####");
+            Logger.log("####################");
+        }
+        else {
+            Logger.error("####################");
+            Logger.error("##### !!! ALL NOT OKAY !!! ERROR #####");
+            Logger.error("####################");
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    /**
+     * Bbor follows the json number model: a float with an integer value (eg. 1.0) is written as an integer,
+     * so that's what we expect to get back (note that -0.0 isn't, that would lose the sign)
+     */
+    private static CBORObject expectedValue(CBORObject value)
+    {
+        CBORObject retVal = value;
+
+        if (value.getType() == CBORType.FloatingPoint) {
+            double doubleValue = value.AsDoubleValue();
+            if (doubleValue == Math.rint(doubleValue) && !Double.isInfinite(doubleValue) && Double.doubleToRawLongBits(doubleValue) != Double.doubleToRawLongBits(-0.0)) {
+                retVal = CBORObject.FromInt64((long) doubleValue);
+            }
+        }
+
+        return retVal;
+    }
+    private static String abbreviate(String value)
+    {
+        return value.length() <= 60 ? value : value.substring(0, 57) + "...";
+    }
+}
@@ -1,6 +1,10 @@
 package be.goudvuur.base.bbor62.test;
 
+import be.goudvuur.base.bbor62.BaseXRangeStream;
+import be.goudvuur.base.bbor62.BaseXStream;
+import be.goudvuur.base.bbor62.Bbor;
 import be.goudvuur.base.bbor62.Bbor62;
+import be.goudvuur.base.bbor62.LZW;
 import be.goudvuur.base.bbor62.Logger;
 import blazing.chain.LZSEncoding;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -8,10 +12,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.BaseEncoding;
 import com.upokecenter.cbor.CBORObject;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Created by bram on Jul 30, 2025
@@ -101,9 +108,32 @@ public class ComparisonTest
                     "\uD83D\uDD25❤\uFE0F\uD83D\uDD25❤\uFE0F\uD83D\uDD25 Goudvuur uitvindingen \uD83D\uDD25❤\uFE0F\uD83D\uDD25❤\uFE0F\uD83D\uDD25"
     };
 
+    // same as the default, but with 5-char blocks
+    private static final Bbor62.Config DENSE_CONFIG = new Bbor62.Config()
+    {
+        @Override
+        public LZW.Config lzwConfig()
+        {
+            return LZW.DEFAULT_CONFIG;
+        }
+        @Override
+        public BaseXStream.Config baseXConfig()
+        {
+            return BaseXStream.DENSE_CONFIG;
+        }
+        @Override
+        public Bbor.Config bborConfig()
+        {
+            return Bbor.DEFAULT_CONFIG;
+        }
+    };
+
     private static final String SEP = "_______________________________________________________________________________";
 
+    private static final Comparator<JsonNode> NUMBER_COMPARATOR = (n1, n2) -> n1.equals(n2) || (n1.isNumber() && n2.isNumber() && n1.decimalValue().compareTo(n2.decimalValue()) == 0) ? 0 : 1;
+
     //-----VARIABLES-----
+    private static int errors = 0;
 
     //-----CONSTRUCTORS-----
 
@@ -116,8 +146,16 @@ public class ComparisonTest
 
             String compressedBbor62Str = Bbor62.encode(sample);
             String compressedBbor62Obj = null;
+            String compressedBbor62Dense = null;
+            String compressedBbor62Range = null;
+            byte[] compressedBborBinary = null;
             if (isJson) {
                 compressedBbor62Obj = Bbor62.encode(new ObjectMapper().readValue(sample, Map.class));
+                compressedBbor62Dense = Bbor62.encode(new ObjectMapper().readValue(sample, Map.class), DENSE_CONFIG);
+                StringBuilder range = new StringBuilder();
+                Bbor62.encode(new ObjectMapper().readValue(sample, Map.class), new BaseXRangeStream.Encoder(range::append, BaseXStream.DEFAULT_CONFIG), Bbor62.BIT_EXACT_CONFIG);
+                compressedBbor62Range = range.toString();
+                compressedBborBinary = Bbor62.encodeBinary(new ObjectMapper().readValue(sample, Map.class), Bbor62.DEFAULT_CONFIG);
             }
 
             String compressedBase64 = BaseEncoding.base64().encode(sample.getBytes(StandardCharsets.UTF_8));
@@ -193,14 +231,65 @@ public class ComparisonTest
                 Logger.log(SEP);
             }
 
+            if (compressedBbor62Dense != null) {
+                Logger.log("\tbbor62 object (5-char blocks): " + compressedBbor62Dense);
+                Logger.log(SEP);
+                Logger.log("\tbbor62 object (5-char blocks): " + ((float) compressedBbor62Dense.length() / sample.length() * 100) + "%");
+                Logger.log(SEP);
+            }
+
+            if (compressedBbor62Range != null) {
+                Logger.log("\tbbor62 object (range coder): " + compressedBbor62Range);
+                Logger.log(SEP);
+                Logger.log("\tbbor62 object (range coder): " + ((float) compressedBbor62Range.length() / sample.length() * 100) + "%");
+                Logger.log(SEP);
+            }
+
+            if (compressedBborBinary != null) {
+                // note that these are bytes, not chars, so only compare this with the original UTF-8 bytes
+                Logger.log("\tbbor object (binary): " + compressedBborBinary.length + " bytes");
+                Logger.log(SEP);
+                Logger.log("\tbbor object (binary): " + ((float) compressedBborBinary.length / sample.getBytes(StandardCharsets.UTF_8).length * 100) + "%");
+                Logger.log(SEP);
+            }
+
+            // these are only worth comparing if we get back what we put in
+            checkEquals("bbor62 string", sample, Bbor62.decode(compressedBbor62Str));
+            if (isJson) {
+                JsonNode json = new ObjectMapper().readTree(sample);
+                checkEquals("bbor62 object", json, new ObjectMapper().valueToTree(Bbor62.decode(compressedBbor62Obj)));
+                checkEquals("bbor62 object (5-char blocks)", json, new ObjectMapper().valueToTree(Bbor62.decode(compressedBbor62Dense, DENSE_CONFIG)));
+                checkEquals("bbor object (binary)", json,
+                            new ObjectMapper().valueToTree(Bbor62.decodeBinary(compressedBborBinary, 0, compressedBborBinary.length, Bbor62.DEFAULT_CONFIG)));
+                checkEquals("bbor object (binary stream)", json,
+                            new ObjectMapper().valueToTree(Bbor62.decodeBinary(new ByteArrayInputStream(compressedBborBinary), Bbor62.DEFAULT_CONFIG)));
+            }
+
             Logger.log("");
             Logger.log("");
         }
+
+        if (errors == 0) {
+            Logger.log("SUCCESS!!! all bbor encodings decode to the original");
+        }
+        else {
+            Logger.log("ERROR!!! " + errors + " bbor encodings don't decode to the original");
+        }
     }
 
     //-----PROTECTED METHODS-----
 
     //-----PRIVATE METHODS-----
+    private static void checkEquals(String name, Object expected, Object actual)
+    {
+        // note that the numbers can come back as another type (eg. a long instead of an int), so compare them by value
+        boolean equal = expected instanceof JsonNode ? ((JsonNode) expected).equals(NUMBER_COMPARATOR, (JsonNode) actual) : Objects.equals(expected, actual);
+        if (!equal) {
+            errors++;
+            Logger.log("ERROR!!! " + name + " decodes to " + actual + " instead of " + expected);
+        }
+    }
+
     private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
     public static String encodeToBase62(byte[] bytes)
     {
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62.test;
+
+import be.goudvuur.base.bbor62.Bbor62;
+import be.goudvuur.base.bbor62.Logger;
+import be.goudvuur.base.bbor62.MappedFileStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Round trip test of the MappedFileStream: we write a random mix of bits and byte arrays to a temp file with a tiny window,
+ * so every run crosses a lot of window boundaries (also in the middle of a value), read it back and check we get the same
+ * and the file has exactly the length of the written bits (rounded up to a byte).
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+public class MappedFileStreamTest
+{
+    //-----CONSTANTS-----
+    private static final int RUNS = 60;
+    private static final int OPS_PER_RUN = 300;
+    // small and odd on purpose, so the window boundaries end up everywhere
+    // Note that every window is a separate mapping that's only released by the GC (see MappedFileStream.DEFAULT_WINDOW_SIZE),
+    // so going smaller quickly runs into the limits of the OS
+    private static final int[] WINDOW_SIZES = { 7, 61, 4096 };
+
+    //-----VARIABLES-----
+    private static int errors = 0;
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args) throws IOException
+    {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 42);
+
+        Path file = Files.createTempFile("mappedfilestream", ".bin");
+        try {
+            for (int run = 0; run < RUNS && errors < 10; run++) {
+                checkBits(file, WINDOW_SIZES[run % WINDOW_SIZES.length], random);
+            }
+            for (int windowSize : WINDOW_SIZES) {
+                checkBbor(file, windowSize);
+            }
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+
+        if (errors == 0) {
+            Logger.log("\nSUCCESS!!!");
+        }
+        else {
+            Logger.log("\nERROR!!! " + errors + " failures");
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    private static void checkBits(Path file, int windowSize, Random random) throws IOException
+    {
+        // every op is either a value of 1 to 32 bits (stored as { value, numBits }) or a byte array
+        List<Object> ops = new ArrayList<>();
+        long numBits = 0;
+        for (int i = 0; i < OPS_PER_RUN; i++) {
+            if (random.nextInt(4) == 0) {
+                byte[] bytes = new byte[random.nextInt(3 * windowSize + 2)];
+                random.nextBytes(bytes);
+                ops.add(bytes);
+                numBits += bytes.length * 8L;
+            }
+            else {
+                int bits = 1 + random.nextInt(Integer.SIZE);
+                ops.add(new int[] { random.nextInt() >>> (Integer.SIZE - bits), bits });
+                numBits += bits;
+            }
+        }
+
+        try (MappedFileStream.Writer writer = new MappedFileStream.Writer(file, windowSize)) {
+            for (Object op : ops) {
+                if (op instanceof byte[] bytes) {
+                    writer.writeBytes(bytes, 0, bytes.length);
+                }
+                else {
+                    int[] value = (int[]) op;
+                    writer.write(value[0], value[1]);
+                }
+            }
+        }
+
+        String description = "round trip of " + numBits + " bits with a window of " + windowSize + " bytes";
+        long expectedLength = (numBits + 7) / 8;
+        if (Files.size(file) != expectedLength) {
+            errors++;
+            Logger.log("ERROR!!! " + description + " wrote " + Files.size(file) + " bytes instead of " + expectedLength);
+            return;
+        }
+
+        try (MappedFileStream.Reader reader = new MappedFileStream.Reader(file, windowSize)) {
+            for (Object op : ops) {
+                if (op instanceof byte[] bytes) {
+                    byte[] actual = new byte[bytes.length];
+                    reader.readBytes(actual, 0, actual.length);
+                    if (!Arrays.equals(bytes, actual)) {
+                        errors++;
+                        Logger.log("ERROR!!! " + description + " returned different bytes");
+                        return;
+                    }
+                }
+                else {
+                    int[] value = (int[]) op;
+                    int actual = reader.read(value[1]);
+                    if (actual != value[0]) {
+                        errors++;
+                        Logger.log("ERROR!!! " + description + " returned " + actual + " instead of " + value[0] + " (" + value[1] + " bits)");
+                        return;
+                    }
+                }
+            }
+            // only the padding bits of the last byte should be left
+            if (reader.hasNext(8)) {
+                errors++;
+                Logger.log("ERROR!!! " + description + " has more bits left than the padding");
+            }
+        }
+    }
+    private static void checkBbor(Path file, int windowSize) throws IOException
+    {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "Tech Innovators ā Inc.");
+        value.put("founded", 2010L);
+        List<Object> employees = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            employees.add(Map.of("id", "E" + i, "extension", (long) i, "skills", List.of("JavaScript", "Python")));
+        }
+        value.put("employees", employees);
+
+        try (MappedFileStream.Writer writer = new MappedFileStream.Writer(file, windowSize)) {
+            Bbor62.encode(value, writer, Bbor62.DEFAULT_CONFIG);
+        }
+        try (MappedFileStream.Reader reader = new MappedFileStream.Reader(file, windowSize)) {
+            Object actual = Bbor62.decode(reader, Bbor62.DEFAULT_CONFIG);
+            if (!Objects.equals(value, actual)) {
+                errors++;
+                Logger.log("ERROR!!! bbor round trip with a window of " + windowSize + " bytes returned " + actual);
+            }
+        }
+    }
+}
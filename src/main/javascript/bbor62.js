@@ -799,6 +799,12 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
         {
             return Number.MAX_SAFE_INTEGER;
         }
+
+        // the size of an indefinite length container (closed by a break code)
+        static get INDEFINITE_LENGTH()
+        {
+            return -1;
+        }
     }
 
     Bbor.Token = {
@@ -827,6 +833,7 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
         TEXT_STRING: 'TEXT_STRING',
         POSITIVE_BIGNUM: 'POSITIVE_BIGNUM',
         NEGATIVE_BIGNUM: 'NEGATIVE_BIGNUM',
+        DECIMAL_FRACTION: 'DECIMAL_FRACTION',
         BOOLEAN: 'BOOLEAN',
         NULL: 'NULL',
         UNDEFINED: 'UNDEFINED',
@@ -942,7 +949,8 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
          */
         writeNumber(outputStream, value)
         {
-            if (Math.floor(value) === value && Math.abs(value) <= Number.MAX_SAFE_INTEGER) {
+            // note that -0 passes the floor test, but we would lose the sign, see below
+            if (Math.floor(value) === value && Math.abs(value) <= Number.MAX_SAFE_INTEGER && !Object.is(value, -0)) {
                 if (value >= 0) {
                     if (value <= Bbor.JS_MAX_SAFE_INTEGER) {
                         this.writeTypeAndLength(outputStream, 0, value);
@@ -977,11 +985,19 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
                 }
             }
 
-            // little trick to reduce the precision of a decimal to 32-bits
+            // little trick to reduce the precision of a decimal to 32-bits,
+            // we pick the shortest format (half, single, double) that holds the value exactly (see the Java implementation)
             var float32 = new Float32Array([value])[0];
-            if (Math.abs((value - float32) / value) < 1e-7) {
-                this.writeUint8(outputStream, 0xfa);
-                this.writeFloat32(outputStream, value);
+            if (float32 === value || value !== value) {
+                var halfBits = this.toFloat16(value);
+                if (halfBits >= 0) {
+                    this.writeUint8(outputStream, 0xf9);
+                    this.writeUint16(outputStream, halfBits);
+                }
+                else {
+                    this.writeUint8(outputStream, 0xfa);
+                    this.writeFloat32(outputStream, value);
+                }
             }
             else {
                 this.writeUint8(outputStream, 0xfb);
@@ -1125,6 +1141,48 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
             outputStream.write(bits.low, 32);
         }
 
+        // returns the half-precision bits of the (float32) value or -1 if it doesn't fit exactly
+        toFloat16(value)
+        {
+            var bits = this.floatToIntBits(value);
+            var sign = (bits >>> 16) & 0x8000;
+            var exponent = (bits >>> 23) & 0xff;
+            var fraction = bits & 0x7fffff;
+            var halfExponent, shift, significand;
+
+            var retVal = -1;
+            if (exponent === 0xff) {
+                // infinity or NaN
+                if ((fraction & 0x1fff) === 0) {
+                    retVal = sign | 0x7c00 | fraction >>> 13;
+                }
+            }
+            else if (exponent === 0) {
+                // zero (float subnormals are too small for a half)
+                if (fraction === 0) {
+                    retVal = sign;
+                }
+            }
+            else {
+                halfExponent = exponent - 127 + 15;
+                if (halfExponent >= 1 && halfExponent <= 30) {
+                    if ((fraction & 0x1fff) === 0) {
+                        retVal = sign | halfExponent << 10 | fraction >>> 13;
+                    }
+                }
+                else if (halfExponent >= -9 && halfExponent <= 0) {
+                    // subnormal: fraction * 2^-24
+                    shift = 14 - halfExponent;
+                    significand = fraction | 0x800000;
+                    if ((significand & ((1 << shift) - 1)) === 0) {
+                        retVal = sign | significand >>> shift;
+                    }
+                }
+            }
+
+            return retVal;
+        }
+
         toPositiveBigNum(value)
         {
             var bytes = new Array(8);
@@ -1248,9 +1306,17 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
             }
 
             initialByte = this.readUint8(inputStream);
+
+            // the break code that closes an indefinite length container
+            if (initialByte === 0xff) {
+                return this.readBreak();
+            }
+
             majorType = initialByte >>> 5;
             additionalInfo = initialByte & 0x1f;
-            length = this.readLength(inputStream, additionalInfo);
+            // we only support indefinite lengths for arrays and maps (readLength() will throw for the others)
+            length = additionalInfo === 31 && (majorType === 4 || majorType === 5) ? Bbor.INDEFINITE_LENGTH
+                                                                                    : this.readLength(inputStream, additionalInfo);
 
             this.value = null;
             this.primitive = null;
@@ -1269,6 +1335,10 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
                     break;
 
                 case 1:
+                    // see above
+                    if (additionalInfo === 27) {
+                        length = (length.high * Bbor.POW_2_32) + length.low;
+                    }
                     this.value = -1 - length;
                     this.primitive = Bbor.Primitive.NEGATIVE_INTEGER;
                     retVal = Bbor.Token.VALUE_NUMBER_INT;
@@ -1296,26 +1366,24 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
                     break;
 
                 case 5:
-                    this.ctx = new Bbor.Ctx(this.ctx, Bbor.Token.START_OBJECT, length * 2);
+                    this.ctx = new Bbor.Ctx(this.ctx, Bbor.Token.START_OBJECT, length === Bbor.INDEFINITE_LENGTH ? Bbor.INDEFINITE_LENGTH : length * 2);
                     retVal = Bbor.Token.START_OBJECT;
                     break;
 
                 case 6:
+                    // note that we read the tagged items straight from the stream, so they don't touch the context
                     switch (additionalInfo) {
                         case 2:
                         case 3:
                             positive = additionalInfo === 2;
-                            this.readingValue = true;
-                            if (this.readNext(inputStream, compressor) === Bbor.Token.START_ARRAY) {
-                                this.value = positive ? this.fromPositiveBigNum(this.value) :
-                                    -1 - this.fromPositiveBigNum(this.value);
-                                this.primitive = positive ? Bbor.Primitive.POSITIVE_BIGNUM : Bbor.Primitive.NEGATIVE_BIGNUM;
-                                this.readingValue = false;
-                                retVal = Bbor.Token.VALUE_NUMBER_INT;
-                            }
-                            else {
-                                throw new Error("Encountered bignum, but the next token isn't a byte array");
-                            }
+                            this.value = this.readBigNum(inputStream, positive);
+                            this.primitive = positive ? Bbor.Primitive.POSITIVE_BIGNUM : Bbor.Primitive.NEGATIVE_BIGNUM;
+                            retVal = Bbor.Token.VALUE_NUMBER_INT;
+                            break;
+                        case 4:
+                            this.value = this.readDecimalFraction(inputStream);
+                            this.primitive = Bbor.Primitive.DECIMAL_FRACTION;
+                            retVal = Bbor.Token.VALUE_NUMBER_FLOAT;
                             break;
                         default:
                             throw new Error("Unimplemented tag value: " + additionalInfo);
@@ -1350,7 +1418,10 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
                             retVal = Bbor.Token.VALUE_NUMBER_INT;
                             break;
                         case 25:
-                            throw new Error("Half-precision float not implemented");
+                            this.value = this.fromFloat16(length);
+                            this.primitive = Bbor.Primitive.FLOAT16;
+                            retVal = Bbor.Token.VALUE_NUMBER_FLOAT;
+                            break;
                         case 26:
                             this.value = this.intBitsToFloat(length);
                             this.primitive = Bbor.Primitive.FLOAT32;
@@ -1381,6 +1452,22 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
             return retVal;
         }
 
+        readBreak()
+        {
+            var t;
+
+            if (this.readingValue || this.ctx === null || this.ctx.size !== Bbor.INDEFINITE_LENGTH
+                || (this.ctx.token === Bbor.Token.START_OBJECT && this.ctx.pos % 2 !== 0)) {
+                throw new Error("Encountered a break code outside of an indefinite length container");
+            }
+
+            t = this.ctx.token;
+            this.ctx = this.ctx.prev;
+            this.end = this.ctx === null;
+
+            return Bbor.TokenRev[t];
+        }
+
         readLength(inputStream, additionalInfo)
         {
             if (additionalInfo < 24) {
@@ -1444,11 +1531,68 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
             };
         }
 
+        // reads the byte string of a bignum (the tag is already read)
+        readBigNum(inputStream, positive)
+        {
+            var initialByte = this.readUint8(inputStream);
+            var bytes, i, value;
+            if (initialByte >>> 5 !== 2) {
+                throw new Error("Encountered bignum, but the next item isn't a byte string: " + initialByte);
+            }
+            bytes = new Uint8Array(this.readLength(inputStream, initialByte & 0x1f));
+            for (i = 0; i < bytes.length; i++) {
+                bytes[i] = inputStream.read(8);
+            }
+            value = this.fromPositiveBigNum(bytes);
+            return positive ? value : -1 - value;
+        }
+
+        // reads one integer item, including bignums
+        readInteger(inputStream)
+        {
+            var initialByte = this.readUint8(inputStream);
+            var majorType = initialByte >>> 5;
+            var additionalInfo = initialByte & 0x1f;
+            var length;
+
+            if (majorType === 0 || majorType === 1) {
+                length = this.readLength(inputStream, additionalInfo);
+                // see readNext()
+                if (additionalInfo === 27) {
+                    length = (length.high * Bbor.POW_2_32) + length.low;
+                }
+                return majorType === 0 ? length : -1 - length;
+            }
+            else if (majorType === 6 && (additionalInfo === 2 || additionalInfo === 3)) {
+                return this.readBigNum(inputStream, additionalInfo === 2);
+            }
+            else {
+                throw new Error("Expected an integer, but encountered major type " + majorType);
+            }
+        }
+
+        // reads the [exponent, mantissa] array of a decimal fraction (the tag is already read)
+        readDecimalFraction(inputStream)
+        {
+            var exponent, mantissa;
+            if (this.readUint8(inputStream) !== 0x82) {
+                throw new Error("Encountered decimal fraction, but the next item isn't an array of two items");
+            }
+            exponent = this.readInteger(inputStream);
+            mantissa = this.readInteger(inputStream);
+
+            // there's no decimal type in JS, so we return the closest number: parsing the decimal notation rounds correctly
+            // (eg. 123456e-2 is exactly the number literal 1234.56), multiplying with a power of ten doesn't
+            return Number.isSafeInteger(mantissa) ? Number(mantissa + 'e' + exponent) : mantissa * Math.pow(10, exponent);
+        }
+
         fromPositiveBigNum(bytes)
         {
+            // note that we can't use bit shifts (they're 32-bit) and that we lose precision beyond Number.MAX_SAFE_INTEGER
+            // because we avoid BigInt (see readUint64())
             var result = 0;
             for (var i = 0; i < bytes.length; i++) {
-                result = (result << 8) | (bytes[i] & 0xFF);
+                result = result * 256 + (bytes[i] & 0xFF);
             }
             return result;
         }
@@ -1469,6 +1613,30 @@ base.plugin("base.core.Bbor62", ["constants.base.core", "base.core.Class", funct
             return nameOrIdx;
         }
 
+        // JS port of the Java fromFloat16()
+        fromFloat16(value)
+        {
+            var sign = value & 0x8000;
+            var exponent = (value >>> 10) & 0x1f;
+            var fraction = value & 0x03ff;
+
+            var retVal;
+            if (exponent === 0x1f) {
+                retVal = fraction === 0 ? Infinity : NaN;
+            }
+            else if (exponent !== 0) {
+                // normal number: 1.fraction * 2^(exponent - 15)
+                retVal = (1 + fraction / 1024) * Math.pow(2, exponent - 15);
+            }
+            else {
+                // zero or subnormal number: fraction * 2^-24
+                retVal = fraction * Math.pow(2, -24);
+            }
+
+            // note that this also keeps the sign of -0
+            return sign !== 0 ? -retVal : retVal;
+        }
+
         intBitsToFloat(bits)
         {
             // Create an ArrayBuffer with 4 bytes (32 bits)
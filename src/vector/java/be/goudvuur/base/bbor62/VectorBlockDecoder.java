@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk decoder for full BaseXStream blocks, using the (incubating) Java Vector API.
+ * Every lane decodes one block: the chars of the blocks are gathered char by char (column wise),
+ * mapped to their digit values and combined with Horner's method, so we decode as much blocks at once as there are lanes.
+ * <p>
+ * Note that this class is only compiled in with the vector profile (mvn -Pvector, see pom.xml) and only loaded when
+ * the jdk.incubator.vector module is available at runtime (see BaseXStream.createBulkDecoder()), so never reference it
+ * directly from the rest of the code.
+ * <p>
+ * Created by agent on Oct 18, 2026
+ */
+final class VectorBlockDecoder implements BaseXStream.BulkDecoder
+{
+    //-----CONSTANTS-----
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    // we gather the chars as shorts, so we need the same number of lanes as the ints we convert them to
+    private static final VectorSpecies<Short> SHORT_SPECIES = VectorSpecies.of(short.class, VectorShape.forBitSize(INT_SPECIES.length() * Short.SIZE));
+
+    // The digit mapping is done with one range check per run of consecutive chars in the alphabet
+    // (eg. 3 for base62: 0-9, A-Z and a-z), so this only makes sense for alphabets with a couple of runs.
+    private static final int MAX_RUNS = 8;
+
+    //-----VARIABLES-----
+    private final int charsPerBlock;
+    private final int radix;
+    private final int[] runStart;
+    private final int[] runLength;
+    private final int[] runOffset;
+    // the offsets of the first char of every block in the lanes, relative to the first block
+    private final int[] laneOffsets;
+
+    //-----CONSTRUCTORS-----
+    private VectorBlockDecoder(BaseXStream.Config config, List<int[]> runs)
+    {
+        this.charsPerBlock = config.charsPerBlock();
+        this.radix = config.radix();
+
+        this.runStart = new int[runs.size()];
+        this.runLength = new int[runs.size()];
+        this.runOffset = new int[runs.size()];
+        for (int i = 0; i < runs.size(); i++) {
+            this.runStart[i] = runs.get(i)[0];
+            this.runLength[i] = runs.get(i)[1];
+            this.runOffset[i] = runs.get(i)[2];
+        }
+
+        this.laneOffsets = new int[INT_SPECIES.length()];
+        for (int i = 0; i < this.laneOffsets.length; i++) {
+            this.laneOffsets[i] = i * this.charsPerBlock;
+        }
+    }
+
+    /**
+     * Returns a bulk decoder for the supplied config or null if the alphabet or block size doesn't fit this implementation.
+     */
+    static VectorBlockDecoder create(BaseXStream.Config config)
+    {
+        // the block values must fit into a (signed) int lane, which is the case for 4 and 5-char base62 blocks
+        if (Math.pow(config.radix(), config.charsPerBlock()) > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        // split the alphabet in runs of consecutive chars: {first char, length, digit value of the first char}
+        List<int[]> runs = new ArrayList<>();
+        String dict = config.dict();
+        for (int i = 0; i < dict.length(); i++) {
+            int[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (last != null && dict.charAt(i) == last[0] + last[1]) {
+                last[1]++;
+            }
+            else {
+                runs.add(new int[] { dict.charAt(i), 1, i });
+            }
+        }
+
+        return runs.size() <= MAX_RUNS ? new VectorBlockDecoder(config, runs) : null;
+    }
+
+    //-----PUBLIC METHODS-----
+    @Override
+    public int decodeBlocks(char[] chars, int numBlocks, int[] blockVals)
+    {
+        int lanes = INT_SPECIES.length();
+        IntVector invalid = IntVector.broadcast(INT_SPECIES, -1);
+
+        int block = 0;
+        // note that we only decode complete lane groups, the caller decodes the rest with the scalar code
+        for (; block + lanes <= numBlocks; block += lanes) {
+
+            IntVector blockVal = IntVector.zero(INT_SPECIES);
+            for (int i = 0; i < this.charsPerBlock; i++) {
+                // gather the i-th char of every block in this group
+                IntVector c = (IntVector) ShortVector.fromCharArray(SHORT_SPECIES, chars, block * this.charsPerBlock + i, this.laneOffsets, 0)
+                                                     .convertShape(VectorOperators.S2I, INT_SPECIES, 0);
+
+                // map the chars to their digit value (chars outside of the alphabet stay -1)
+                IntVector digit = invalid;
+                for (int r = 0; r < this.runStart.length; r++) {
+                    IntVector inRun = c.sub(this.runStart[r]);
+                    VectorMask<Integer> mask = inRun.compare(VectorOperators.UNSIGNED_LT, this.runLength[r]);
+                    digit = digit.blend(inRun.add(this.runOffset[r]), mask);
+                }
+
+                // stop at the first group with an invalid char and let the scalar code report it
+                if (digit.compare(VectorOperators.LT, 0).anyTrue()) {
+                    return block;
+                }
+
+                // same Horner form as in BaseXStream.Decoder.readChar()
+                blockVal = blockVal.mul(this.radix).add(digit);
+            }
+
+            blockVal.intoArray(blockVals, block);
+        }
+
+        return block;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2024 Republic of Reinvention BV <info@reinvention.be>. All Rights Reserved.
+ * This file is part of project "cinematek-filmout-site" and can not be copied and/or distributed without
+ * the express permission and written consent of the legal responsible of Republic of Reinvention BV.
+ */
+
+package be.goudvuur.base.bbor62;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential test of the (vector API) bulk path of BaseXStream.Decoder against the scalar one: we encode random bits,
+ * decode them with and without the bulk decoder and check we read back exactly what was written.
+ * Note that it lives in the same package to be able to switch off the bulk decoder (like BaseXStreamDecodeBenchmark)
+ * and that it's run by the vector profile: mvn -Pvector test
+ * <p>
+ * Created by agent on Oct 19, 2026
+ */
+public class VectorBlockDecoderTest
+{
+    //-----CONSTANTS-----
+    // the bulk decoder only kicks in from 4096 chars (see BaseXStream.BULK_DECODE_MIN_CHARS) and decodes 1024 blocks per run
+    // (see BaseXStream.BULK_DECODE_BLOCKS), so we test just below, at and just above both
+    private static final int[] NUM_CHARS = { 4095, 4096, 4097, 4100, 5000, 4 * 1024 + 1, 5 * 1024 - 1, 5 * 1024, 5 * 1024 + 1, 20_000, 100_003 };
+
+    //-----VARIABLES-----
+    private static int errors = 0;
+
+    //-----CONSTRUCTORS-----
+
+    //-----PUBLIC METHODS-----
+    public static void main(String[] args)
+    {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 42);
+
+        BaseXStream.Config[] configs = {
+                        BaseXStream.DEFAULT_CONFIG,
+                        BaseXStream.DENSE_CONFIG,
+                        new BaseXStream.ConfigBuilder(BaseXStream.BASE62_DICT, BaseXStream.BASE62_CHARS_PER_BLOCK).enableBitSqueezing(false).build(),
+                        BaseXStream.BIT_EXACT_CONFIG,
+                        };
+
+        for (BaseXStream.Config config : configs) {
+            if (BaseXStream.createBulkDecoder(config) == null) {
+                errors++;
+                Logger.log("ERROR!!! the bulk decoder is not available for " + config.charsPerBlock() + " chars per block, did you add the jdk.incubator.vector module?");
+                continue;
+            }
+            for (int numChars : NUM_CHARS) {
+                // byte aligned writes never squeeze, random widths do (and end with a partial final block)
+                checkDecode(config, numChars, false, random);
+                checkDecode(config, numChars, true, random);
+            }
+        }
+
+        if (errors == 0) {
+            Logger.log("\nSUCCESS!!!");
+        }
+        else {
+            Logger.log("\nERROR!!! " + errors + " failures");
+            // this runs as part of the build (see the vector profile in pom.xml), so make it fail
+            System.exit(1);
+        }
+    }
+
+    //-----PROTECTED METHODS-----
+
+    //-----PRIVATE METHODS-----
+    /**
+     * Writes values of random widths (or bytes) until we have (about) numChars chars, decodes them with both paths
+     * and checks both return the written values
+     */
+    private static void checkDecode(BaseXStream.Config config, int numChars, boolean randomWidths, Random random)
+    {
+        // every value is stored as { value, numBits }, more than enough of them, we only encode a prefix (see below)
+        List<int[]> values = new ArrayList<>();
+        for (int i = 0; i < numChars * 2; i++) {
+            int bits = randomWidths ? 1 + random.nextInt(Integer.SIZE) : 8;
+            // all ones now and then, those are the values that (don't) fit in the unused space of a block
+            int value = random.nextInt(8) == 0 ? -1 >>> (Integer.SIZE - bits) : random.nextInt() >>> (Integer.SIZE - bits);
+            values.add(new int[] { value, bits });
+        }
+
+        // because of the squeezing, we can't calculate how many chars the values take, so look for the shortest prefix
+        // that's at least numChars chars long
+        int low = 1;
+        int high = values.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (encode(config, values.subList(0, mid)).length() < numChars) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        values = new ArrayList<>(values.subList(0, low));
+        StringBuilder encoded = encode(config, values);
+
+        String description = encoded.length() + " chars with " + config.charsPerBlock() + " chars per block"
+                             + (config.enableBitSqueezing() ? "" : " (no squeezing)") + (config.enableBitExactMode() ? " (bit exact)" : "")
+                             + (randomWidths ? " and random widths" : " and bytes");
+
+        for (boolean enableBulk : new boolean[] { false, true }) {
+            BaseXStream.Decoder decoder = new BaseXStream.Decoder(encoded, config, enableBulk);
+            String path = (enableBulk ? "bulk" : "scalar") + " decode of " + description;
+            for (int i = 0; i < values.size(); i++) {
+                int[] expected = values.get(i);
+                int actual = decoder.read(expected[1]);
+                if (actual != expected[0]) {
+                    errors++;
+                    Logger.log("ERROR!!! " + path + " returned " + actual + " instead of " + expected[0] + " for value " + i + " (" + expected[1] + " bits)");
+                    break;
+                }
+            }
+            // in byte aligned mode, there can be padding bits, but never a full byte of them
+            if (decoder.hasNext(config.enableBitExactMode() ? 1 : BaseXStream.BITS_PER_BYTE)) {
+                errors++;
+                Logger.log("ERROR!!! " + path + " has more bits left than the padding");
+            }
+        }
+    }
+    /**
+     * Encodes the values, padded to a full byte if needed (only the bit exact mode can end in the middle of a byte)
+     */
+    private static StringBuilder encode(BaseXStream.Config config, List<int[]> values)
+    {
+        StringBuilder retVal = new StringBuilder();
+
+        BaseXStream.Encoder encoder = new BaseXStream.Encoder(retVal::append, config);
+        long numBits = 0;
+        for (int[] value : values) {
+            encoder.write(value[0], value[1]);
+            numBits += value[1];
+        }
+        if (!config.enableBitExactMode() && numBits % BaseXStream.BITS_PER_BYTE != 0) {
+            encoder.write(0, BaseXStream.BITS_PER_BYTE - (int) (numBits % BaseXStream.BITS_PER_BYTE));
+        }
+        encoder.flush();
+
+        return retVal;
+    }
+}